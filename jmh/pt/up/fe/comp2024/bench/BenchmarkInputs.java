@@ -0,0 +1,79 @@
+package pt.up.fe.comp2024.bench;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The programs the benchmarks compile.
+ */
+public class BenchmarkInputs {
+
+    /**
+     * Prefix of a synthetic program, followed by its {@link GeneratorOptions}, e.g. 'synthetic:methods=100,loops=3' or
+     * 'synthetic:100' for 100 methods.
+     */
+    public static final String SYNTHETIC = "synthetic:";
+
+    /**
+     * Prefix of a compute kernel written in OLLIR, in the kernels directory, e.g. 'kernel:Quicksort'.
+     */
+    public static final String KERNEL = "kernel:";
+
+    /**
+     * Prefix of a compute kernel written in Java--, in the kernels directory, e.g. 'jmm-kernel:Quicksort', which prints
+     * the same as the OLLIR kernel of the same name.
+     */
+    public static final String JMM_KERNEL = "jmm-kernel:";
+
+    /**
+     * Prefix of a sample program of libs-jmm, relative to libs-jmm/java, e.g. 'sample:Quicksort.java'.
+     */
+    public static final String SAMPLE = "sample:";
+
+    /**
+     * Directory of the samples. Their classes, compiled with javac, are in the directory of
+     * {@link pt.up.fe.comp.TestUtils#getLibsClasspath()}.
+     */
+    public static final Path SAMPLES = Path.of("libs-jmm", "java");
+
+    /**
+     * @param input a program of the tests, relative to pt/up/fe/comp, a synthetic program, a kernel or a sample
+     * @return the code of the program, in OLLIR for the {@link #KERNEL} ones and in Java-- for the others
+     */
+    public static String read(String input) {
+        if (input.startsWith(SYNTHETIC)) {
+            return ProgramGenerator.generate(GeneratorOptions.parse(input.substring(SYNTHETIC.length())));
+        }
+
+        if (input.startsWith(KERNEL)) {
+            return SpecsIo.getResource("pt/up/fe/comp2024/bench/kernels/" + input.substring(KERNEL.length())
+                    + ".ollir");
+        }
+
+        if (input.startsWith(JMM_KERNEL)) {
+            return SpecsIo.getResource("pt/up/fe/comp2024/bench/kernels/" + input.substring(JMM_KERNEL.length())
+                    + ".jmm");
+        }
+
+        if (input.startsWith(SAMPLE)) {
+            try {
+                return Files.readString(SAMPLES.resolve(input.substring(SAMPLE.length())));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return SpecsIo.getResource("pt/up/fe/comp/" + input);
+    }
+
+    /**
+     * @return if the code of the program is OLLIR, instead of Java--
+     */
+    public static boolean isOllir(String input) {
+        return input.startsWith(KERNEL);
+    }
+}
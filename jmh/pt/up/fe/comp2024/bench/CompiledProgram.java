@@ -0,0 +1,43 @@
+package pt.up.fe.comp2024.bench;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The results of each stage for a program, which are the inputs of the benchmarks of the next stage.
+ */
+public class CompiledProgram {
+
+    public final Map<String, String> config;
+    public final String code;
+    public final JmmParserResult parserResult;
+    public final JmmSemanticsResult semanticsResult;
+    public final OllirResult ollirResult;
+
+    /**
+     * @param input a program, see {@link BenchmarkInputs#read(String)}
+     */
+    public CompiledProgram(String input) {
+        config = new HashMap<>();
+        config.put("optimize", "true");
+
+        code = BenchmarkInputs.read(input);
+
+        parserResult = new JmmParserImpl().parse(code, config);
+        TestUtils.noErrors(parserResult);
+
+        semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+        TestUtils.noErrors(semanticsResult);
+
+        ollirResult = new JmmOptimizationImpl().toOllir(semanticsResult);
+        TestUtils.noErrors(ollirResult);
+    }
+}
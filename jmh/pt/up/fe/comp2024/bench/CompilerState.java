@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A program compiled once up to each stage, so that each benchmark only measures its own stage.
+ */
+@State(Scope.Benchmark)
+public class CompilerState {
+
+    @Param({
+            "cpf/3_ollir/control_flow/SwitchStat.jmm",
+            "cpf/4_jasmin/arithmetic/ByteCodeIndexes2.jmm",
+            "cpf/4_jasmin/arrays/ArrayAsArgCode.jmm",
+            "cpf/4_jasmin/control_flow/IfWhileNested.jmm",
+            "cpf/5_optimizations/const_prop/PropWithLoop.jmm",
+            "cpf/5_optimizations/reg_alloc/regalloc.jmm",
+            "synthetic:100",
+            "synthetic:1000"
+    })
+    public String program;
+
+    public CompiledProgram compiled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        compiled = new CompiledProgram(program);
+    }
+}
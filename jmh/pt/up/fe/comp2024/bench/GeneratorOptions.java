@@ -0,0 +1,95 @@
+package pt.up.fe.comp2024.bench;
+
+/**
+ * Size and shape of the programs made by {@link ProgramGenerator}.
+ *
+ * @param classes         classes of the program: the main one, and the ones it imports and calls
+ * @param fields          int and boolean fields of each class
+ * @param methods         methods of each class, besides main
+ * @param statements      statements of each method, counting the ones inside ifs and loops
+ * @param expressionDepth how deep the expressions nest, e.g. 2 for (a + (b * c))
+ * @param loopNesting     how deep the loops nest, 0 for no loops
+ * @param arrays          if the methods use int arrays
+ * @param seed            seed of the random choices, the same options always give the same program
+ */
+public record GeneratorOptions(int classes, int fields, int methods, int statements, int expressionDepth,
+                               int loopNesting, boolean arrays, long seed) {
+
+    public static final GeneratorOptions DEFAULT = new GeneratorOptions(1, 4, 10, 20, 3, 2, false, 0);
+
+    /**
+     * Parses options like 'methods=100,statements=50,seed=7', where the missing ones are the default ones. A single
+     * number is the number of methods.
+     */
+    public static GeneratorOptions parse(String text) {
+        var options = DEFAULT;
+        if (text.isBlank()) {
+            return options;
+        }
+
+        if (text.chars().allMatch(Character::isDigit)) {
+            return options.withMethods(Integer.parseInt(text));
+        }
+
+        for (var option : text.split(",")) {
+            var keyValue = option.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new RuntimeException("Invalid generator option '" + option + "', expected <name>=<value>");
+            }
+
+            var value = keyValue[1].strip();
+            options = switch (keyValue[0].strip()) {
+                case "classes" -> options.withClasses(Integer.parseInt(value));
+                case "fields" -> options.withFields(Integer.parseInt(value));
+                case "methods" -> options.withMethods(Integer.parseInt(value));
+                case "statements" -> options.withStatements(Integer.parseInt(value));
+                case "depth" -> options.withExpressionDepth(Integer.parseInt(value));
+                case "loops" -> options.withLoopNesting(Integer.parseInt(value));
+                case "arrays" -> options.withArrays(Boolean.parseBoolean(value));
+                case "seed" -> options.withSeed(Long.parseLong(value));
+                default -> throw new RuntimeException("Unknown generator option '" + keyValue[0] + "', expected "
+                        + "classes, fields, methods, statements, depth, loops, arrays or seed");
+            };
+        }
+
+        return options;
+    }
+
+    public GeneratorOptions withClasses(int numClasses) {
+        return new GeneratorOptions(numClasses, fields, methods, statements, expressionDepth, loopNesting, arrays,
+                seed);
+    }
+
+    public GeneratorOptions withFields(int numFields) {
+        return new GeneratorOptions(classes, numFields, methods, statements, expressionDepth, loopNesting, arrays,
+                seed);
+    }
+
+    public GeneratorOptions withMethods(int numMethods) {
+        return new GeneratorOptions(classes, fields, numMethods, statements, expressionDepth, loopNesting, arrays,
+                seed);
+    }
+
+    public GeneratorOptions withStatements(int numStatements) {
+        return new GeneratorOptions(classes, fields, methods, numStatements, expressionDepth, loopNesting, arrays,
+                seed);
+    }
+
+    public GeneratorOptions withExpressionDepth(int depth) {
+        return new GeneratorOptions(classes, fields, methods, statements, depth, loopNesting, arrays, seed);
+    }
+
+    public GeneratorOptions withLoopNesting(int nesting) {
+        return new GeneratorOptions(classes, fields, methods, statements, expressionDepth, nesting, arrays, seed);
+    }
+
+    public GeneratorOptions withArrays(boolean useArrays) {
+        return new GeneratorOptions(classes, fields, methods, statements, expressionDepth, loopNesting, useArrays,
+                seed);
+    }
+
+    public GeneratorOptions withSeed(long newSeed) {
+        return new GeneratorOptions(classes, fields, methods, statements, expressionDepth, loopNesting, arrays,
+                newSeed);
+    }
+}
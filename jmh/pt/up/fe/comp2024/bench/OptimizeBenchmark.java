@@ -0,0 +1,62 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the OLLIR optimizations, i.e. constant propagation and folding and register allocation.
+ * <p>
+ * The optimizations change the OLLIR class in place, so a new one is parsed before each invocation, outside of the
+ * measurement. Invocation-level setup adds some noise to the small programs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizeBenchmark {
+
+    @State(Scope.Thread)
+    public static class OllirState {
+
+        @Param({"-1", "0"})
+        public String registerAllocation;
+
+        public String ollirCode;
+        public OllirResult ollirResult;
+
+        @Setup(Level.Trial)
+        public void setupTrial(CompilerState compilerState) {
+            ollirCode = compilerState.compiled.ollirResult.getOllirCode();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            var config = new HashMap<String, String>();
+            config.put("optimize", "true");
+            config.put("registerAllocation", registerAllocation);
+
+            ollirResult = new OllirResult(ollirCode, config);
+        }
+    }
+
+    @Benchmark
+    public OllirResult optimize(OllirState state) {
+        return new JmmOptimizationImpl().optimize(state.ollirResult);
+    }
+}
@@ -0,0 +1,337 @@
+package pt.up.fe.comp2024.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of any size, for the benchmarks and stress runs to show how the stages scale.
+ * <p>
+ * Every class has int and boolean fields and methods 'int mN(int a, int b)'. Each method declares its locals, runs a
+ * mix of assignments, prints, ifs, loops and array accesses, calls the method before it and returns an expression.
+ * The programs also run: loops count up to a constant, array indices are constants inside the array, there is no
+ * division and the calls only go to earlier methods, so they always end.
+ * <p>
+ * Parentheses and '!' are valid, but the analysis does not support them yet, so they are not generated.
+ */
+public class ProgramGenerator {
+
+    public static final String MAIN_CLASS = "Synthetic";
+
+    private static final String HELPER_CLASS = "Helper";
+    private static final int NUM_INT_LOCALS = 3;
+    private static final int ARRAY_SIZE = 8;
+    private static final int MAX_LOOP_ITERATIONS = 4;
+
+    private final GeneratorOptions options;
+    private final Random random;
+
+    private StringBuilder code;
+    private int indentation;
+
+    // the class and method being generated
+    private String className;
+    private int numHelpers;
+    private int loopDepth;
+
+    public ProgramGenerator(GeneratorOptions options) {
+        this.options = options;
+        this.random = new Random(options.seed());
+    }
+
+    /**
+     * Writes the classes of a program to a directory, e.g. to stress the compiler with the launcher.
+     *
+     * @param args the {@link GeneratorOptions}, as parsed by {@link GeneratorOptions#parse(String)}, and the directory
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new RuntimeException("Expected the generator options and the output directory, e.g. "
+                    + "'methods=100,seed=3 generated'");
+        }
+
+        var outputDir = Path.of(args[1]);
+        Files.createDirectories(outputDir);
+
+        var generator = new ProgramGenerator(GeneratorOptions.parse(args[0]));
+        for (var classCode : generator.generateAll()) {
+            var name = classCode.substring(classCode.indexOf("class ") + "class ".length(), classCode.indexOf(" {"));
+            Files.writeString(outputDir.resolve(name + ".jmm"), classCode);
+        }
+    }
+
+    /**
+     * @return the code of the main class, which imports the other classes
+     */
+    public static String generate(GeneratorOptions options) {
+        var classes = new ProgramGenerator(options).generateAll();
+        return classes.get(classes.size() - 1);
+    }
+
+    /**
+     * @return the code of every class, the main one last
+     */
+    public List<String> generateAll() {
+        var classes = new ArrayList<String>();
+
+        int numHelpers = Math.max(0, options.classes() - 1);
+        for (int i = 0; i < numHelpers; i++) {
+            classes.add(generateClass(HELPER_CLASS + i, 0));
+        }
+        classes.add(generateClass(MAIN_CLASS, numHelpers));
+
+        return classes;
+    }
+
+    private String generateClass(String name, int helpers) {
+        code = new StringBuilder();
+        indentation = 0;
+        className = name;
+        numHelpers = helpers;
+
+        line("import io;");
+        for (int i = 0; i < helpers; i++) {
+            line("import " + HELPER_CLASS + i + ";");
+        }
+        line("");
+        line("class " + name + " {");
+        indentation++;
+
+        for (int i = 0; i < options.fields(); i++) {
+            line(isBooleanField(i) ? "boolean b" + i + ";" : "int f" + i + ";");
+        }
+
+        for (int i = 0; i < options.methods(); i++) {
+            line("");
+            generateMethod(i);
+        }
+
+        line("");
+        line("public static void main(String[] args) {");
+        indentation++;
+        line(name + " program;");
+        line("program = new " + name + "();");
+        if (options.methods() > 0) {
+            line("io.println(program.m" + (options.methods() - 1) + "(" + random.nextInt(10) + ", "
+                    + random.nextInt(10) + "));");
+        }
+        indentation--;
+        line("}");
+
+        indentation--;
+        line("}");
+
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        line("public int m" + index + "(int a, int b) {");
+        indentation++;
+
+        for (int i = 0; i < NUM_INT_LOCALS; i++) {
+            line("int x" + i + ";");
+        }
+        line("boolean c;");
+        for (int i = 0; i < options.loopNesting(); i++) {
+            line("int i" + i + ";");
+        }
+        if (options.arrays()) {
+            line("int[] arr;");
+        }
+        if (index > 0) {
+            line(className + " other;");
+        }
+        if (numHelpers > 0) {
+            line(HELPER_CLASS + (index % numHelpers) + " helper;");
+        }
+
+        // every variable has a value before the statements use it
+        for (int i = 0; i < NUM_INT_LOCALS; i++) {
+            line("x" + i + " = a + " + i + ";");
+        }
+        line("c = a < b;");
+        if (options.arrays()) {
+            line("arr = new int[" + ARRAY_SIZE + "];");
+        }
+
+        loopDepth = 0;
+        generateStatements(options.statements());
+
+        if (index > 0) {
+            line("other = new " + className + "();");
+            line("x0 = other.m" + (index - 1) + "(x0, b);");
+        }
+        if (numHelpers > 0) {
+            line("helper = new " + HELPER_CLASS + (index % numHelpers) + "();");
+            line("x1 = helper.m" + random.nextInt(Math.max(1, options.methods())) + "(x1, a);");
+        }
+
+        // the backend cannot return a field directly, so the result goes through a local
+        line("x2 = " + intExpr(options.expressionDepth()) + ";");
+        line("return x2;");
+
+        indentation--;
+        line("}");
+    }
+
+    private void generateStatements(int count) {
+        int remaining = count;
+        while (remaining > 0) {
+            remaining -= generateStatement(remaining);
+        }
+    }
+
+    /**
+     * @param budget the most statements this one may have, counting the ones inside it
+     * @return how many statements were generated
+     */
+    private int generateStatement(int budget) {
+        int choice = random.nextInt(10);
+
+        if (budget >= 3 && choice == 0) {
+            int thenSize = 1 + random.nextInt((budget - 1) / 2);
+            int elseSize = 1 + random.nextInt(budget - 1 - thenSize);
+
+            line("if (" + boolExpr(options.expressionDepth()) + ") {");
+            indentation++;
+            generateStatements(thenSize);
+            indentation--;
+            line("} else {");
+            indentation++;
+            generateStatements(elseSize);
+            indentation--;
+            line("}");
+            return 1 + thenSize + elseSize;
+        }
+
+        if (budget >= 3 && choice == 1 && loopDepth < options.loopNesting()) {
+            // the counter and its increment count as statements of the loop
+            int bodySize = 1 + random.nextInt(budget - 2);
+            var counter = "i" + loopDepth;
+
+            line(counter + " = 0;");
+            line("while (" + counter + " < " + (1 + random.nextInt(MAX_LOOP_ITERATIONS)) + ") {");
+            indentation++;
+            loopDepth++;
+            generateStatements(bodySize);
+            loopDepth--;
+            line(counter + " = " + counter + " + 1;");
+            indentation--;
+            line("}");
+            return 2 + bodySize;
+        }
+
+        switch (choice) {
+            case 2 -> line("c = " + boolExpr(options.expressionDepth()) + ";");
+            case 3 -> line("io.println(" + intExpr(options.expressionDepth()) + ");");
+            case 4 -> {
+                if (options.arrays()) {
+                    line("arr[" + random.nextInt(ARRAY_SIZE) + "] = " + intExpr(options.expressionDepth()) + ";");
+                } else {
+                    line(intLocal() + " = " + intExpr(options.expressionDepth()) + ";");
+                }
+            }
+            case 5 -> {
+                int field = options.fields() > 0 ? random.nextInt(options.fields()) : -1;
+                if (field < 0) {
+                    line(intLocal() + " = " + intExpr(options.expressionDepth()) + ";");
+                } else if (isBooleanField(field)) {
+                    line("b" + field + " = " + boolExpr(options.expressionDepth()) + ";");
+                } else {
+                    line("f" + field + " = " + intExpr(options.expressionDepth()) + ";");
+                }
+            }
+            default -> line(intLocal() + " = " + intExpr(options.expressionDepth()) + ";");
+        }
+
+        return 1;
+    }
+
+    private String intExpr(int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return intLeaf();
+        }
+
+        var operator = switch (random.nextInt(3)) {
+            case 0 -> " + ";
+            case 1 -> " - ";
+            default -> " * ";
+        };
+
+        // the precedence of the operators shapes the tree, the analysis does not support parentheses
+        return intExpr(depth - 1) + operator + intExpr(depth - 1);
+    }
+
+    private String intLeaf() {
+        int choice = random.nextInt(options.arrays() ? 7 : 5);
+        return switch (choice) {
+            case 0 -> Integer.toString(random.nextInt(100));
+            case 1 -> random.nextBoolean() ? "a" : "b";
+            case 2 -> intField();
+            case 5 -> "arr[" + random.nextInt(ARRAY_SIZE) + "]";
+            case 6 -> "arr.length";
+            default -> intLocal();
+        };
+    }
+
+    /**
+     * @return a comparison or a boolean, followed by '&& boolean' as many times as the depth allows
+     */
+    private String boolExpr(int depth) {
+        // && and < have the same precedence, so only the first operand of the chain can be a comparison
+        var expr = new StringBuilder(random.nextBoolean() ? boolLeaf()
+                : intExpr(Math.max(0, depth - 1)) + " < " + intExpr(Math.max(0, depth - 1)));
+
+        for (int i = 0; i < depth && random.nextInt(3) == 0; i++) {
+            expr.append(" && ").append(boolLeaf());
+        }
+
+        return expr.toString();
+    }
+
+    private String boolLeaf() {
+        return switch (random.nextInt(3)) {
+            case 0 -> random.nextBoolean() ? "true" : "false";
+            case 1 -> boolField();
+            default -> "c";
+        };
+    }
+
+    private String intLocal() {
+        return "x" + random.nextInt(NUM_INT_LOCALS);
+    }
+
+    private String intField() {
+        for (int i = random.nextInt(Math.max(1, options.fields())); i < options.fields(); i++) {
+            if (!isBooleanField(i)) {
+                return "f" + i;
+            }
+        }
+
+        return intLocal();
+    }
+
+    private String boolField() {
+        for (int i = random.nextInt(Math.max(1, options.fields())); i < options.fields(); i++) {
+            if (isBooleanField(i)) {
+                return "b" + i;
+            }
+        }
+
+        return "c";
+    }
+
+    private static boolean isBooleanField(int field) {
+        return field % 3 == 2;
+    }
+
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            code.append("    ".repeat(indentation)).append(text);
+        }
+        code.append("\n");
+    }
+}
@@ -0,0 +1,94 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.backend.InProcessRunner;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How fast the code produced by the compiler runs, with and without the OLLIR optimizations (-o) and register
+ * allocation (-r). {@link RuntimeReport} runs it and compares each configuration with the unoptimized one.
+ * <p>
+ * The programs are kernels written in OLLIR: sorting, loops over arrays and recursion, which start after the frontend.
+ * {@link RuntimeReport} also runs the same kernels written in Java--, and the samples of libs-jmm, when the frontend
+ * compiles them correctly, see {@link RuntimePrograms}.
+ * <p>
+ * There is no level with a limit on the registers (-r=n): a limit the kernels fit in gives the same code as -r=0, and
+ * a lower one fails to compile them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuntimeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ProgramState {
+
+        @Param({"kernel:Quicksort", "kernel:ArraySum", "kernel:Fib"})
+        public String program;
+
+        @Param({"false", "true"})
+        public String optimize;
+
+        @Param({"-1", "0"})
+        public String registerAllocation;
+
+        public Method main;
+        public Object[] args;
+
+        private PrintStream originalOut;
+
+        @Setup(Level.Trial)
+        public void setup() throws ReflectiveOperationException {
+            var jasminResult = RuntimePrograms.compile(program, optimize, registerAllocation);
+            var expected = RuntimePrograms.run(RuntimePrograms.compile(program, "false", "-1"));
+            var actual = RuntimePrograms.run(jasminResult);
+            if (!actual.equals(expected)) {
+                throw new RuntimeException("With -o=" + optimize + " -r=" + registerAllocation + ", " + program
+                        + " prints '" + actual + "' instead of '" + expected + "'");
+            }
+
+            // reflection instead of a method handle, C2 of JDK 17 crashes when it inlines the handle
+            main = new InProcessRunner(List.of(TestUtils.getLibsClasspath())).load(jasminResult).getMethod("main", String[].class);
+            args = new Object[]{new String[0]};
+
+            // the kernels print their result, which is not part of what is measured
+            originalOut = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(originalOut);
+        }
+    }
+
+    @Benchmark
+    public void run(ProgramState state) throws Throwable {
+        try {
+            state.main.invoke(null, state.args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
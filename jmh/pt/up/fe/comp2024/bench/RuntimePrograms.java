@@ -0,0 +1,222 @@
+package pt.up.fe.comp2024.bench;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.InProcessRunner;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The programs {@link RuntimeBenchmark} runs, and how they are compiled and run.
+ * <p>
+ * The OLLIR kernels always run. The Java-- kernels and the samples of libs-jmm go through the frontend, and only run if
+ * they compile without errors and print the same as a reference: the OLLIR kernel of the same name, or the class of
+ * the sample compiled with javac. The others are skipped, with the reason.
+ */
+class RuntimePrograms {
+
+    static final List<String> KERNELS = List.of("Quicksort", "ArraySum", "Fib");
+
+    private static final long REFERENCE_TIMEOUT_SECONDS = 30;
+
+    record Skipped(String program, String reason) {
+    }
+
+    record Selection(List<String> programs, List<Skipped> skipped) {
+    }
+
+    /**
+     * Compiles and runs each candidate program once, without optimizations, to find the ones the frontend handles.
+     */
+    static Selection select() {
+        var programs = new ArrayList<String>();
+        var skipped = new ArrayList<Skipped>();
+
+        // the frontend prints the OLLIR code it generates
+        var out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (var kernel : KERNELS) {
+                var ollirKernel = BenchmarkInputs.KERNEL + kernel;
+                programs.add(ollirKernel);
+                check(BenchmarkInputs.JMM_KERNEL + kernel, () -> run(compile(ollirKernel, "false", "-1")), programs,
+                        skipped);
+            }
+
+            for (var sample : listSamples()) {
+                var program = BenchmarkInputs.SAMPLE + sample;
+                if (!BenchmarkInputs.read(program).contains("static void main")) {
+                    skipped.add(new Skipped(program, "not a program, it has no main method"));
+                    continue;
+                }
+
+                check(program, () -> runWithJava(sample), programs, skipped);
+            }
+        } finally {
+            System.setOut(out);
+        }
+
+        return new Selection(programs, skipped);
+    }
+
+    private static void check(String program, Supplier<String> reference, List<String> programs,
+                              List<Skipped> skipped) {
+        String expected;
+        try {
+            expected = reference.get();
+        } catch (RuntimeException e) {
+            skipped.add(new Skipped(program, "no reference output, " + describe(e)));
+            return;
+        }
+
+        String actual;
+        try {
+            actual = run(compile(program, "false", "-1"));
+        } catch (RuntimeException e) {
+            skipped.add(new Skipped(program, describe(e)));
+            return;
+        }
+
+        if (!actual.equals(expected)) {
+            skipped.add(new Skipped(program, "prints '" + abbreviate(actual) + "' instead of '"
+                    + abbreviate(expected) + "'"));
+            return;
+        }
+
+        programs.add(program);
+    }
+
+    /**
+     * @return the samples, relative to {@link BenchmarkInputs#SAMPLES} and with '/' as separator
+     */
+    private static List<String> listSamples() {
+        try (var files = Files.walk(BenchmarkInputs.SAMPLES)) {
+            return files.filter(file -> file.toString().endsWith(".java"))
+                    .map(file -> BenchmarkInputs.SAMPLES.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the class of the sample compiled with javac in a new JVM.
+     *
+     * @return what it prints
+     */
+    private static String runWithJava(String sample) {
+        var className = sample.substring(0, sample.length() - ".java".length());
+        var classFile = Path.of(TestUtils.getLibsClasspath(), className + ".class");
+        if (!Files.isRegularFile(classFile)) {
+            throw new RuntimeException("there is no " + classFile);
+        }
+
+        var java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        try {
+            var process = new ProcessBuilder(java, "-cp", TestUtils.getLibsClasspath(), className.replace('/', '.'))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            process.getOutputStream().close();
+            var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(REFERENCE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new RuntimeException(className + " did not end in " + REFERENCE_TIMEOUT_SECONDS + " s");
+            }
+            if (process.exitValue() != 0) {
+                throw new RuntimeException(className + " exited with " + process.exitValue());
+            }
+
+            return output;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running " + className, e);
+        }
+    }
+
+    /**
+     * Compiles a program of {@link BenchmarkInputs} into Jasmin, through the frontend unless it is written in OLLIR.
+     *
+     * @throws RuntimeException if a stage reports an error
+     */
+    static JasminResult compile(String program, String optimize, String registerAllocation) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", optimize);
+        config.put("registerAllocation", registerAllocation);
+
+        var code = BenchmarkInputs.read(program);
+        var optimization = new JmmOptimizationImpl();
+
+        OllirResult ollirResult;
+        if (BenchmarkInputs.isOllir(program)) {
+            ollirResult = new OllirResult(code, config);
+        } else {
+            var parserResult = new JmmParserImpl().parse(code, config);
+            TestUtils.noErrors(parserResult);
+
+            var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(parserResult);
+            TestUtils.noErrors(semanticsResult);
+
+            ollirResult = optimization.toOllir(optimization.optimize(semanticsResult));
+            TestUtils.noErrors(ollirResult);
+        }
+
+        ollirResult = optimization.optimize(ollirResult);
+        TestUtils.noErrors(ollirResult);
+
+        var jasminResult = new JasminBackendImpl().toJasmin(ollirResult);
+        TestUtils.noErrors(jasminResult);
+
+        return jasminResult;
+    }
+
+    /**
+     * @return what the program prints
+     * @throws RuntimeException if the program does not run to the end
+     */
+    static String run(JasminResult jasminResult) {
+        var result = new InProcessRunner(List.of(TestUtils.getLibsClasspath())).run(jasminResult);
+        if (!result.isSuccess()) {
+            throw new RuntimeException("Could not run " + jasminResult.getClassName(), result.exception());
+        }
+
+        return result.output();
+    }
+
+    /**
+     * @return the first line of the message of the exception, or its class if it has no message, followed by its cause
+     */
+    private static String describe(Throwable e) {
+        var message = e.getMessage() == null ? e.getClass().getSimpleName()
+                : e.getMessage().lines().findFirst().orElse("");
+        if (e.getCause() != null && e.getCause() != e) {
+            message += ": " + describe(e.getCause());
+        }
+
+        return abbreviate(message);
+    }
+
+    private static String abbreviate(String text) {
+        var oneLine = text.strip().replace("\n", "\\n");
+        return oneLine.length() <= 100 ? oneLine : oneLine.substring(0, 97) + "...";
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs {@link RuntimeBenchmark} and prints, for each program, the throughput of each configuration and how much it
+ * gains over the code compiled without optimizations, e.g. to judge a new optimization by how much faster the
+ * programs run.
+ * <p>
+ * Besides the OLLIR kernels, it runs the Java-- kernels and the samples of libs-jmm that the frontend compiles
+ * correctly, and lists the ones it skips, with the reason.
+ */
+public class RuntimeReport {
+
+    private record Score(String program, String options, double opsPerSecond, double error) {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var selection = RuntimePrograms.select();
+
+        var options = new OptionsBuilder()
+                .include(RuntimeBenchmark.class.getName())
+                .param("program", selection.programs().toArray(String[]::new))
+                .build();
+
+        System.out.println();
+        System.out.print(format(new Runner(options).run()));
+        System.out.print(formatSkipped(selection.skipped()));
+    }
+
+    static String format(Collection<RunResult> results) {
+        // the scores of each program together, in the order JMH ran them
+        var scores = new LinkedHashMap<String, List<Score>>();
+        var baselines = new HashMap<String, Double>();
+
+        for (var result : results) {
+            var params = result.getParams();
+            var program = params.getParam("program");
+            var optimize = Boolean.parseBoolean(params.getParam("optimize"));
+            var registerAllocation = Integer.parseInt(params.getParam("registerAllocation"));
+            var primary = result.getPrimaryResult();
+
+            scores.computeIfAbsent(program, key -> new ArrayList<>()).add(new Score(program,
+                    toOptions(optimize, registerAllocation), primary.getScore(), primary.getScoreError()));
+            if (!optimize && registerAllocation < 0) {
+                baselines.put(program, primary.getScore());
+            }
+        }
+
+        return format(scores.values().stream().flatMap(List::stream).toList(), baselines);
+    }
+
+    private static String format(List<Score> scores, Map<String, Double> baselines) {
+        var report = new StringBuilder();
+        report.append(String.format("%-20s %-12s %14s %12s %9s%n", "Program", "Options", "ops/s", "error", "delta"));
+
+        for (var score : scores) {
+            var baseline = baselines.get(score.program());
+            var delta = baseline == null ? "-"
+                    : String.format("%+.1f%%", (score.opsPerSecond() / baseline - 1) * 100);
+
+            report.append(String.format("%-20s %-12s %14.1f %12.1f %9s%n", score.program(), score.options(),
+                    score.opsPerSecond(), score.error(), delta));
+        }
+
+        return report.toString();
+    }
+
+    static String formatSkipped(List<RuntimePrograms.Skipped> skipped) {
+        if (skipped.isEmpty()) {
+            return "";
+        }
+
+        var report = new StringBuilder();
+        report.append(String.format("%nSkipped, the frontend does not compile them into a program that prints the "
+                + "same as the reference:%n"));
+        for (var program : skipped) {
+            report.append(String.format("%-30s %s%n", program.program(), program.reason()));
+        }
+
+        return report.toString();
+    }
+
+    private static String toOptions(boolean optimize, int registerAllocation) {
+        var options = new ArrayList<String>();
+        if (optimize) {
+            options.add("-o");
+        }
+        if (registerAllocation >= 0) {
+            options.add("-r=" + registerAllocation);
+        }
+
+        return options.isEmpty() ? "none" : String.join(" ", options);
+    }
+}
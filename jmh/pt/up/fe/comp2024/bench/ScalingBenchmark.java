@@ -0,0 +1,74 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the analysis, the OLLIR generation and the backend as one dimension of the generated programs doubles,
+ * while the others keep their default value. A stage that scales linearly takes twice the time for each step.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ScalingState {
+
+        // each level of depth doubles the size of the expressions; the OLLIR generation revisits the children of a
+        // binary expression, so it grows much faster than that and deeper expressions take minutes
+        @Param({
+                "synthetic:methods=125", "synthetic:methods=250", "synthetic:methods=500",
+                "synthetic:methods=1000",
+                "synthetic:methods=20,statements=25", "synthetic:methods=20,statements=50",
+                "synthetic:methods=20,statements=100", "synthetic:methods=20,statements=200",
+                "synthetic:methods=20,depth=2", "synthetic:methods=20,depth=3", "synthetic:methods=20,depth=4",
+                "synthetic:methods=20,depth=5",
+                "synthetic:methods=20,statements=50,loops=1", "synthetic:methods=20,statements=50,loops=2",
+                "synthetic:methods=20,statements=50,loops=4", "synthetic:methods=20,statements=50,loops=8"
+        })
+        public String program;
+
+        public CompiledProgram compiled;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            compiled = new CompiledProgram(program);
+        }
+    }
+
+    @Benchmark
+    public JmmSemanticsResult analysis(ScalingState state) {
+        return new JmmAnalysisImpl().semanticAnalysis(state.compiled.parserResult);
+    }
+
+    @Benchmark
+    public OllirResult ollirGeneration(ScalingState state) {
+        return new JmmOptimizationImpl().toOllir(state.compiled.semanticsResult);
+    }
+
+    @Benchmark
+    public JasminResult jasmin(ScalingState state) {
+        return new JasminBackendImpl().toJasmin(state.compiled.ollirResult);
+    }
+}
@@ -0,0 +1,71 @@
+package pt.up.fe.comp2024.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.RecursiveDescentParser;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each stage of the compiler, on the output of the stage before it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+    @Benchmark
+    public JmmParserResult parse(CompilerState state) {
+        return new JmmParserImpl().parse(state.compiled.code, state.compiled.config);
+    }
+
+    @Benchmark
+    public JmmParserResult parseRecursiveDescent(CompilerState state) {
+        return new RecursiveDescentParser().parse(state.compiled.code, state.compiled.config);
+    }
+
+    @Benchmark
+    public SymbolTable symbolTable(CompilerState state) {
+        return JmmSymbolTableBuilder.build(state.compiled.parserResult.getRootNode());
+    }
+
+    @Benchmark
+    public JmmSemanticsResult analysis(CompilerState state) {
+        return new JmmAnalysisImpl().semanticAnalysis(state.compiled.parserResult);
+    }
+
+    /**
+     * Includes parsing the generated code, which is done by OllirResult.
+     */
+    @Benchmark
+    public OllirResult ollirGeneration(CompilerState state) {
+        return new JmmOptimizationImpl().toOllir(state.compiled.semanticsResult);
+    }
+
+    @Benchmark
+    public OllirResult ollirParse(CompilerState state) {
+        return new OllirResult(state.compiled.ollirResult.getOllirCode(), state.compiled.config);
+    }
+
+    @Benchmark
+    public JasminResult jasmin(CompilerState state) {
+        return new JasminBackendImpl().toJasmin(state.compiled.ollirResult);
+    }
+}
@@ -10,6 +10,9 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String ALLOCATOR = "registerAllocator";
+    private static final String PARALLEL_ANALYSIS = "parallelAnalysis";
+    private static final String METRICS = "metrics";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +21,9 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("a", CompilerConfig.ALLOCATOR);
+        shortToLong.put("p", CompilerConfig.PARALLEL_ANALYSIS);
+        shortToLong.put("m", CompilerConfig.METRICS);
     }
 
 
@@ -40,6 +46,32 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the register allocation strategy, one of 'graph', 'linear' or 'auto' (the default)
+     */
+    public static String getRegisterAllocator(Map<String, String> config) {
+        var allocator = config.getOrDefault(ALLOCATOR, "auto");
+        if (!allocator.equals("graph") && !allocator.equals("linear") && !allocator.equals("auto")) {
+            throw new RuntimeException("Invalid register allocator '" + allocator + "', expected graph, linear or auto");
+        }
+
+        return allocator;
+    }
+
+    /**
+     * @return if the methods are analyzed in parallel by the semantic analysis
+     */
+    public static boolean getParallelAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_ANALYSIS, "false"));
+    }
+
+    /**
+     * @return if each stage measures its time and allocations, see {@link pt.up.fe.comp2024.utils.StageMetrics}
+     */
+    public static boolean getMetrics(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(METRICS, "false"));
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -47,6 +79,9 @@ public class CompilerConfig {
 
         config.put(CompilerConfig.OPTIMIZE, "false");
         config.put(CompilerConfig.REGISTER, "-1");
+        config.put(CompilerConfig.ALLOCATOR, "auto");
+        config.put(CompilerConfig.PARALLEL_ANALYSIS, "false");
+        config.put(CompilerConfig.METRICS, "false");
 
         return config;
     }
@@ -106,6 +141,7 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getRegisterAllocator(config);
 
         return config;
     }
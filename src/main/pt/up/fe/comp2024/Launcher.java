@@ -9,7 +9,7 @@ import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2024.backend.JasminBackendImpl;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.comp2024.utils.StageMetrics;
 import pt.up.fe.specs.util.SpecsSystem;
 
 import java.util.Map;
@@ -26,11 +26,10 @@ public class Launcher {
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
+        // Parsing stage, the lexer reads the file from a memory mapping instead of a String
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
+        JmmParserResult parserResult = parser.parse(inputFile.toPath(), config);
         TestUtils.noErrors(parserResult.getReports());
 
         // Print AST
@@ -58,6 +57,11 @@ public class Launcher {
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
 
+        // Print the time and allocations of each stage, as JSON
+        if (CompilerConfig.getMetrics(config)) {
+            System.out.println(StageMetrics.toJson(jasminResult.getReports()));
+        }
+
     }
 
 }
@@ -0,0 +1,280 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.jfr.AnalysisPassEvent;
+import pt.up.fe.comp2024.utils.StageMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Runs several analysis passes in a single preorder traversal of the AST. Each node is given to every pass that has a
+ * visit method for its kind, in the order of the passes, so each pass still sees the nodes in preorder.
+ * <p>
+ * The reports are the same as running the passes one after the other and stopping after the first one that reports
+ * something. The reports of the passes after that one are dropped, so at the start of each method the engine checks
+ * which passes have reported so far and stops calling the ones whose reports would be dropped. Passes before the first
+ * one that reported still visit the whole tree.
+ */
+public class AnalysisEngine {
+
+    private record Callback(int pass, BiFunction<JmmNode, SymbolTable, Void> method) {
+    }
+
+    private final List<AnalysisVisitor> passes;
+
+    // the callbacks of a node only depend on its kind, so they are found once per kind
+    private final Map<String, List<Callback>> callbacksByKind;
+
+    // a pass that throws is not called again, like when it visited the tree by itself
+    private final Exception[] failures;
+
+    // the passes from this index on are not called, since their reports would be dropped
+    private int numActivePasses;
+
+    // the node each report of each pass was added on, to merge the reports of several engines in traversal order
+    private final List<List<JmmNode>> reportNodes;
+
+    // the calls of the visit methods are measured when this is not null
+    private PassProfile profile;
+
+    public AnalysisEngine(List<AnalysisVisitor> passes) {
+        this(passes, null);
+    }
+
+    /**
+     * @param expressionTypes the types of the expressions, which the passes share, or null if each use infers them
+     */
+    public AnalysisEngine(List<AnalysisVisitor> passes, ExpressionTypes expressionTypes) {
+        this.passes = passes;
+        for (var pass : passes) {
+            pass.setExpressionTypes(expressionTypes);
+        }
+        this.callbacksByKind = new HashMap<>();
+        this.failures = new Exception[passes.size()];
+        this.numActivePasses = passes.size();
+        this.reportNodes = new ArrayList<>(passes.size());
+        for (int i = 0; i < passes.size(); i++) {
+            reportNodes.add(new ArrayList<>());
+        }
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        // while a recording wants the events of each pass, the calls of each pass are measured
+        if (new AnalysisPassEvent().isEnabled()) {
+            startProfile();
+        }
+
+        visit(root, table, false);
+        commitPassEvents(passes, getReports(), profile, table);
+
+        return collectReports();
+    }
+
+    /**
+     * Like {@link #analyze(JmmNode, SymbolTable)}, and measures the shared traversal as "passes". Each pass is also
+     * measured by itself, under its name, by adding up the calls of its visit methods in that same traversal, so the
+     * time between the calls is only part of "passes".
+     */
+    public List<Report> analyze(JmmNode root, SymbolTable table, StageMetrics metrics) {
+        startProfile();
+        metrics.measure("passes", () -> visit(root, table, false));
+        commitPassEvents(passes, getReports(), profile, table);
+
+        for (int i = 0; i < passes.size(); i++) {
+            metrics.add(new StageMetrics.Measurement(passes.get(i).getClass().getSimpleName(),
+                    profile.getWallNanos(i), profile.getCpuNanos(i), profile.getAllocatedBytes(i)));
+        }
+
+        return collectReports();
+    }
+
+    /**
+     * Commits an {@link AnalysisPassEvent} for each pass, with its totals in the profile.
+     *
+     * @param reports the reports of each pass
+     * @param profile the calls of the passes, or null if they were not measured
+     */
+    static void commitPassEvents(List<AnalysisVisitor> passes, List<List<Report>> reports, PassProfile profile,
+                                 SymbolTable table) {
+        if (profile == null) {
+            return;
+        }
+
+        for (int i = 0; i < passes.size(); i++) {
+            var event = new AnalysisPassEvent();
+            if (event.shouldCommit()) {
+                event.pass = passes.get(i).getClass().getSimpleName();
+                event.className = table.getClassName();
+                event.callCount = profile.getNumCalls(i);
+                event.passTime = profile.getWallNanos(i);
+                event.passCpuTime = profile.getCpuNanos(i);
+                event.allocatedBytes = profile.getAllocatedBytes(i);
+                event.reportCount = reports.get(i).size();
+                event.commit();
+            }
+        }
+    }
+
+    private List<List<Report>> getReports() {
+        var reports = new ArrayList<List<Report>>(passes.size());
+        for (var pass : passes) {
+            reports.add(pass.getReports());
+        }
+
+        return reports;
+    }
+
+    private List<Report> collectReports() {
+        return collectReports(passes, getReports(), Arrays.asList(failures));
+    }
+
+    /**
+     * Gives the nodes of the subtree to the passes, in preorder.
+     *
+     * @param skipMethods if the method declarations and their bodies are not visited
+     */
+    void visit(JmmNode root, SymbolTable table, boolean skipMethods) {
+        var stack = new ArrayDeque<JmmNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            if (Kind.METHOD_DECL.check(node)) {
+                if (skipMethods) {
+                    continue;
+                }
+                // a method starts where the previous one ended, so the reports are checked once per method
+                updateActivePasses();
+            }
+
+            for (var callback : getCallbacks(node)) {
+                // the callbacks are in the order of the passes
+                if (callback.pass() >= numActivePasses) {
+                    break;
+                }
+                if (failures[callback.pass()] != null) {
+                    continue;
+                }
+
+                var reports = passes.get(callback.pass()).getReports();
+                int numReports = reports.size();
+                if (profile != null) {
+                    profile.begin();
+                }
+                try {
+                    callback.method().apply(node, table);
+                } catch (Exception e) {
+                    failures[callback.pass()] = e;
+                }
+                if (profile != null) {
+                    profile.end(callback.pass());
+                }
+                for (int i = numReports; i < reports.size(); i++) {
+                    reportNodes.get(callback.pass()).add(node);
+                }
+            }
+
+            var children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+    }
+
+    /**
+     * Stops calling the passes whose reports {@link #collectReports(List, List, List)} would drop, given what the
+     * passes reported so far.
+     */
+    private void updateActivePasses() {
+        for (int i = 0; i < numActivePasses; i++) {
+            // a failed pass does not stop the analysis by itself, the one after it does
+            if (failures[i] != null) {
+                numActivePasses = Math.min(numActivePasses, i + 2);
+                return;
+            }
+
+            if (!passes.get(i).getReports().isEmpty()) {
+                numActivePasses = i + 1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Measures the calls of the passes from now on, see {@link PassProfile}.
+     */
+    PassProfile startProfile() {
+        profile = new PassProfile(passes.size());
+        return profile;
+    }
+
+    List<AnalysisVisitor> getPasses() {
+        return passes;
+    }
+
+    /**
+     * @return the node of each report of the pass, in the order of {@link AnalysisVisitor#getReports()}
+     */
+    List<JmmNode> getReportNodes(int pass) {
+        return reportNodes.get(pass);
+    }
+
+    /**
+     * @return the exception thrown by the pass, or null if it has not failed
+     */
+    Exception getFailure(int pass) {
+        return failures[pass];
+    }
+
+    private List<Callback> getCallbacks(JmmNode node) {
+        return callbacksByKind.computeIfAbsent(node.getKind(), kind -> {
+            var callbacks = new ArrayList<Callback>();
+            for (int i = 0; i < passes.size(); i++) {
+                var method = passes.get(i).getCallback(node);
+                if (method != null) {
+                    callbacks.add(new Callback(i, method));
+                }
+            }
+            return callbacks;
+        });
+    }
+
+    /**
+     * @param passes   the passes, in the order they run
+     * @param reports  the reports of each pass
+     * @param failures the exception thrown by each pass, or null
+     */
+    static List<Report> collectReports(List<AnalysisVisitor> passes, List<List<Report>> reports,
+                                       List<Exception> failures) {
+        List<Report> allReports = new ArrayList<>();
+
+        for (int i = 0; i < passes.size(); i++) {
+            // a failed pass adds an error but does not stop the analysis by itself, the next pass stops it
+            if (failures.get(i) != null) {
+                allReports.add(Report.newError(Stage.SEMANTIC,
+                        -1,
+                        -1,
+                        "Problem while executing analysis pass '" + passes.get(i).getClass() + "'",
+                        failures.get(i))
+                );
+                continue;
+            }
+
+            allReports.addAll(reports.get(i));
+            if (!allReports.isEmpty()) {
+                break;
+            }
+        }
+
+        return allReports;
+    }
+}
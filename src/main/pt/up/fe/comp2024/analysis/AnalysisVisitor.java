@@ -1,16 +1,20 @@
 package pt.up.fe.comp2024.analysis;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
 
 /**
  *
@@ -21,11 +25,48 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     public static final List<String> BOOLEAN_OPERATORS = Arrays.asList("&&", "||");
     private final List<Report> reports;
 
+    // the types of the expressions of the current analysis, shared with the other passes
+    private ExpressionTypes expressionTypes;
+
+    // filled by addVisit, which AJmmVisitor calls from its constructor, before the fields of this class are
+    // initialized, so it must not have an initializer
+    private Map<String, BiFunction<JmmNode, SymbolTable, Void>> callbacks;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
     }
 
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, SymbolTable, Void> method) {
+        super.addVisit(kind, method);
+
+        if (callbacks == null) {
+            callbacks = new HashMap<>();
+        }
+        callbacks.put(kind, method);
+    }
+
+    /**
+     * Used by {@link AnalysisEngine} to call the pass on each node, instead of the pass visiting the tree itself.
+     *
+     * @return the visit method of the node, found like the visitor does, or null if the pass ignores the node
+     */
+    public BiFunction<JmmNode, SymbolTable, Void> getCallback(JmmNode node) {
+        if (callbacks == null) {
+            return null;
+        }
+
+        for (var kind : node.getHierarchy()) {
+            var callback = callbacks.get(kind);
+            if (callback != null) {
+                return callback;
+            }
+        }
+
+        return null;
+    }
+
     protected void addReport(Report report) {
         reports.add(report);
     }
@@ -44,92 +85,30 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return getReports();
     }
 
-    protected Type getVariableType(JmmNode variable, SymbolTable table, String currentMethod) {
-        // If the value is a variable
-        if (variable.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
-            if (table.getParameters(currentMethod).stream()
-                    .anyMatch(param -> param.getName().equals(variable.get("name")))) {
-
-                for (var symbol : table.getParameters(currentMethod)) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-
-                return null;
-            }
-
-            if (table.getLocalVariables(currentMethod).stream()
-                    .anyMatch(varDecl -> varDecl.getName().equals(variable.get("name")))) {
-
-                List<Symbol> symbols = table.getLocalVariables(currentMethod);
-
-                for (var symbol : symbols) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-            }
-
-            if (table.getFields().stream()
-                    .anyMatch(param -> param.getName().equals(variable.get("name")))) {
-
-                for (var symbol : table.getFields()) {
-                    if (symbol.getName().equals(variable.get("name"))) {
-                        return symbol.getType();
-                    }
-                }
-            }
-
-        }
-
-        // If the value is const
-        if (variable.getKind().equals(Kind.CONST.toString())) {
-            if (variable.get("name").equals("true") || variable.get("name").equals("false")) {
-                return new Type("boolean", false);
-            } else {
-                return new Type("int", false);
-            }
-        }
-
-        // If the value is another node
-        if (variable.getKind().equals(Kind.BINARY_EXPR.toString())) {
-            var operator = variable.get("name");
-            if (ARITHMETIC_OPERATORS.contains(operator) && !operator.equals("<")) {
-                return new Type("int", false);
-            }
-            return new Type("boolean", false);
-        }
-
-        // If the variable is a function
-        if (variable.getKind().equals(Kind.METHOD_CALL.toString())) {
-            var methods = table.getMethods();
-
-            for (var method : methods) {
-                if (method.equals(variable.get("name"))) {
-                    return table.getReturnType(method);
-                }
-            }
-        }
-
-        if (variable.getKind().equals(Kind.NEW_OBJECT.toString())) {
-            var type = variable.getChild(0);
-            return new Type(type.get("name"), false);
-        }
-
-        if (variable.getKind().equals("ArrayAccess")) {
-            return new Type("int", false);
-        }
+    /**
+     * Finds the declaration a variable name refers to in the method: a parameter, a local variable or a field.
+     */
+    protected Optional<ResolvedSymbol> resolveVariable(String name, SymbolTable table, String currentMethod) {
+        return JmmSymbolTable.resolve(table, name, currentMethod);
+    }
 
-        if (variable.getKind().equals("Length")) {
-            return new Type("int", false);
-        }
+    /**
+     * Sets the types inferred for the current analysis, see {@link ExpressionTypes}.
+     *
+     * @param expressionTypes the types, or null to infer the type of an expression each time it is asked for
+     */
+    public void setExpressionTypes(ExpressionTypes expressionTypes) {
+        this.expressionTypes = expressionTypes;
+    }
 
-        if (variable.getKind().equals(Kind.NEW_ARRAY.toString()) || variable.getKind().equals(Kind.ARRAY_CALL.toString())) {
-            return new Type("int", true);
+    /**
+     * @return the type of the expression, or a type with an empty name if it cannot be inferred
+     */
+    protected Type getVariableType(JmmNode variable, SymbolTable table, String currentMethod) {
+        if (expressionTypes != null) {
+            return expressionTypes.get(variable, table, currentMethod);
         }
 
-
-        return new Type("", false);
+        return ExpressionTypes.inferType(variable, table, currentMethod);
     }
 }
@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The types of the expressions of an AST, inferred at most once per semantic analysis, the first time a pass asks for
+ * one, and read by the other passes and by the OLLIR generators instead of inferring them again.
+ * <p>
+ * Nodes are keyed by identity, since JmmNode does not override equals. The types belong to the analysis run that
+ * inferred them, see {@link TypedSemanticsResult}, and not to the AST or the symbol table, which can be shared with
+ * other runs. They are inferred while the passes visit the nodes, and not in a traversal of their own, which would
+ * cost as much as the inference it saves on large trees.
+ */
+public class ExpressionTypes {
+
+    private final Map<JmmNode, Type> types;
+
+    /**
+     * @param concurrent if the passes of the analysis run in several threads, see {@link ParallelAnalysisEngine}
+     */
+    public ExpressionTypes(boolean concurrent) {
+        this.types = concurrent ? new ConcurrentHashMap<>() : new IdentityHashMap<>();
+    }
+
+    /**
+     * @return the types inferred by the semantic analysis of the result, or no types if it did not keep them
+     */
+    public static ExpressionTypes of(JmmSemanticsResult semanticsResult) {
+        if (semanticsResult instanceof TypedSemanticsResult typedResult) {
+            return typedResult.getExpressionTypes();
+        }
+
+        return new ExpressionTypes(false);
+    }
+
+    /**
+     * @param currentMethod the method the expression is in
+     * @return the type of the expression, or a type with an empty name if it cannot be inferred
+     */
+    public Type get(JmmNode expr, SymbolTable table, String currentMethod) {
+        return types.computeIfAbsent(expr, node -> inferType(node, table, currentMethod));
+    }
+
+    /**
+     * @return the type of the expression, if the analysis inferred it, whose name is empty if it could not be inferred
+     */
+    public Optional<Type> find(JmmNode expr) {
+        return Optional.ofNullable(types.get(expr));
+    }
+
+    /**
+     * @return the number of expressions with a type
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * Infers the type of an expression in the given method, or a type with an empty name if it cannot be inferred.
+     */
+    static Type inferType(JmmNode variable, SymbolTable table, String currentMethod) {
+        // If the value is a variable
+        if (variable.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
+            var symbol = JmmSymbolTable.resolve(table, variable.get("name"), currentMethod);
+            if (symbol.isPresent()) {
+                return symbol.get().getType();
+            }
+        }
+
+        // If the value is const
+        if (variable.getKind().equals(Kind.CONST.toString())) {
+            if (variable.get("name").equals("true") || variable.get("name").equals("false")) {
+                return new Type("boolean", false);
+            } else {
+                return new Type("int", false);
+            }
+        }
+
+        // If the value is another node
+        if (variable.getKind().equals(Kind.BINARY_EXPR.toString())) {
+            var operator = variable.get("name");
+            if (AnalysisVisitor.ARITHMETIC_OPERATORS.contains(operator) && !operator.equals("<")) {
+                return new Type("int", false);
+            }
+            return new Type("boolean", false);
+        }
+
+        // If the variable is a function
+        if (variable.getKind().equals(Kind.METHOD_CALL.toString())) {
+            var methods = table.getMethods();
+
+            for (var method : methods) {
+                if (method.equals(variable.get("name"))) {
+                    return table.getReturnType(method);
+                }
+            }
+        }
+
+        if (variable.getKind().equals(Kind.NEW_OBJECT.toString())) {
+            var type = variable.getChild(0);
+            return new Type(type.get("name"), false);
+        }
+
+        if (variable.getKind().equals("ArrayAccess")) {
+            return new Type("int", false);
+        }
+
+        if (variable.getKind().equals("Length")) {
+            return new Type("int", false);
+        }
+
+        if (variable.getKind().equals(Kind.NEW_ARRAY.toString())
+                || variable.getKind().equals(Kind.ARRAY_CALL.toString())) {
+            return new Type("int", true);
+        }
+
+
+        return new Type("", false);
+    }
+}
@@ -7,20 +7,31 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.analysis.passes.*;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.StageMetrics;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
+    private final List<AnalysisVisitor> analysisPasses;
 
     public JmmAnalysisImpl() {
 
-        this.analysisPasses = List.of(new UndeclaredVariable(),
+        this.analysisPasses = createPasses();
+
+    }
+
+    /**
+     * @return a new instance of each analysis pass, in the order they run
+     */
+    static List<AnalysisVisitor> createPasses() {
+        return List.of(new UndeclaredVariable(),
                 new UndeclaredMethod(),
                 new InvalidBinaryOperation(),
                 new InvalidArrayAccess(),
@@ -34,37 +45,40 @@ public class JmmAnalysisImpl implements JmmAnalysis {
                 new IncompatibleReturn(),
                 new RepeatedNames()
         );
-
     }
 
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
 
         JmmNode rootNode = parserResult.getRootNode();
+        var config = parserResult.getConfig();
+
+        var metrics = CompilerConfig.getMetrics(config) ? new StageMetrics("analysis") : null;
+
+        SymbolTable table = metrics == null ? JmmSymbolTableBuilder.build(rootNode)
+                : metrics.measure("symbolTable", () -> JmmSymbolTableBuilder.build(rootNode));
+
+        // the type of each expression is inferred once, and read by the passes and the OLLIR generators
+        boolean parallel = CompilerConfig.getParallelAnalysis(config);
+        var expressionTypes = new ExpressionTypes(parallel);
+
+        List<Report> reports;
+        if (parallel) {
+            // Each group of methods is analyzed by its own instances of the passes
+            var engine = new ParallelAnalysisEngine(JmmAnalysisImpl::createPasses, ForkJoinPool.commonPool());
+            reports = metrics == null ? engine.analyze(rootNode, table, expressionTypes)
+                    : metrics.measure("parallelPasses", () -> engine.analyze(rootNode, table, expressionTypes));
+        } else {
+            // All passes share a single traversal of the AST
+            var engine = new AnalysisEngine(analysisPasses, expressionTypes);
+            reports = metrics == null ? engine.analyze(rootNode, table) : engine.analyze(rootNode, table, metrics);
+        }
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
-
-        List<Report> reports = new ArrayList<>();
-
-        int i = 1;
-        // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-                i++;
-                if (!reports.isEmpty()) break;
-            } catch (Exception e) {
-
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
-            }
+        if (metrics != null) {
+            reports = new ArrayList<>(reports);
+            reports.add(metrics.toReport(Stage.SEMANTIC));
         }
 
-        return new JmmSemanticsResult(parserResult, table, reports);
+        return new TypedSemanticsResult(parserResult, table, reports, expressionTypes);
     }
 }
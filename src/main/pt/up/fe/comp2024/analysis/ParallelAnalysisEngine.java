@@ -0,0 +1,201 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.jfr.AnalysisPassEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis passes on the methods of the class in parallel. Once the symbol table is built the bodies of the
+ * methods are independent, so they are split in contiguous groups and each group is analyzed by its own
+ * {@link AnalysisEngine}, with new instances of the passes, in a task of a fork-join pool. The nodes outside the methods
+ * are visited once, by another task.
+ * <p>
+ * This relies on the passes taking what they know about the class from the symbol table, and not from the nodes outside
+ * the methods, which the groups do not visit.
+ * <p>
+ * The reports of each pass are merged in the order of the nodes they were added on, so they are the same as the ones
+ * of a single {@link AnalysisEngine}. While a recording wants the events of each pass, each task measures the calls of
+ * its passes, and the events have the totals of all the tasks.
+ */
+public class ParallelAnalysisEngine {
+
+    /**
+     * @param profile the calls of the passes in the task, or null if they were not measured
+     */
+    private record Task(List<List<Report>> reports, List<List<JmmNode>> reportNodes, List<Exception> failures,
+                        PassProfile profile) {
+    }
+
+    private record NodeReport(JmmNode node, Report report) {
+    }
+
+    private final Supplier<List<AnalysisVisitor>> passFactory;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param passFactory creates a new instance of each pass, in the order they run
+     * @param pool        where the methods are analyzed
+     */
+    public ParallelAnalysisEngine(Supplier<List<AnalysisVisitor>> passFactory, ForkJoinPool pool) {
+        this.passFactory = passFactory;
+        this.pool = pool;
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        return analyze(root, table, null);
+    }
+
+    /**
+     * @param expressionTypes the types of the expressions, which the passes share, or null if each use infers them
+     */
+    public List<Report> analyze(JmmNode root, SymbolTable table, ExpressionTypes expressionTypes) {
+        var classDecl = root.getJmmChild(root.getNumChildren() - 1);
+        var methods = classDecl.getChildren(Kind.METHOD_DECL);
+
+        // one group per worker
+        int numGroups = Math.max(1, Math.min(methods.size(), pool.getParallelism()));
+        if (numGroups == 1) {
+            return new AnalysisEngine(passFactory.get(), expressionTypes).analyze(root, table);
+        }
+
+        boolean profiled = new AnalysisPassEvent().isEnabled();
+        var tasks = new ArrayList<Callable<Task>>(numGroups + 1);
+        tasks.add(() -> analyzeClass(root, table, expressionTypes, profiled));
+        for (int i = 0; i < numGroups; i++) {
+            var group = methods.subList(i * methods.size() / numGroups, (i + 1) * methods.size() / numGroups);
+            tasks.add(() -> analyzeGroup(group, table, expressionTypes, profiled));
+        }
+
+        var passes = passFactory.get();
+        var profile = profiled ? new PassProfile(passes.size()) : null;
+        var reports = new ArrayList<List<NodeReport>>(passes.size());
+        var failures = new ArrayList<Exception>(passes.size());
+        for (int pass = 0; pass < passes.size(); pass++) {
+            reports.add(new ArrayList<>());
+            failures.add(null);
+        }
+
+        for (var future : pool.invokeAll(tasks)) {
+            Task result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during the semantic analysis", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Could not analyze the methods", e.getCause());
+            }
+
+            for (int pass = 0; pass < passes.size(); pass++) {
+                var passReports = result.reports().get(pass);
+                var passNodes = result.reportNodes().get(pass);
+                for (int i = 0; i < passReports.size(); i++) {
+                    reports.get(pass).add(new NodeReport(passNodes.get(i), passReports.get(i)));
+                }
+
+                if (failures.get(pass) == null) {
+                    failures.set(pass, result.failures().get(pass));
+                }
+            }
+
+            if (profile != null) {
+                profile.addAll(result.profile());
+            }
+        }
+
+        var sortedReports = new ArrayList<List<Report>>(passes.size());
+        for (var passReports : reports) {
+            sortedReports.add(sortInTraversalOrder(passReports));
+        }
+
+        AnalysisEngine.commitPassEvents(passes, sortedReports, profile, table);
+
+        return AnalysisEngine.collectReports(passes, sortedReports, failures);
+    }
+
+    private Task analyzeClass(JmmNode root, SymbolTable table, ExpressionTypes expressionTypes, boolean profiled) {
+        var engine = new AnalysisEngine(passFactory.get(), expressionTypes);
+        var profile = profiled ? engine.startProfile() : null;
+        engine.visit(root, table, true);
+
+        return toTask(engine, profile);
+    }
+
+    private Task analyzeGroup(List<JmmNode> methods, SymbolTable table, ExpressionTypes expressionTypes,
+                              boolean profiled) {
+        var engine = new AnalysisEngine(passFactory.get(), expressionTypes);
+        var profile = profiled ? engine.startProfile() : null;
+        for (var method : methods) {
+            engine.visit(method, table, false);
+        }
+
+        return toTask(engine, profile);
+    }
+
+    private static Task toTask(AnalysisEngine engine, PassProfile profile) {
+        var passes = engine.getPasses();
+        var reports = new ArrayList<List<Report>>(passes.size());
+        var reportNodes = new ArrayList<List<JmmNode>>(passes.size());
+        var failures = new ArrayList<Exception>(passes.size());
+        for (int i = 0; i < passes.size(); i++) {
+            reports.add(passes.get(i).getReports());
+            reportNodes.add(engine.getReportNodes(i));
+            failures.add(engine.getFailure(i));
+        }
+
+        return new Task(reports, reportNodes, failures, profile);
+    }
+
+    /**
+     * Sorts the reports of a pass in the preorder of their nodes, which is the order a single traversal adds them. The
+     * sort is stable, so the reports of the same node keep their order.
+     */
+    private static List<Report> sortInTraversalOrder(List<NodeReport> reports) {
+        Map<JmmNode, List<Integer>> paths = new IdentityHashMap<>();
+        for (var report : reports) {
+            paths.computeIfAbsent(report.node(), ParallelAnalysisEngine::getPath);
+        }
+
+        Comparator<List<Integer>> preorder = (first, second) -> {
+            for (int i = 0; i < Math.min(first.size(), second.size()); i++) {
+                int compare = Integer.compare(first.get(i), second.get(i));
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            // an ancestor comes before its descendants
+            return Integer.compare(first.size(), second.size());
+        };
+
+        return reports.stream()
+                .sorted(Comparator.comparing(report -> paths.get(report.node()), preorder))
+                .map(NodeReport::report)
+                .toList();
+    }
+
+    /**
+     * @return the index of each node from the root to the given one among the children of its parent
+     */
+    private static List<Integer> getPath(JmmNode node) {
+        var path = new ArrayList<Integer>();
+        for (var current = node; current.getParent() != null; current = current.getParent()) {
+            path.add(current.getIndexOfSelf());
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+}
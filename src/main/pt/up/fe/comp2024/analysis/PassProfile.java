@@ -0,0 +1,99 @@
+package pt.up.fe.comp2024.analysis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Wall time, CPU time and allocated bytes of each pass, added up over the calls of its visit methods during a shared
+ * traversal. The time spent by the traversal itself is not given to any pass.
+ * <p>
+ * The counters are read from the current thread, so a profile is only used by the thread that runs the traversal.
+ * Counters the JVM does not support are -1. Reading the CPU time takes part of a microsecond, and part of that is in
+ * the CPU time of each call, so a pass with many short calls can have more CPU time than wall time.
+ */
+class PassProfile {
+
+    // the checks of the bean are done once, since the counters are read around every call
+    private final ThreadMXBean threads;
+    private final boolean cpuSupported;
+    // allocations are only counted by the HotSpot extension of the bean
+    private final com.sun.management.ThreadMXBean allocations;
+    private final boolean allocatedSupported;
+
+    private final long[] wallNanos;
+    private final long[] cpuNanos;
+    private final long[] allocatedBytes;
+    private final int[] numCalls;
+
+    // the counters at the start of the current call
+    private long startWall;
+    private long startCpu;
+    private long startAllocated;
+
+    PassProfile(int numPasses) {
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.cpuSupported = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        this.allocations = threads instanceof com.sun.management.ThreadMXBean hotSpotBean ? hotSpotBean : null;
+        this.allocatedSupported = allocations != null && allocations.isThreadAllocatedMemorySupported()
+                && allocations.isThreadAllocatedMemoryEnabled();
+
+        this.wallNanos = new long[numPasses];
+        this.cpuNanos = new long[numPasses];
+        this.allocatedBytes = new long[numPasses];
+        this.numCalls = new int[numPasses];
+    }
+
+    /**
+     * Starts measuring a call of a visit method.
+     */
+    void begin() {
+        startAllocated = allocatedSupported ? allocations.getCurrentThreadAllocatedBytes() : -1;
+        startCpu = cpuSupported ? threads.getCurrentThreadCpuTime() : -1;
+        startWall = System.nanoTime();
+    }
+
+    /**
+     * Gives the call started by {@link #begin()} to the pass.
+     */
+    void end(int pass) {
+        wallNanos[pass] += System.nanoTime() - startWall;
+        if (cpuSupported) {
+            cpuNanos[pass] += threads.getCurrentThreadCpuTime() - startCpu;
+        }
+        if (allocatedSupported) {
+            allocatedBytes[pass] += allocations.getCurrentThreadAllocatedBytes() - startAllocated;
+        }
+        numCalls[pass]++;
+    }
+
+    /**
+     * Adds the totals of a profile of the same passes, e.g. taken by another thread.
+     */
+    void addAll(PassProfile other) {
+        for (int pass = 0; pass < numCalls.length; pass++) {
+            wallNanos[pass] += other.wallNanos[pass];
+            cpuNanos[pass] += other.cpuNanos[pass];
+            allocatedBytes[pass] += other.allocatedBytes[pass];
+            numCalls[pass] += other.numCalls[pass];
+        }
+    }
+
+    long getWallNanos(int pass) {
+        return wallNanos[pass];
+    }
+
+    long getCpuNanos(int pass) {
+        return cpuSupported ? cpuNanos[pass] : -1;
+    }
+
+    long getAllocatedBytes(int pass) {
+        return allocatedSupported ? allocatedBytes[pass] : -1;
+    }
+
+    /**
+     * @return how many times the visit methods of the pass were called
+     */
+    int getNumCalls(int pass) {
+        return numCalls[pass];
+    }
+}
@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+
+/**
+ * A {@link JmmSemanticsResult} that also keeps the types of the expressions inferred by the analysis, so that the
+ * OLLIR generators use them instead of inferring them again.
+ */
+public class TypedSemanticsResult extends JmmSemanticsResult {
+
+    private final ExpressionTypes expressionTypes;
+
+    public TypedSemanticsResult(JmmParserResult parserResult, SymbolTable symbolTable, List<Report> reports,
+                                ExpressionTypes expressionTypes) {
+        super(parserResult, symbolTable, reports);
+        this.expressionTypes = expressionTypes;
+    }
+
+    public ExpressionTypes getExpressionTypes() {
+        return expressionTypes;
+    }
+}
@@ -49,25 +49,10 @@ public class ExpressionCondition extends AnalysisVisitor {
 
         // If it is a variable
         if (condition.getKind().equals(Kind.VAR_REF_EXPR.toString())) {
-            for (var symbol : table.getFields()) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
-            }
-
-            for (var symbol : table.getParameters(currentMethod)) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
-            }
-
-            for (var symbol : table.getLocalVariables(currentMethod)) {
-                if (symbol.getName().equals(condition.get("name")) && symbol.getType().getName().equals("boolean")
-                        && !symbol.getType().isArray()) {
-                    return null;
-                }
+            var symbol = resolveVariable(condition.get("name"), table, currentMethod);
+            if (symbol.isPresent() && symbol.get().getType().getName().equals("boolean")
+                    && !symbol.get().getType().isArray()) {
+                return null;
             }
         }
 
@@ -36,29 +36,9 @@ public class InvalidArrayAccess extends AnalysisVisitor {
 
         var arrayAccess = arrayExpr.getChild(1);
 
-        for (var param : table.getFields()) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-        }
-
-        for (var param : table.getParameters(currentMethod)) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-        }
-
-        for (var param : table.getLocalVariables(currentMethod)) {
-            if (param.getName().equals(arrayNode.get("name"))) {
-                if (param.getType().isArray()) {
-                    return null;
-                }
-            }
-
+        var symbol = resolveVariable(arrayNode.get("name"), table, currentMethod);
+        if (symbol.isPresent() && symbol.get().getType().isArray()) {
+            return null;
         }
 
         var message = String.format("'%s' is not an array", arrayNode.get("name"));
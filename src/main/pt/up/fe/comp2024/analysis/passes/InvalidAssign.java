@@ -19,31 +19,32 @@ public class InvalidAssign extends AnalysisVisitor {
     public static final List<String> ARITHMETIC_OPERATORS = Arrays.asList("*", "/", "-", "+");
 
     public static final List<String> BOOLEAN_OPERATORS = Arrays.asList("||", "&&", "<", "!");
-    public List<String> imports = new ArrayList<String>();
     private String currentMethod;
-    private String superClass;
-    private boolean isExtended = false;
 
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
         addVisit(Kind.ASSIGN_STMT, this::assignVariable);
-        addVisit(Kind.CLASS_DECL, this::visitClass);
-        addVisit(Kind.IMPORT_DECLARATION, this::visitImport);
     }
 
-    private Void visitImport(JmmNode declaration, SymbolTable table) {
-
-        String lib = declaration.get("lib");
-
-        int lastIndex = lib.lastIndexOf(".");
-        if (lastIndex == -1) {
-            imports.add(lib.substring(1, lib.length() - 1));
-            return null; // If no period found, return the original string
-        } else {
-            imports.add(lib.substring(lastIndex + 1)); // Return substring from last period to end
-            return null;
+    /**
+     * The imports come from the symbol table, instead of the import declarations, so that the pass can analyze a
+     * method without visiting the rest of the class.
+     *
+     * @return the names of the imported classes
+     */
+    private static List<String> getImportedNames(SymbolTable table) {
+        var imports = new ArrayList<String>();
+        for (var lib : table.getImports()) {
+            int lastIndex = lib.lastIndexOf(".");
+            if (lastIndex == -1) {
+                imports.add(lib.substring(1, lib.length() - 1));
+            } else {
+                imports.add(lib.substring(lastIndex + 1)); // Return substring from last period to end
+            }
         }
+
+        return imports;
     }
 
 
@@ -52,18 +53,6 @@ public class InvalidAssign extends AnalysisVisitor {
         return null;
     }
 
-    private Void visitClass(JmmNode classDecl, SymbolTable table) {
-        try {
-            if (classDecl.get("superClass") != null) {
-                isExtended = true;
-                superClass = classDecl.get("superClass");
-            }
-            return null;
-        } catch (NullPointerException e) {
-            return null;
-        }
-    }
-
     private Void assignVariable(JmmNode assignExpr, SymbolTable table) {
 
         var assigned = assignExpr.getChild(0);
@@ -150,12 +139,12 @@ public class InvalidAssign extends AnalysisVisitor {
 
         // imported class
         if (assigneeType.getName().isEmpty()) return null;
-        if (isExtended) {
-            if (superClass.equals(assignedType.getName())) {
-                return null;
-            }
+        var superClass = table.getSuper();
+        if (!superClass.isEmpty() && superClass.equals(assignedType.getName())) {
+            return null;
         }
 
+        var imports = getImportedNames(table);
         if (imports.contains(assigneeType.getName()) && imports.contains(assignedType.getName())) {
             return null;
         }
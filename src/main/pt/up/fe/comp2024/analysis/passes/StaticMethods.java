@@ -7,6 +7,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.SymbolScope;
 import pt.up.fe.specs.util.SpecsCheck;
 
 
@@ -35,22 +36,16 @@ public class StaticMethods extends AnalysisVisitor {
         } catch (NullPointerException e) {
         }
 
-        for (var field : table.getFields()) {
-            if (field.getName().equals(varExpr.get("name"))) {
-
-                for (var variable : table.getLocalVariables(currentMethod)) {
-                    if (variable.getName().equals(varExpr.get("name"))) return null;
-                }
-                var message = "Can't use fields  on static methods";
-                addReport(Report.newError(
-                        Stage.SEMANTIC,
-                        NodeUtils.getLine(varExpr),
-                        NodeUtils.getColumn(varExpr),
-                        message,
-                        null)
-                );
-
-            }
+        var symbol = resolveVariable(varExpr.get("name"), table, currentMethod);
+        if (symbol.isPresent() && symbol.get().scope() == SymbolScope.FIELD) {
+            var message = "Can't use fields  on static methods";
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    NodeUtils.getLine(varExpr),
+                    NodeUtils.getColumn(varExpr),
+                    message,
+                    null)
+            );
         }
         return null;
     }
@@ -2,6 +2,8 @@ package pt.up.fe.comp2024.ast;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
+import java.util.ArrayDeque;
+
 public class NodeUtils {
 
     public static int getLine(JmmNode node) {
@@ -24,5 +26,22 @@ public class NodeUtils {
         return Boolean.parseBoolean(line);
     }
 
+    /**
+     * @return the number of nodes of the subtree, including its root
+     */
+    public static int countNodes(JmmNode root) {
+        int count = 0;
+
+        var stack = new ArrayDeque<JmmNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            count++;
+            node.getChildren().forEach(stack::push);
+        }
+
+        return count;
+    }
+
 
 }
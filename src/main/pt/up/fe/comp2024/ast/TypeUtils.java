@@ -3,6 +3,8 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.ExpressionTypes;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 public class TypeUtils {
 
@@ -35,6 +37,18 @@ public class TypeUtils {
         return type;
     }
 
+    /**
+     * Like {@link #getExprType(JmmNode, SymbolTable)}, but reads the type inferred by the semantic analysis when it
+     * knows it.
+     *
+     * @param types the types inferred by the semantic analysis
+     */
+    public static Type getExprType(JmmNode expr, SymbolTable table, ExpressionTypes types) {
+        return types.find(expr)
+                .filter(type -> !type.getName().isEmpty())
+                .orElseGet(() -> getExprType(expr, table));
+    }
+
     private static Type getBinExprType(JmmNode binaryExpr) {
         // TODO: Simple implementation that needs to be expanded
 
@@ -53,17 +67,11 @@ public class TypeUtils {
 
         var currentMethod = varRefExpr.getAncestor(Kind.METHOD_DECL).get().get("name");
 
-        for (var variable : table.getLocalVariables(currentMethod)) {
-            if (variable.getName().equals(varRefExpr.get("name"))) {
-                return variable.getType();
-            }
+        var symbol = JmmSymbolTable.resolve(table, varRefExpr.get("name"), currentMethod);
+        if (symbol.isPresent()) {
+            return symbol.get().getType();
         }
 
-        for (var variable : table.getFields()) {
-            if (variable.getName().equals(varRefExpr.get("name"))) {
-                return variable.getType();
-            }
-        }
         return new Type(INT_TYPE_NAME, false);
     }
 
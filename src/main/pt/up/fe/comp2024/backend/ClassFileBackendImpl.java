@@ -0,0 +1,25 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.classfile.ClassFileGenerator;
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
+
+/**
+ * Backend that writes the class file directly, instead of generating Jasmin code that has to be assembled.
+ * <p>
+ * To use it, set BackendClass in config.properties to this class. Only this backend writes Java 8 class files with
+ * StackMapTable frames, which the JVM checks with the type-checking verifier; the default {@link JasminBackendImpl}
+ * writes the older version of the bundled Jasmin assembler, which cannot write the frames.
+ */
+public class ClassFileBackendImpl implements JasminBackend {
+
+    @Override
+    public JasminResult toJasmin(OllirResult ollirResult) {
+        var classFileGenerator = new ClassFileGenerator(ollirResult);
+        var classBytes = classFileGenerator.build();
+        return new ClassFileResult(ollirResult, classBytes, classFileGenerator.getReports());
+    }
+
+}
@@ -0,0 +1,524 @@
+package pt.up.fe.comp2024.backend;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.backend.classfile.ClassFileResult;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Runs the code produced by the backend inside the current JVM, instead of writing a .j file, assembling it and
+ * launching a new JVM like {@link JasminResult#run()}.
+ * <p>
+ * The class is assembled in memory and defined in a new class loader for each run, which only sees the given classpath
+ * (the Java-- libraries, e.g. io) and the JDK, so runs do not share static state with each other or with the compiler.
+ * <p>
+ * While a program runs, System.out, System.err and System.in are replaced by streams that send what the thread of a
+ * run, and the threads it starts, read and write to the buffers of that run, and everything else to the streams that
+ * were there before, which encode the text in their own charset. The streams are put back when the last program that
+ * is running ends, unless something else replaced them in the meantime. Runs can overlap, and a program that is still
+ * running after its timeout cannot write into other runs.
+ * <p>
+ * There is no safe way to stop the thread of a program that times out: it keeps running as a daemon, and its class
+ * loader is never closed, so both leak until the program ends or the JVM exits. What it prints after the timeout is
+ * dropped.
+ */
+public class InProcessRunner {
+
+    private static final long DEFAULT_TIMEOUT_MS = 5_000;
+
+    // the streams of the run of the current thread, inherited by the threads the program starts
+    private static final InheritableThreadLocal<RunStreams> CURRENT_RUN = new InheritableThreadLocal<>();
+
+    // the programs that are still running, including the ones that timed out, while there is one the streams are routed
+    private static int numRunning = 0;
+    private static RoutedPrintStream routedOut;
+    private static RoutedPrintStream routedErr;
+    private static RoutedInputStream routedIn;
+
+    private final URL[] classpath;
+    private final long timeoutMs;
+
+    /**
+     * @param classpath directories and jars with the classes the program uses
+     */
+    public InProcessRunner(List<String> classpath) {
+        this(classpath, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param classpath directories and jars with the classes the program uses
+     * @param timeoutMs how long main may run before the run is given up
+     */
+    public InProcessRunner(List<String> classpath, long timeoutMs) {
+        var urls = new ArrayList<URL>();
+        for (var path : classpath) {
+            try {
+                urls.add(new File(path).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath entry '" + path + "'", e);
+            }
+        }
+
+        this.classpath = urls.toArray(URL[]::new);
+        this.timeoutMs = timeoutMs;
+    }
+
+    public RunResult run(JasminResult jasminResult) {
+        return run(jasminResult, List.of(), null);
+    }
+
+    /**
+     * Assembles the class of the result in memory and invokes its main method.
+     *
+     * @param jasminResult the class to run, either Jasmin code or a {@link ClassFileResult}
+     * @param args         arguments given to main
+     * @param input        what the program reads from stdin, or null for no input
+     */
+    public RunResult run(JasminResult jasminResult, List<String> args, String input) {
+        long start = System.nanoTime();
+        var classBytes = assemble(jasminResult);
+        var assembleTime = Duration.ofNanos(System.nanoTime() - start);
+
+        var loader = new ProgramClassLoader(classpath, jasminResult.getClassName(), classBytes);
+        var streams = new RunStreams(input == null ? new byte[0] : input.getBytes(StandardCharsets.UTF_8));
+        routeStreams();
+
+        Throwable[] exception = {null};
+        var runner = new Thread(() -> {
+            CURRENT_RUN.set(streams);
+            try {
+                var main = loader.loadClass(jasminResult.getClassName()).getMethod("main", String[].class);
+                main.invoke(null, (Object) args.toArray(String[]::new));
+            } catch (InvocationTargetException e) {
+                exception[0] = e.getCause();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                exception[0] = e;
+            } finally {
+                // a program that timed out only stops using the streams here, after the run has returned
+                restoreStreams();
+            }
+        }, "jmm-" + jasminResult.getClassName());
+        // a program that does not stop must not keep the compiler alive
+        runner.setDaemon(true);
+        runner.setContextClassLoader(loader);
+
+        Duration runTime;
+        boolean timedOut;
+        try {
+            start = System.nanoTime();
+            runner.start();
+            runner.join(timeoutMs);
+            runTime = Duration.ofNanos(System.nanoTime() - start);
+            timedOut = runner.isAlive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running " + jasminResult.getClassName(), e);
+        }
+
+        if (timedOut) {
+            // the thread cannot be stopped, so it is only asked to, and what it prints from now on is dropped
+            streams.detached = true;
+            runner.interrupt();
+        } else {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        streams.out.flush();
+        streams.err.flush();
+        return new RunResult(streams.stdout.toString(StandardCharsets.UTF_8),
+                streams.stderr.toString(StandardCharsets.UTF_8), exception[0], timedOut, assembleTime, runTime);
+    }
+
+    /**
+     * Assembles the class of the result and defines it in a new class loader, with the same classpath as the runs, so
+     * that its methods can be called many times, e.g. to measure how fast the code is. Nothing is redirected.
+     *
+     * @return the class of the program
+     */
+    public Class<?> load(JasminResult jasminResult) {
+        var loader = new ProgramClassLoader(classpath, jasminResult.getClassName(), assemble(jasminResult));
+        try {
+            return loader.loadClass(jasminResult.getClassName());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Could not load " + jasminResult.getClassName(), e);
+        }
+    }
+
+    /**
+     * @return the bytes of the class file of the result
+     */
+    public static byte[] assemble(JasminResult jasminResult) {
+        if (jasminResult instanceof ClassFileResult classFileResult) {
+            return classFileResult.getClassBytes();
+        }
+
+        try {
+            var classFile = new ClassFile();
+            classFile.readJasmin(new StringReader(jasminResult.getJasminCode()), jasminResult.getClassName() + ".j",
+                    true);
+            if (classFile.errorCount() > 0) {
+                throw new RuntimeException("Found " + classFile.errorCount() + " errors while assembling the Jasmin "
+                        + "code of " + jasminResult.getClassName());
+            }
+
+            var bytes = new ByteArrayOutputStream();
+            classFile.write(bytes);
+            return bytes.toByteArray();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Could not assemble the Jasmin code of " + jasminResult.getClassName(), e);
+        }
+    }
+
+    /**
+     * Replaces System.out, System.err and System.in by the routed streams, unless they are already in place, e.g.
+     * because another program is running. The streams found there become the ones of the threads that are not running
+     * a program.
+     */
+    private static synchronized void routeStreams() {
+        numRunning++;
+
+        if (System.out != routedOut) {
+            routedOut = new RoutedPrintStream(System.out, streams -> streams.out);
+            System.setOut(routedOut);
+        }
+        if (System.err != routedErr) {
+            routedErr = new RoutedPrintStream(System.err, streams -> streams.err);
+            System.setErr(routedErr);
+        }
+        if (System.in != routedIn) {
+            routedIn = new RoutedInputStream(System.in);
+            System.setIn(routedIn);
+        }
+    }
+
+    /**
+     * Puts back the streams replaced by {@link #routeStreams()} when the last program that is running ends, except the
+     * ones that something else replaced in the meantime.
+     */
+    private static synchronized void restoreStreams() {
+        if (--numRunning > 0) {
+            return;
+        }
+
+        if (System.out == routedOut) {
+            System.setOut(routedOut.fallback);
+        }
+        if (System.err == routedErr) {
+            System.setErr(routedErr.fallback);
+        }
+        if (System.in == routedIn) {
+            System.setIn(routedIn.fallback);
+        }
+
+        routedOut = null;
+        routedErr = null;
+        routedIn = null;
+    }
+
+    /**
+     * What a run reads and writes.
+     */
+    private static class RunStreams {
+
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        // the text of the run is encoded in UTF-8, which is how the result decodes it
+        final PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        final PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        final InputStream stdin;
+        // set when the run times out, after which the program reads nothing and its output is dropped
+        volatile boolean detached = false;
+
+        RunStreams(byte[] input) {
+            stdin = new ByteArrayInputStream(input);
+        }
+    }
+
+    /**
+     * Prints to a stream of the run of the current thread, or to the fallback stream if there is none. Every method is
+     * forwarded, so the text is encoded by the stream it ends up in, in the charset of that stream.
+     */
+    private static class RoutedPrintStream extends PrintStream {
+
+        // where the output of a thread of a run that timed out goes
+        private static final PrintStream DROPPED = new PrintStream(OutputStream.nullOutputStream());
+
+        private final PrintStream fallback;
+        private final Function<RunStreams, PrintStream> select;
+
+        RoutedPrintStream(PrintStream fallback, Function<RunStreams, PrintStream> select) {
+            // nothing is written to the stream of the superclass, since every method is forwarded
+            super(OutputStream.nullOutputStream());
+            this.fallback = fallback;
+            this.select = select;
+        }
+
+        /**
+         * @return the stream to print to, which discards everything if the output of the current thread is dropped
+         */
+        private PrintStream getTarget() {
+            var streams = CURRENT_RUN.get();
+            if (streams == null) {
+                return fallback;
+            }
+
+            return streams.detached ? DROPPED : select.apply(streams);
+        }
+
+        @Override
+        public void write(int b) {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            getTarget().write(buf, off, len);
+        }
+
+        @Override
+        public void write(byte[] buf) throws IOException {
+            getTarget().write(buf);
+        }
+
+        @Override
+        public void writeBytes(byte[] buf) {
+            getTarget().writeBytes(buf);
+        }
+
+        @Override
+        public void flush() {
+            getTarget().flush();
+        }
+
+        /**
+         * Only flushes, a program that closes System.out does not close the stream of the compiler or of its run.
+         */
+        @Override
+        public void close() {
+            flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return getTarget().checkError();
+        }
+
+        @Override
+        public void print(boolean b) {
+            getTarget().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            getTarget().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            getTarget().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            getTarget().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            getTarget().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            getTarget().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            getTarget().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            getTarget().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            getTarget().print(obj);
+        }
+
+        @Override
+        public void println() {
+            getTarget().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            getTarget().println(x);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            getTarget().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            getTarget().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            getTarget().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            getTarget().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            getTarget().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            getTarget().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            getTarget().append(c);
+            return this;
+        }
+    }
+
+    /**
+     * Reads the input of the run of the current thread, or the fallback stream if there is none.
+     */
+    private static class RoutedInputStream extends InputStream {
+
+        private final InputStream fallback;
+
+        RoutedInputStream(InputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var source = getSource();
+            return source == null ? -1 : source.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var source = getSource();
+            return source == null ? -1 : source.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            var source = getSource();
+            return source == null ? 0 : source.available();
+        }
+
+        private InputStream getSource() {
+            var streams = CURRENT_RUN.get();
+            if (streams == null) {
+                return fallback;
+            }
+
+            return streams.detached ? null : streams.stdin;
+        }
+    }
+
+    /**
+     * Defines the class of the program from its bytes, and finds everything else in the classpath or the JDK.
+     */
+    private static class ProgramClassLoader extends URLClassLoader {
+
+        private final String className;
+        private final byte[] classBytes;
+
+        ProgramClassLoader(URL[] classpath, String className, byte[] classBytes) {
+            // the platform loader sees the JDK but not the classes of the compiler
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            this.className = className;
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(className)) {
+                return defineClass(name, classBytes, 0, classBytes.length);
+            }
+
+            return super.findClass(name);
+        }
+    }
+}
@@ -3,14 +3,46 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.jfr.BackendEvent;
+import pt.up.fe.comp2024.utils.StageMetrics;
+
+import java.util.ArrayList;
 
 public class JasminBackendImpl implements JasminBackend {
 
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
         var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
-        return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+        var metrics = CompilerConfig.getMetrics(ollirResult.getConfig()) ? new StageMetrics("backend") : null;
+
+        var event = new BackendEvent();
+        event.begin();
+
+        var out = new StringBuilder();
+        if (metrics == null) {
+            jasminGenerator.build(out);
+        } else {
+            metrics.measure("jasminGenerator", () -> jasminGenerator.build(out));
+        }
+        var jasminCode = out.toString();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = ollirResult.getOllirClass().getClassName();
+            event.methodCount = ollirResult.getOllirClass().getNumMethods();
+            event.instructionCount = jasminGenerator.getNumInstructions();
+            event.commit();
+        }
+
+        if (metrics == null) {
+            return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+        }
+
+        var reports = new ArrayList<>(jasminGenerator.getReports());
+        reports.add(metrics.toReport(Stage.GENERATION));
+        return new JasminResult(ollirResult, jasminCode, reports);
     }
 
 }
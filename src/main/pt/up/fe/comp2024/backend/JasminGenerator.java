@@ -4,13 +4,22 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.backend.peephole.JasminInstruction;
+import pt.up.fe.comp2024.backend.peephole.PeepholeOptimizer;
+import pt.up.fe.comp2024.optimization.InstructionUtils;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.StringJoiner;
 
 /**
  * Generates Jasmin code from an OllirResult.
@@ -28,6 +37,9 @@ public class JasminGenerator {
     String code;
     Method currentMethod;
     boolean needsPop = false;
+    int labelCounter = 0;
+    int numInstructions = 0;
+    private final PeepholeOptimizer peephole;
 
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
@@ -35,9 +47,9 @@ public class JasminGenerator {
         reports = new ArrayList<>();
         code = null;
         currentMethod = null;
+        peephole = CompilerConfig.getOptimize(ollirResult.getConfig()) ? new PeepholeOptimizer() : null;
 
         this.generators = new FunctionClassMap<>();
-        generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Field.class, this::generateField);
         generators.put(Method.class, this::generateMethod);
         generators.put(AssignInstruction.class, this::generateAssign);
@@ -60,21 +72,39 @@ public class JasminGenerator {
         return reports;
     }
 
+    /**
+     * @return the number of instructions generated so far, i.e. without directives, labels or comments
+     */
+    public int getNumInstructions() {
+        return numInstructions;
+    }
+
     public String build() {
 
         // This way, build is idempotent
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            var builder = new StringBuilder();
+            build(builder);
+            code = builder.toString();
         }
 
-        // for debug
-        System.out.println(code);
         return code;
     }
 
-    private String generateClassUnit(ClassUnit classUnit) {
+    /**
+     * Writes the Jasmin code of the class to the given output, one method at a time.
+     *
+     * @param out where the code is appended, an IOException it throws is rethrown as an UncheckedIOException
+     */
+    public void build(Appendable out) {
+        try {
+            generateClassUnit(ollirResult.getOllirClass(), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        var code = new StringBuilder();
+    private void generateClassUnit(ClassUnit classUnit, Appendable code) throws IOException {
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
@@ -103,6 +133,8 @@ public class JasminGenerator {
                 """, superClassName
         );
         code.append(defaultConstructor);
+        // aload_0, invokespecial and return
+        numInstructions += 3;
 
         // generate code for all other methods
         for (var method : ollirResult.getOllirClass().getMethods()) {
@@ -117,7 +149,11 @@ public class JasminGenerator {
             code.append(generators.apply(method));
         }
 
-        return code.toString();
+        if (peephole != null && peephole.getTotalHits() > 0) {
+            var hits = new StringJoiner(", ");
+            peephole.getHits().forEach((pattern, count) -> hits.add(pattern.getName() + " " + count));
+            reports.add(Report.newLog(Stage.GENERATION, -1, -1, "Peephole optimizations: " + hits, null));
+        }
     }
 
     private String convertImport(String path) {
@@ -202,18 +238,40 @@ public class JasminGenerator {
         var returnType = convertType(method.getReturnType());
         code.append(returnType).append(NL);
 
-        // Add limits
-        code.append(TAB).append(".limit stack 20").append(NL);
-        // code.append(TAB).append(".limit stack 99").append(NL);
-        // code.append(TAB).append(".limit locals 99").append(NL);
-        code.append(TAB).append(generateLimitLocals()).append(NL);
+        // index the labels by instruction, instead of searching all of them for each instruction
+        Map<Instruction, List<String>> labels = new IdentityHashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>(1)).add(label.getKey());
+        }
 
+        // temporaries read by a single instruction can be folded into it, e.g. a comparison into the branch
+        Map<String, Integer> useCounts = new HashMap<>();
         for (var inst : method.getInstructions()) {
+            for (var use : InstructionUtils.getUses(inst)) {
+                useCounts.merge(use.getName(), 1, Integer::sum);
+            }
+        }
+
+        // the lines of the body, labels and instructions without indentation
+        var body = new ArrayList<String>();
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+
             // check for labels
-            method.getLabels().entrySet().stream()
-                    .filter(entry -> entry.getValue().equals(inst))
-                    .findFirst()
-                    .ifPresent(entry -> code.append(String.format("%s:\n", entry.getKey())));
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                body.add(label + ":");
+            }
+
+            // the next instruction can only be merged into this one if nothing jumps to it
+            if (i + 1 < instructions.size() && !labels.containsKey(instructions.get(i + 1))) {
+                var fused = generateFused(inst, instructions.get(i + 1), useCounts);
+                if (fused != null) {
+                    addLines(body, fused);
+                    i++;
+                    continue;
+                }
+            }
 
             // if an invoke virtual or invoke static instruction is being called
             // from here, it will need pop, since that means it's not in an assignment
@@ -226,10 +284,36 @@ public class JasminGenerator {
                     }
                 }
             }
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
+            addLines(body, generators.apply(inst));
+        }
+
+        // clean up the redundancies of the instruction-by-instruction translation, e.g. stores and reloads of temporaries
+        if (peephole != null) {
+            var jasminCode = JasminInstruction.parse(body);
+            if (peephole.optimize(jasminCode)) {
+                body.clear();
+                for (var inst : jasminCode) {
+                    body.add(inst.toString());
+                }
+            }
+        }
+
+        // Add limits, the stack size comes from simulating the generated instructions
+        var stackSimulator = new StackSimulator(methodName, body);
+        reports.addAll(stackSimulator.getReports());
+        code.append(TAB).append(".limit stack ").append(stackSimulator.getMaxStack()).append(NL);
+        code.append(TAB).append(generateLimitLocals()).append(NL);
 
-            code.append(instCode);
+        for (var line : body) {
+            // labels are not indented, like the ones of the method
+            if (line.endsWith(":")) {
+                code.append(line).append(NL);
+            } else {
+                code.append(TAB).append(line).append(NL);
+                if (!line.startsWith(";")) {
+                    numInstructions++;
+                }
+            }
         }
         code.append(".end method\n");
 
@@ -239,9 +323,164 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * Adds the lines of the code of an instruction to the body of the method, without indentation or blank lines.
+     */
+    private static void addLines(List<String> body, String instCode) {
+        int start = 0;
+        while (start < instCode.length()) {
+            int end = instCode.indexOf('\n', start);
+            if (end == -1) {
+                end = instCode.length();
+            }
+
+            int firstChar = start;
+            while (firstChar < end && Character.isWhitespace(instCode.charAt(firstChar))) {
+                firstChar++;
+            }
+            int lastChar = end;
+            while (lastChar > firstChar && Character.isWhitespace(instCode.charAt(lastChar - 1))) {
+                lastChar--;
+            }
+            if (firstChar < lastChar) {
+                body.add(instCode.substring(firstChar, lastChar));
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Generates a pair of instructions where the first one computes a temporary that only the second one reads.
+     *
+     * @return the code of both instructions, or null if they cannot be merged
+     */
+    private String generateFused(Instruction inst, Instruction next, Map<String, Integer> useCounts) {
+        if (!(inst instanceof AssignInstruction assign) || !(assign.getRhs() instanceof BinaryOpInstruction binaryOp)
+                || !(assign.getDest() instanceof Operand temp) || temp instanceof ArrayOperand
+                || useCounts.getOrDefault(temp.getName(), 0) != 1) {
+            return null;
+        }
+
+        // t = a < b; if (t) goto L  ->  if_icmplt L
+        if (next instanceof SingleOpCondInstruction branch
+                && branch.getCondition().getSingleOperand() instanceof Operand condition
+                && condition.getName().equals(temp.getName())
+                && isComparison(binaryOp.getOperation().getOpType())) {
+            return generateCompareBranch(binaryOp, branch.getLabel());
+        }
+
+        // t = x + 1; x = t  ->  iinc x 1
+        if (next instanceof AssignInstruction copy
+                && copy.getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand source
+                && source.getName().equals(temp.getName())
+                && copy.getDest() instanceof Operand dest) {
+            return generateIinc(dest, binaryOp);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return an iinc instruction if the operation adds a small constant to the destination variable, null otherwise
+     */
+    private String generateIinc(Element dest, BinaryOpInstruction binaryOp) {
+        if (!(dest instanceof Operand destOperand) || dest instanceof ArrayOperand) {
+            return null;
+        }
+
+        var descriptor = currentMethod.getVarTable().get(destOperand.getName());
+        if (descriptor == null || descriptor.getScope() == VarScope.FIELD
+                || descriptor.getVarType().getTypeOfElement() != ElementType.INT32) {
+            return null;
+        }
+
+        var opType = binaryOp.getOperation().getOpType();
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        Integer increment = null;
+        if (opType == OperationType.ADD && isVariable(left, destOperand)) {
+            increment = InstructionUtils.getIntLiteral(right);
+        } else if (opType == OperationType.ADD && isVariable(right, destOperand)) {
+            increment = InstructionUtils.getIntLiteral(left);
+        } else if (opType == OperationType.SUB && isVariable(left, destOperand)) {
+            var literal = InstructionUtils.getIntLiteral(right);
+            increment = literal == null ? null : -literal;
+        }
+
+        // the short form of iinc takes a one byte register and a one byte signed constant
+        int reg = descriptor.getVirtualReg();
+        if (increment == null || increment < Byte.MIN_VALUE || increment > Byte.MAX_VALUE || reg > 0xFF) {
+            return null;
+        }
+
+        return "iinc " + reg + " " + increment + NL;
+    }
+
+    private static boolean isVariable(Element element, Operand variable) {
+        return element instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && !element.isLiteral() && operand.getName().equals(variable.getName());
+    }
+
+    private static boolean isComparison(OperationType opType) {
+        return switch (opType) {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Jumps to the label if the comparison is true. Comparisons with zero use the single operand forms, e.g. iflt.
+     */
+    private String generateCompareBranch(BinaryOpInstruction comparison, String label) {
+        var left = comparison.getLeftOperand();
+        var right = comparison.getRightOperand();
+        var condition = switch (comparison.getOperation().getOpType()) {
+            case LTH -> "lt";
+            case GTH -> "gt";
+            case LTE -> "le";
+            case GTE -> "ge";
+            case EQ -> "eq";
+            case NEQ -> "ne";
+            default -> throw new NotImplementedException(comparison.getOperation().getOpType());
+        };
+
+        if (isZero(right)) {
+            return generators.apply(left) + "if" + condition + " " + label + NL;
+        }
+
+        if (isZero(left)) {
+            // 0 < x is the same as x > 0
+            var swapped = switch (condition) {
+                case "lt" -> "gt";
+                case "gt" -> "lt";
+                case "le" -> "ge";
+                case "ge" -> "le";
+                default -> condition;
+            };
+            return generators.apply(right) + "if" + swapped + " " + label + NL;
+        }
+
+        return generators.apply(left) + generators.apply(right) + "if_icmp" + condition + " " + label + NL;
+    }
+
+    private static boolean isZero(Element element) {
+        var value = InstructionUtils.getIntLiteral(element);
+        return value != null && value == 0;
+    }
+
     private String generateAssign(AssignInstruction assign) {
         var code = new StringBuilder();
 
+        // x = x + 1 can be done without going through the stack
+        if (assign.getRhs() instanceof BinaryOpInstruction binaryOp) {
+            var iinc = generateIinc(assign.getDest(), binaryOp);
+            if (iinc != null) {
+                return iinc;
+            }
+        }
+
         // if right hand side of the expression is a call instruction,
         // and if it is an invokevirtual or static, we don't need pop,
         // since it's in an assignment
@@ -258,10 +497,6 @@ public class JasminGenerator {
                 needsPop = false;
             }
         }
-        // generate code for loading what's on the right
-        code.append(generators.apply(rhs));
-
-        // store value in the stack in destination
         var lhs = assign.getDest();
 
         if (!(lhs instanceof Operand operand)) {
@@ -273,16 +508,19 @@ public class JasminGenerator {
 
         String inst;
         String end = reg > 3 ? " " : "_";
-        if (lhs instanceof ArrayOperand) { // esta merda n funciona** (funciona agora)
+        if (lhs instanceof ArrayOperand) {
+            // iastore takes the array and the index below the value
             code.append(String.format(
-                    "aload%s%s\n%s%s",
+                    "aload%s%s\n%s",
                     end,
                     reg,
-                    generators.apply(((ArrayOperand) lhs).getIndexOperands().get(0)),
-                    generators.apply(rhs)
+                    generators.apply(((ArrayOperand) lhs).getIndexOperands().get(0))
             ));
         }
 
+        // generate code for loading what's on the right
+        code.append(generators.apply(rhs));
+
         switch (varType) {
             case INT32, BOOLEAN: {
                 if (currentMethod.getVarTable().get(operand.getName()).getVarType().getTypeOfElement() == ElementType.ARRAYREF) {
@@ -440,26 +678,13 @@ public class JasminGenerator {
     }
 
     private String generateOpCondInstruction(OpCondInstruction opCondInstruction) {
-        var code = new StringBuilder();
+        var condition = opCondInstruction.getCondition();
 
-        var inst = opCondInstruction.getCondition();
-        var leftOp = ((BinaryOpInstruction) inst).getLeftOperand();
-        var rightOp = ((BinaryOpInstruction) inst).getRightOperand();
-        var opType = inst.getOperation().getOpType();
-
-        // maybe merge these and change only the if
-        if (opType == OperationType.LTH) {
-            code.append(generators.apply(leftOp))
-                    .append(generators.apply(rightOp))
-                    .append("if_icmplt ").append(opCondInstruction.getLabel())
-                    .append(NL);
-        } else if (opType == OperationType.GTE) {
-            code.append(generators.apply(leftOp))
-                    .append(generators.apply(rightOp))
-                    .append("if_icmpge ").append(opCondInstruction.getLabel())
-                    .append(NL);
+        if (condition instanceof BinaryOpInstruction binaryOp && isComparison(binaryOp.getOperation().getOpType())) {
+            return generateCompareBranch(binaryOp, opCondInstruction.getLabel());
         }
-        return code.toString();
+
+        return generators.apply(condition) + "ifne " + opCondInstruction.getLabel() + NL;
     }
 
     private String generateSingleOpCondInstruction(SingleOpCondInstruction singleOpCondInstruction) {
@@ -474,7 +699,7 @@ public class JasminGenerator {
         var code = new StringBuilder();
 
         if (unaryOpInstruction.getOperation().getOpType() == OperationType.NOTB) {
-            code.append(String.format("iconst_1\n%sixor\n",
+            code.append(String.format("%siconst_1\nixor\n",
                     generators.apply(unaryOpInstruction.getOperand())
             ));
         }
@@ -485,7 +710,9 @@ public class JasminGenerator {
     private String generateLiteral(LiteralElement literal) {
         try {
             int value = Integer.parseInt(literal.getLiteral());
-            if (value >= -1 && value <= 5) {
+            if (value == -1) {
+                return "iconst_m1" + NL;
+            } else if (value >= 0 && value <= 5) {
                 return "iconst_" + value + NL;
             } else if (value >= -128 && value <= 127) {
                 return "bipush " + value + NL;
@@ -522,9 +749,24 @@ public class JasminGenerator {
     }
 
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
+        var opType = binaryOp.getOperation().getOpType();
+
+        // the JVM has no instructions that push the result of a comparison, so branch to push 1 or 0
+        if (isComparison(opType)) {
+            var trueLabel = "cmp_true_" + labelCounter;
+            var endLabel = "cmp_end_" + labelCounter;
+            labelCounter++;
+
+            return generateCompareBranch(binaryOp, trueLabel) +
+                    "iconst_0" + NL +
+                    "goto " + endLabel + NL +
+                    trueLabel + ":" + NL +
+                    "iconst_1" + NL +
+                    endLabel + ":" + NL;
+        }
+
         var leftOp = generators.apply(binaryOp.getLeftOperand());
         var rightOp = generators.apply(binaryOp.getRightOperand());
-        var opType = binaryOp.getOperation().getOpType();
 
         return leftOp +
             rightOp +
@@ -535,58 +777,13 @@ public class JasminGenerator {
                 case SUB -> "isub";
                 case DIV -> "idiv";
                 // boolean
-                case LTH -> "if_icmplt";
-                case GTE -> "if_icmpte";
+                case ANDB -> "iand";
+                case ORB -> "ior";
                 default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
             } +
             NL;
     }
 
-    // "optimized" version that doesn't work
-    /* private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var code = new StringBuilder();
-        String regexPattern = "iload_(\\d+)|iload (\\d+)";
-        Pattern pattern = Pattern.compile(regexPattern);
-
-        if (generators.apply(binaryOp.getRightOperand()).substring(0, generators.apply(binaryOp.getRightOperand()).length()-1).equals("bipush 1")){
-            System.out.println("bipush found");
-            Matcher matcher = pattern.matcher(generators.apply(binaryOp.getLeftOperand()));
-            if (matcher.find()){
-                return "iinc " + matcher.group(1) + " " + 1  + NL;
-            }
-        }
-
-        if (generators.apply(binaryOp.getLeftOperand()).substring(0, generators.apply(binaryOp.getLeftOperand()).length()-1).equals("bipush 1")){
-            System.out.println("bipsuh found");
-            Matcher matcher = pattern.matcher(generators.apply(binaryOp.getRightOperand()));
-            if (matcher.find()){
-                return "iinc " + matcher.group(1) + NL;
-            }
-        }
-
-        // load values on the left and on the right
-        code.append(generators.apply(binaryOp.getLeftOperand()));
-        code.append(generators.apply(binaryOp.getRightOperand()));
-
-        // apply operation
-        var op = switch (binaryOp.getOperation().getOpType()) {
-            // arithmetic
-            case ADD -> "iadd";
-            case MUL -> "imul";
-            case SUB -> "isub";
-            case DIV -> "idiv";
-            // boolean
-            // case LTH ->
-            case LTH -> "if_icmplt";
-            case GTE -> "if_icmpte";
-            default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
-        };
-
-        code.append(op).append(NL);
-
-        return code.toString();
-    } */
-
     private String generateReturn(ReturnInstruction returnInst) {
         var code = new StringBuilder();
 
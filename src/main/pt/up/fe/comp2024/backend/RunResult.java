@@ -0,0 +1,21 @@
+package pt.up.fe.comp2024.backend;
+
+import java.time.Duration;
+
+/**
+ * Outcome of running a compiled program with {@link InProcessRunner}.
+ *
+ * @param output       what the program printed to stdout
+ * @param errorOutput  what the program printed to stderr
+ * @param exception    the exception thrown by main, or null if it returned normally
+ * @param timedOut     true if main did not return before the timeout
+ * @param assembleTime time taken to turn the Jasmin code into class bytes
+ * @param runTime      time taken by main
+ */
+public record RunResult(String output, String errorOutput, Throwable exception, boolean timedOut,
+                        Duration assembleTime, Duration runTime) {
+
+    public boolean isSuccess() {
+        return exception == null && !timedOut;
+    }
+}
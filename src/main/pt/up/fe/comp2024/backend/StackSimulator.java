@@ -0,0 +1,234 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.*;
+
+/**
+ * Simulates the operand stack over the Jasmin instructions of a method, to compute the value of '.limit stack'.
+ * <p>
+ * Every path through the code is followed, including branches to labels, so the result is the exact maximum depth. Like
+ * the JVM verifier, it reports stack underflows, paths that reach the same instruction with different depths, jumps
+ * to unknown labels and code that falls off the end of the method.
+ */
+public class StackSimulator {
+
+    private static final Map<String, int[]> EFFECTS = new HashMap<>();
+
+    static {
+        // {values popped, values pushed}
+        for (var inst : List.of("iconst", "aconst_null", "bipush", "sipush", "ldc", "iload", "aload", "new")) {
+            EFFECTS.put(inst, new int[]{0, 1});
+        }
+        for (var inst : List.of("istore", "astore", "pop", "ifeq", "ifne", "iflt", "ifge", "ifgt", "ifle", "ifnull",
+                "ifnonnull", "ireturn", "areturn", "athrow")) {
+            EFFECTS.put(inst, new int[]{1, 0});
+        }
+        for (var inst : List.of("if_icmpeq", "if_icmpne", "if_icmplt", "if_icmpge", "if_icmpgt", "if_icmple",
+                "if_acmpeq", "if_acmpne", "pop2")) {
+            EFFECTS.put(inst, new int[]{2, 0});
+        }
+        for (var inst : List.of("iadd", "isub", "imul", "idiv", "irem", "iand", "ior", "ixor", "ishl", "ishr",
+                "iushr", "iaload", "aaload", "baload")) {
+            EFFECTS.put(inst, new int[]{2, 1});
+        }
+        for (var inst : List.of("ineg", "newarray", "anewarray", "arraylength", "checkcast", "instanceof")) {
+            EFFECTS.put(inst, new int[]{1, 1});
+        }
+        for (var inst : List.of("iastore", "aastore", "bastore")) {
+            EFFECTS.put(inst, new int[]{3, 0});
+        }
+        for (var inst : List.of("nop", "goto", "iinc", "return")) {
+            EFFECTS.put(inst, new int[]{0, 0});
+        }
+        EFFECTS.put("dup", new int[]{1, 2});
+        EFFECTS.put("dup_x1", new int[]{2, 3});
+        EFFECTS.put("dup_x2", new int[]{3, 4});
+        EFFECTS.put("dup2", new int[]{2, 4});
+        EFFECTS.put("swap", new int[]{2, 2});
+    }
+
+    private static final Set<String> ENDS_PATH = Set.of("goto", "return", "ireturn", "areturn", "athrow");
+
+    private final String methodName;
+    private final List<String[]> instructions;
+    private final Map<String, Integer> labels;
+    private final List<Report> reports;
+    private int maxStack;
+
+    /**
+     * @param methodName used in the reports
+     * @param lines      the lines of the body of the method, each an instruction, a label or a comment
+     */
+    public StackSimulator(String methodName, List<String> lines) {
+        this.methodName = methodName;
+        this.instructions = new ArrayList<>();
+        this.labels = new HashMap<>();
+        this.reports = new ArrayList<>();
+
+        for (var line : lines) {
+            var trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(";")) {
+                continue;
+            }
+
+            // a label refers to the instruction that follows it
+            if (trimmed.endsWith(":")) {
+                labels.put(trimmed.substring(0, trimmed.length() - 1), instructions.size());
+                continue;
+            }
+
+            instructions.add(trimmed.split("\\s+"));
+        }
+
+        this.maxStack = simulate();
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    private int simulate() {
+        int size = instructions.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        // depth of the stack before each instruction, -1 if not reached yet
+        var depths = new int[size];
+        Arrays.fill(depths, -1);
+        depths[0] = 0;
+
+        var worklist = new ArrayDeque<Integer>();
+        worklist.push(0);
+
+        int max = 0;
+        while (!worklist.isEmpty()) {
+            int current = worklist.pop();
+            var inst = instructions.get(current);
+            var opcode = inst[0];
+
+            var effect = getEffect(inst);
+            if (effect == null) {
+                addReport("unknown instruction '%s'", String.join(" ", inst));
+                continue;
+            }
+
+            int depth = depths[current];
+            if (depth < effect[0]) {
+                addReport("'%s' needs %d values on the stack, but there are only %d", opcode, effect[0], depth);
+                depth = effect[0];
+            }
+            depth = depth - effect[0] + effect[1];
+            max = Math.max(max, depth);
+
+            var successors = new ArrayList<Integer>(2);
+            if (isBranch(opcode)) {
+                var target = inst.length > 1 ? labels.get(inst[inst.length - 1]) : null;
+                if (target == null) {
+                    addReport("'%s' jumps to an unknown label", String.join(" ", inst));
+                } else {
+                    successors.add(target);
+                }
+            }
+            if (!ENDS_PATH.contains(opcode)) {
+                if (current + 1 < size) {
+                    successors.add(current + 1);
+                } else {
+                    addReport("execution falls off the end of the code after '%s'", String.join(" ", inst));
+                }
+            }
+
+            for (int succ : successors) {
+                if (depths[succ] == -1) {
+                    depths[succ] = depth;
+                    worklist.push(succ);
+                } else if (depths[succ] != depth) {
+                    addReport("inconsistent stack height before '%s': %d and %d",
+                            String.join(" ", instructions.get(succ)), depths[succ], depth);
+                }
+            }
+        }
+
+        return max;
+    }
+
+    private static boolean isBranch(String opcode) {
+        return opcode.equals("goto") || opcode.startsWith("if");
+    }
+
+    /**
+     * @return the number of values popped and pushed by the instruction, or null if it is not known
+     */
+    private static int[] getEffect(String[] inst) {
+        var opcode = inst[0];
+
+        var effect = EFFECTS.get(opcode);
+        if (effect != null) {
+            return effect;
+        }
+
+        // short forms such as iload_1 or iconst_m1
+        var underscore = opcode.lastIndexOf('_');
+        if (underscore != -1 && (effect = EFFECTS.get(opcode.substring(0, underscore))) != null) {
+            return effect;
+        }
+
+        if (inst.length < 2) {
+            return null;
+        }
+
+        return switch (opcode) {
+            case "invokestatic" -> new int[]{getArgumentsSize(inst[1]), getReturnSize(inst[1])};
+            case "invokevirtual", "invokespecial", "invokeinterface" ->
+                    new int[]{getArgumentsSize(inst[1]) + 1, getReturnSize(inst[1])};
+            case "getfield" -> new int[]{1, getTypeSize(inst[inst.length - 1])};
+            case "putfield" -> new int[]{1 + getTypeSize(inst[inst.length - 1]), 0};
+            case "getstatic" -> new int[]{0, getTypeSize(inst[inst.length - 1])};
+            case "putstatic" -> new int[]{getTypeSize(inst[inst.length - 1]), 0};
+            default -> null;
+        };
+    }
+
+    private static int getArgumentsSize(String methodDescriptor) {
+        int size = 0;
+        int i = methodDescriptor.indexOf('(') + 1;
+        while (i < methodDescriptor.length() && methodDescriptor.charAt(i) != ')') {
+            char c = methodDescriptor.charAt(i);
+            boolean isArray = false;
+            while (c == '[') {
+                isArray = true;
+                c = methodDescriptor.charAt(++i);
+            }
+            if (c == 'L') {
+                i = methodDescriptor.indexOf(';', i);
+            }
+            size += isArray ? 1 : getTypeSize(String.valueOf(c));
+            i++;
+        }
+
+        return size;
+    }
+
+    private static int getReturnSize(String methodDescriptor) {
+        return getTypeSize(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+    }
+
+    private static int getTypeSize(String typeDescriptor) {
+        return switch (typeDescriptor) {
+            case "V" -> 0;
+            case "J", "D" -> 2;
+            default -> 1;
+        };
+    }
+
+    private void addReport(String format, Object... args) {
+        var message = "Method '" + methodName + "': " + String.format(format, args);
+        reports.add(Report.newError(Stage.GENERATION, -1, -1, message, null));
+    }
+}
@@ -0,0 +1,396 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import static pt.up.fe.comp2024.backend.classfile.Opcodes.*;
+
+/**
+ * Writes a class file made by {@link ClassFileGenerator} as Jasmin code, which assembles into an equivalent class.
+ * <p>
+ * Only the constants, attributes and opcodes that the generator uses are supported. Branch targets become labels named
+ * after their offset, and the StackMapTable is left out, since Jasmin writes class files that do not need one.
+ */
+class ClassFileDisassembler {
+
+    private static final String NL = "\n";
+    private static final String TAB = "\t";
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELDREF = 9;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private record Instruction(int position, String text) {
+    }
+
+    private final DataInputStream in;
+    private final StringBuilder code;
+    private Object[] constants;
+
+    private ClassFileDisassembler(byte[] classBytes) {
+        this.in = new DataInputStream(new ByteArrayInputStream(classBytes));
+        this.code = new StringBuilder();
+    }
+
+    /**
+     * @param classBytes a class file written by {@link ClassFileGenerator}
+     * @return the Jasmin code of the class
+     */
+    static String disassemble(byte[] classBytes) {
+        var disassembler = new ClassFileDisassembler(classBytes);
+        try {
+            disassembler.readClass();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return disassembler.code.toString();
+    }
+
+    private void readClass() throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        // minor and major versions
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        readConstantPool();
+
+        int flags = in.readUnsignedShort();
+        code.append(".class ").append(modifiers(flags)).append(className(in.readUnsignedShort())).append(NL);
+        code.append(".super ").append(className(in.readUnsignedShort())).append(NL);
+
+        int interfaces = in.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            code.append(".implements ").append(className(in.readUnsignedShort())).append(NL);
+        }
+
+        int fields = in.readUnsignedShort();
+        if (fields > 0) {
+            code.append(NL);
+        }
+        for (int i = 0; i < fields; i++) {
+            int fieldFlags = in.readUnsignedShort();
+            code.append(".field ").append(modifiers(fieldFlags)).append(utf8(in.readUnsignedShort())).append(" ")
+                    .append(utf8(in.readUnsignedShort())).append(NL);
+            skipAttributes();
+        }
+
+        int methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            readMethod();
+        }
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = in.readUnsignedShort();
+        constants = new Object[count];
+
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            constants[i] = switch (tag) {
+                case UTF8 -> in.readUTF();
+                case INTEGER -> in.readInt();
+                case CLASS, STRING -> new int[]{tag, in.readUnsignedShort()};
+                case FIELDREF, METHODREF, NAME_AND_TYPE ->
+                        new int[]{tag, in.readUnsignedShort(), in.readUnsignedShort()};
+                default -> throw new IllegalArgumentException("Unsupported constant pool tag " + tag);
+            };
+        }
+    }
+
+    private void readMethod() throws IOException {
+        int flags = in.readUnsignedShort();
+        var name = utf8(in.readUnsignedShort());
+        var descriptor = utf8(in.readUnsignedShort());
+
+        code.append(NL).append(".method ").append(modifiers(flags)).append(name).append(descriptor).append(NL);
+
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            var attributeName = utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if (!attributeName.equals("Code")) {
+                in.skipNBytes(length);
+                continue;
+            }
+
+            int maxStack = in.readUnsignedShort();
+            int maxLocals = in.readUnsignedShort();
+            var bytecode = new byte[in.readInt()];
+            in.readFully(bytecode);
+            // exception table, which the generator leaves empty
+            in.skipNBytes(8L * in.readUnsignedShort());
+            skipAttributes();
+
+            code.append(TAB).append(".limit stack ").append(maxStack).append(NL);
+            code.append(TAB).append(".limit locals ").append(maxLocals).append(NL);
+            readCode(bytecode);
+        }
+
+        code.append(".end method").append(NL);
+    }
+
+    private void readCode(byte[] bytecode) {
+        var instructions = new ArrayList<Instruction>();
+        var targets = new TreeSet<Integer>();
+
+        int pc = 0;
+        while (pc < bytecode.length) {
+            int position = pc;
+            int opcode = u1(bytecode, pc++);
+            String text;
+
+            if (opcode >= ICONST_0 - 1 && opcode <= ICONST_0 + 5) {
+                text = opcode == ICONST_0 - 1 ? "iconst_m1" : "iconst_" + (opcode - ICONST_0);
+            } else if (opcode >= ILOAD_0 && opcode <= ILOAD_0 + 3) {
+                text = "iload_" + (opcode - ILOAD_0);
+            } else if (opcode >= ALOAD_0 && opcode <= ALOAD_0 + 3) {
+                text = "aload_" + (opcode - ALOAD_0);
+            } else if (opcode >= ISTORE_0 && opcode <= ISTORE_0 + 3) {
+                text = "istore_" + (opcode - ISTORE_0);
+            } else if (opcode >= ASTORE_0 && opcode <= ASTORE_0 + 3) {
+                text = "astore_" + (opcode - ASTORE_0);
+            } else if (opcode >= IFEQ && opcode <= GOTO) {
+                int target = position + (short) u2(bytecode, pc);
+                pc += 2;
+                targets.add(target);
+                text = branchName(opcode) + " " + label(target);
+            } else {
+                switch (opcode) {
+                    case BIPUSH -> {
+                        text = "bipush " + (byte) bytecode[pc];
+                        pc += 1;
+                    }
+                    case SIPUSH -> {
+                        text = "sipush " + (short) u2(bytecode, pc);
+                        pc += 2;
+                    }
+                    case LDC -> {
+                        text = "ldc " + constant(u1(bytecode, pc));
+                        pc += 1;
+                    }
+                    case LDC_W -> {
+                        text = "ldc_w " + constant(u2(bytecode, pc));
+                        pc += 2;
+                    }
+                    case ILOAD, ALOAD, ISTORE, ASTORE -> {
+                        text = simpleName(opcode) + " " + u1(bytecode, pc);
+                        pc += 1;
+                    }
+                    case IINC -> {
+                        text = "iinc " + u1(bytecode, pc) + " " + (byte) bytecode[pc + 1];
+                        pc += 2;
+                    }
+                    case WIDE -> {
+                        // Jasmin chooses the wide form by itself when the index does not fit in a byte
+                        int widened = u1(bytecode, pc);
+                        if (widened == IINC) {
+                            text = "iinc " + u2(bytecode, pc + 1) + " " + (short) u2(bytecode, pc + 3);
+                            pc += 5;
+                        } else {
+                            text = simpleName(widened) + " " + u2(bytecode, pc + 1);
+                            pc += 3;
+                        }
+                    }
+                    case GETSTATIC, PUTSTATIC, GETFIELD, PUTFIELD -> {
+                        text = simpleName(opcode) + " " + member(u2(bytecode, pc), " ");
+                        pc += 2;
+                    }
+                    case INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC -> {
+                        text = simpleName(opcode) + " " + member(u2(bytecode, pc), "");
+                        pc += 2;
+                    }
+                    case NEW, ANEWARRAY -> {
+                        text = simpleName(opcode) + " " + className(u2(bytecode, pc));
+                        pc += 2;
+                    }
+                    case NEWARRAY -> {
+                        text = "newarray " + arrayType(u1(bytecode, pc));
+                        pc += 1;
+                    }
+                    default -> text = simpleName(opcode);
+                }
+            }
+
+            instructions.add(new Instruction(position, text));
+        }
+
+        for (var instruction : instructions) {
+            if (targets.contains(instruction.position())) {
+                code.append(label(instruction.position())).append(":").append(NL);
+            }
+            code.append(TAB).append(instruction.text()).append(NL);
+        }
+    }
+
+    private void skipAttributes() throws IOException {
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            in.readUnsignedShort();
+            in.skipNBytes(in.readInt());
+        }
+    }
+
+    private String utf8(int index) {
+        return (String) constants[index];
+    }
+
+    private String className(int index) {
+        return utf8(((int[]) constants[index])[1]);
+    }
+
+    /**
+     * @param separator what goes between the name and the descriptor, a space for fields and nothing for methods
+     * @return the reference as Jasmin writes it, e.g. java/io/PrintStream/println(I)V
+     */
+    private String member(int index, String separator) {
+        var reference = (int[]) constants[index];
+        var nameAndType = (int[]) constants[reference[2]];
+
+        return className(reference[1]) + "/" + utf8(nameAndType[1]) + separator + utf8(nameAndType[2]);
+    }
+
+    private String constant(int index) {
+        var constant = constants[index];
+        if (constant instanceof Integer value) {
+            return value.toString();
+        }
+
+        var reference = (int[]) constant;
+        if (reference[0] != STRING) {
+            throw new IllegalArgumentException("Unsupported constant for ldc at index " + index);
+        }
+
+        return quote(utf8(reference[1]));
+    }
+
+    private static String quote(String value) {
+        var quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> quoted.append(c);
+            }
+        }
+
+        return quoted.append('"').toString();
+    }
+
+    private static String modifiers(int flags) {
+        var modifiers = new StringBuilder();
+        if ((flags & ACC_PUBLIC) != 0) {
+            modifiers.append("public ");
+        }
+        if ((flags & ACC_PRIVATE) != 0) {
+            modifiers.append("private ");
+        }
+        if ((flags & ACC_PROTECTED) != 0) {
+            modifiers.append("protected ");
+        }
+        if ((flags & ACC_STATIC) != 0) {
+            modifiers.append("static ");
+        }
+        if ((flags & ACC_FINAL) != 0) {
+            modifiers.append("final ");
+        }
+
+        return modifiers.toString();
+    }
+
+    private static String label(int position) {
+        return "L" + position;
+    }
+
+    private static String arrayType(int type) {
+        return switch (type) {
+            case T_BOOLEAN -> "boolean";
+            case T_INT -> "int";
+            default -> throw new IllegalArgumentException("Unsupported newarray type " + type);
+        };
+    }
+
+    private static String branchName(int opcode) {
+        return switch (opcode) {
+            case IFEQ -> "ifeq";
+            case IFNE -> "ifne";
+            case IFLT -> "iflt";
+            case IFGE -> "ifge";
+            case IFGT -> "ifgt";
+            case IFLE -> "ifle";
+            case IF_ICMPEQ -> "if_icmpeq";
+            case IF_ICMPNE -> "if_icmpne";
+            case IF_ICMPLT -> "if_icmplt";
+            case IF_ICMPGE -> "if_icmpge";
+            case IF_ICMPGT -> "if_icmpgt";
+            case IF_ICMPLE -> "if_icmple";
+            case GOTO -> "goto";
+            default -> throw new IllegalArgumentException("Unsupported branch opcode " + opcode);
+        };
+    }
+
+    private static String simpleName(int opcode) {
+        return switch (opcode) {
+            case ILOAD -> "iload";
+            case ALOAD -> "aload";
+            case ISTORE -> "istore";
+            case ASTORE -> "astore";
+            case IALOAD -> "iaload";
+            case AALOAD -> "aaload";
+            case BALOAD -> "baload";
+            case IASTORE -> "iastore";
+            case AASTORE -> "aastore";
+            case BASTORE -> "bastore";
+            case POP -> "pop";
+            case DUP -> "dup";
+            case IADD -> "iadd";
+            case ISUB -> "isub";
+            case IMUL -> "imul";
+            case IDIV -> "idiv";
+            case INEG -> "ineg";
+            case ISHL -> "ishl";
+            case ISHR -> "ishr";
+            case IUSHR -> "iushr";
+            case IAND -> "iand";
+            case IOR -> "ior";
+            case IXOR -> "ixor";
+            case IRETURN -> "ireturn";
+            case ARETURN -> "areturn";
+            case RETURN -> "return";
+            case GETSTATIC -> "getstatic";
+            case PUTSTATIC -> "putstatic";
+            case GETFIELD -> "getfield";
+            case PUTFIELD -> "putfield";
+            case INVOKEVIRTUAL -> "invokevirtual";
+            case INVOKESPECIAL -> "invokespecial";
+            case INVOKESTATIC -> "invokestatic";
+            case NEW -> "new";
+            case ANEWARRAY -> "anewarray";
+            case ARRAYLENGTH -> "arraylength";
+            default -> throw new IllegalArgumentException("Unsupported opcode 0x" + Integer.toHexString(opcode));
+        };
+    }
+
+    private static int u1(byte[] bytes, int position) {
+        return bytes[position] & 0xFF;
+    }
+
+    private static int u2(byte[] bytes, int position) {
+        return (u1(bytes, position) << 8) | u1(bytes, position + 1);
+    }
+}
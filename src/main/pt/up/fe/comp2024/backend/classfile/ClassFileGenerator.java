@@ -0,0 +1,633 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static pt.up.fe.comp2024.backend.classfile.Opcodes.*;
+import static pt.up.fe.comp2024.backend.classfile.VerificationType.INTEGER;
+
+/**
+ * Generates the bytes of a class file from an OllirResult, without going through Jasmin.
+ * <p>
+ * Writes class files of version 52 (Java 8), with StackMapTable frames so the JVM can use the type-checking verifier.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 52;
+
+    private final OllirResult ollirResult;
+    private final BiConsumerClassMap<TreeNode, CodeBuilder> generators;
+    private final ConstantPool constantPool;
+    List<Report> reports;
+    byte[] bytes;
+    Method currentMethod;
+    Map<String, Label> currentLabels;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+
+        reports = new ArrayList<>();
+        bytes = null;
+        currentMethod = null;
+        currentLabels = null;
+        constantPool = new ConstantPool();
+
+        this.generators = new BiConsumerClassMap<>();
+        generators.put(AssignInstruction.class, this::generateAssign);
+        generators.put(SingleOpInstruction.class, this::generateSingleOp);
+        generators.put(LiteralElement.class, this::generateLiteral);
+        generators.put(Operand.class, this::generateOperand);
+        generators.put(ArrayOperand.class, this::generateArrayOperand);
+        generators.put(BinaryOpInstruction.class, this::generateBinaryOp);
+        generators.put(UnaryOpInstruction.class, this::generateUnaryOp);
+        generators.put(ReturnInstruction.class, this::generateReturn);
+        generators.put(PutFieldInstruction.class, this::generatePutField);
+        generators.put(GetFieldInstruction.class, this::generateGetField);
+        generators.put(CallInstruction.class, this::generateCall);
+        generators.put(OpCondInstruction.class, this::generateOpCond);
+        generators.put(SingleOpCondInstruction.class, this::generateSingleOpCond);
+        generators.put(GotoInstruction.class, this::generateGoto);
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public byte[] build() {
+
+        // This way, build is idempotent
+        if (bytes == null) {
+            try {
+                bytes = generateClassUnit(ollirResult.getOllirClass());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return bytes;
+    }
+
+    private byte[] generateClassUnit(ClassUnit classUnit) throws IOException {
+        // the constant pool comes first in the file, but is only complete after generating the members
+        var members = new ByteArrayOutputStream();
+        var out = new DataOutputStream(members);
+
+        int thisClass = constantPool.addClass(classUnit.getClassName());
+        int superClass = constantPool.addClass(getSuperClassName());
+
+        // no interfaces
+        out.writeShort(0);
+
+        out.writeShort(classUnit.getNumFields());
+        for (var field : classUnit.getFields()) {
+            generateField(field, out);
+        }
+
+        // a single constructor that receives no arguments, like the Jasmin backend
+        var methods = classUnit.getMethods().stream()
+                .filter(method -> !method.isConstructMethod())
+                .toList();
+        out.writeShort(methods.size() + 1);
+        generateConstructor(out);
+        for (var method : methods) {
+            generateMethod(method, out);
+        }
+
+        // no class attributes
+        out.writeShort(0);
+
+        var classFile = new ByteArrayOutputStream();
+        var header = new DataOutputStream(classFile);
+        header.writeInt(MAGIC);
+        header.writeShort(0);
+        header.writeShort(MAJOR_VERSION);
+        constantPool.write(header);
+        header.writeShort(ACC_PUBLIC | ACC_SUPER);
+        header.writeShort(thisClass);
+        header.writeShort(superClass);
+        members.writeTo(header);
+
+        return classFile.toByteArray();
+    }
+
+    private String getSuperClassName() {
+        var superClassName = ollirResult.getOllirClass().getSuperClass();
+        if (superClassName == null || superClassName.equals("Object")) {
+            return "java/lang/Object";
+        }
+
+        return convertImport(superClassName);
+    }
+
+    private String convertImport(String path) {
+        if (path.equals("this")) {
+            return ollirResult.getOllirClass().getClassName();
+        }
+
+        for (String importedClass : ollirResult.getOllirClass().getImports()) {
+            if (importedClass.equals(path) || importedClass.endsWith("." + path)) {
+                return importedClass.replace(".", "/");
+            }
+        }
+
+        return path;
+    }
+
+    private String convertType(Type ollirType) {
+        return switch (ollirType.getTypeOfElement()) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case VOID -> "V";
+            case STRING -> "Ljava/lang/String;";
+            case CLASS, OBJECTREF, THIS -> "L" + getClassName(ollirType) + ";";
+            case ARRAYREF -> "[" + convertType(((ArrayType) ollirType).getElementType());
+        };
+    }
+
+    private String getClassName(Type ollirType) {
+        if (ollirType.getTypeOfElement() == ElementType.THIS) {
+            return ollirResult.getOllirClass().getClassName();
+        }
+
+        var name = ollirType instanceof ClassType classType ? classType.getName() : ollirType.toString();
+        return convertImport(name);
+    }
+
+    private static int getAccessFlags(AccessModifier accessModifier) {
+        return switch (accessModifier) {
+            case PUBLIC -> ACC_PUBLIC;
+            case PRIVATE -> ACC_PRIVATE;
+            case PROTECTED -> ACC_PROTECTED;
+            case DEFAULT -> 0;
+        };
+    }
+
+    private void generateField(Field field, DataOutputStream out) throws IOException {
+        int flags = getAccessFlags(field.getFieldAccessModifier());
+        if (field.isStaticField()) {
+            flags |= ACC_STATIC;
+        }
+        if (field.isFinalField()) {
+            flags |= ACC_FINAL;
+        }
+
+        out.writeShort(flags);
+        out.writeShort(constantPool.addUtf8(field.getFieldName()));
+        out.writeShort(constantPool.addUtf8(convertType(field.getFieldType())));
+        // no attributes
+        out.writeShort(0);
+    }
+
+    private void generateConstructor(DataOutputStream out) throws IOException {
+        var code = new CodeBuilder();
+        code.emit(ALOAD_0, 0, VerificationType.object(ollirResult.getOllirClass().getClassName()));
+        code.emitShort(INVOKESPECIAL, constantPool.addMethodref(getSuperClassName(), "<init>", "()V"), 1);
+        code.emit(RETURN, 0);
+
+        writeMethod(ACC_PUBLIC, "<init>", "()V", code, 1, out);
+    }
+
+    private void generateMethod(Method method, DataOutputStream out) throws IOException {
+        // set method
+        currentMethod = method;
+        currentLabels = new HashMap<>();
+
+        int flags = getAccessFlags(method.getMethodAccessModifier());
+        if (method.isStaticMethod()) {
+            flags |= ACC_STATIC;
+        }
+        if (method.isFinalMethod()) {
+            flags |= ACC_FINAL;
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var param : method.getParams()) {
+            descriptor.append(convertType(param.getType()));
+        }
+        descriptor.append(")").append(convertType(method.getReturnType()));
+
+        // index the labels by instruction
+        Map<Instruction, List<String>> labels = new IdentityHashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>(1)).add(label.getKey());
+        }
+
+        int maxLocals = getMaxLocals(method);
+        var localTypes = new LocalTypes(method, maxLocals, this::getVerificationType);
+
+        var code = new CodeBuilder();
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+
+            // unreachable code is not generated, since the verifier would need frames for it too
+            var types = localTypes.getTypesBefore(i);
+            if (types == null) {
+                continue;
+            }
+            code.setLocals(types);
+
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                code.placeLabel(getLabel(label));
+            }
+
+            generators.accept(inst, code);
+
+            // the value of a call that is not assigned to anything is discarded
+            if (inst instanceof CallInstruction call && call.getReturnType().getTypeOfElement() != ElementType.VOID) {
+                code.emit(POP, 1);
+            }
+        }
+
+        for (var label : currentLabels.entrySet()) {
+            if (!label.getValue().isPlaced()) {
+                throw new IllegalStateException("Label '" + label.getKey() + "' of method "
+                        + method.getMethodName() + " is not defined");
+            }
+        }
+
+        writeMethod(flags, method.getMethodName(), descriptor.toString(), code, maxLocals, out);
+
+        // unset method
+        currentMethod = null;
+        currentLabels = null;
+    }
+
+    private int getMaxLocals(Method method) {
+        int maxLocals = method.isStaticMethod() ? 0 : 1;
+        maxLocals += method.getParams().size();
+
+        for (var descriptor : method.getVarTable().values()) {
+            maxLocals = Math.max(maxLocals, descriptor.getVirtualReg() + 1);
+        }
+
+        return maxLocals;
+    }
+
+    private void writeMethod(int flags, String name, String descriptor, CodeBuilder code, int maxLocals,
+                             DataOutputStream out) throws IOException {
+        out.writeShort(flags);
+        out.writeShort(constantPool.addUtf8(name));
+        out.writeShort(constantPool.addUtf8(descriptor));
+
+        var bytecode = code.toByteArray();
+        var stackMapTable = code.getStackMapTable(constantPool);
+        int codeAttributeIndex = constantPool.addUtf8("Code");
+        int stackMapTableIndex = stackMapTable != null ? constantPool.addUtf8("StackMapTable") : -1;
+
+        // a single attribute, Code
+        out.writeShort(1);
+        out.writeShort(codeAttributeIndex);
+        // max_stack, max_locals, code_length, code, exception_table_length, attributes_count and attributes
+        int stackMapTableLength = stackMapTable != null ? 2 + 4 + stackMapTable.length : 0;
+        out.writeInt(2 + 2 + 4 + bytecode.length + 2 + 2 + stackMapTableLength);
+        out.writeShort(code.getMaxStack());
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);
+        if (stackMapTable != null) {
+            out.writeShort(1);
+            out.writeShort(stackMapTableIndex);
+            out.writeInt(stackMapTable.length);
+            out.write(stackMapTable);
+        } else {
+            out.writeShort(0);
+        }
+    }
+
+    private Label getLabel(String name) {
+        return currentLabels.computeIfAbsent(name, key -> new Label());
+    }
+
+    private int getRegister(Operand operand) {
+        var descriptor = currentMethod.getVarTable().get(operand.getName());
+        if (descriptor == null) {
+            if (operand.getType().getTypeOfElement() == ElementType.THIS) {
+                return 0;
+            }
+            throw new NotImplementedException("Variable '" + operand.getName() + "' is not in the table of "
+                    + currentMethod.getMethodName());
+        }
+
+        return descriptor.getVirtualReg();
+    }
+
+    /**
+     * @return the type of the variable in the table of the method, which is more reliable than the type of each use
+     */
+    private Type getVarType(Element element) {
+        if (element instanceof Operand operand && !(element instanceof ArrayOperand)) {
+            var descriptor = currentMethod.getVarTable().get(operand.getName());
+            if (descriptor != null) {
+                return descriptor.getVarType();
+            }
+        }
+
+        return element.getType();
+    }
+
+    private VerificationType getVerificationType(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32, BOOLEAN -> INTEGER;
+            case ARRAYREF -> VerificationType.object(convertType(type));
+            case STRING -> VerificationType.object("java/lang/String");
+            case CLASS, OBJECTREF, THIS -> VerificationType.object(getClassName(type));
+            case VOID -> VerificationType.TOP;
+        };
+    }
+
+    private VerificationType getArrayVerificationType(ArrayOperand arrayOperand) {
+        var descriptor = currentMethod.getVarTable().get(arrayOperand.getName());
+        if (descriptor != null && descriptor.getVarType().getTypeOfElement() == ElementType.ARRAYREF) {
+            return getVerificationType(descriptor.getVarType());
+        }
+
+        // the type of an array access is the type of its elements
+        return VerificationType.object("[" + convertType(arrayOperand.getType()));
+    }
+
+    private static boolean isIntOrBoolean(Type type) {
+        return type.getTypeOfElement() == ElementType.INT32 || type.getTypeOfElement() == ElementType.BOOLEAN;
+    }
+
+    private void generateAssign(AssignInstruction assign, CodeBuilder code) {
+        var dest = assign.getDest();
+
+        if (dest instanceof ArrayOperand arrayOperand) {
+            code.emitLocal(ALOAD, ALOAD_0, getRegister(arrayOperand), 0, getArrayVerificationType(arrayOperand));
+            generators.accept(arrayOperand.getIndexOperands().get(0), code);
+            generators.accept(assign.getRhs(), code);
+            code.emit(isIntOrBoolean(arrayOperand.getType()) ? IASTORE : AASTORE, 3);
+            return;
+        }
+
+        if (!(dest instanceof Operand operand)) {
+            throw new NotImplementedException(dest.getClass());
+        }
+
+        generators.accept(assign.getRhs(), code);
+
+        if (isIntOrBoolean(getVarType(operand))) {
+            code.emitLocal(ISTORE, ISTORE_0, getRegister(operand), 1);
+        } else {
+            code.emitLocal(ASTORE, ASTORE_0, getRegister(operand), 1);
+        }
+    }
+
+    private void generateSingleOp(SingleOpInstruction singleOp, CodeBuilder code) {
+        generators.accept(singleOp.getSingleOperand(), code);
+    }
+
+    private void generateLiteral(LiteralElement literal, CodeBuilder code) {
+        try {
+            code.emitInt(Integer.parseInt(literal.getLiteral()), constantPool);
+        } catch (NumberFormatException e) {
+            var value = literal.getLiteral().replace("\"", "");
+            code.emitShort(LDC_W, constantPool.addString(value), 0, VerificationType.object("java/lang/String"));
+        }
+    }
+
+    private void generateOperand(Operand operand, CodeBuilder code) {
+        if (isIntOrBoolean(getVarType(operand))) {
+            code.emitLocal(ILOAD, ILOAD_0, getRegister(operand), 0, INTEGER);
+        } else {
+            code.emitLocal(ALOAD, ALOAD_0, getRegister(operand), 0, getVerificationType(getVarType(operand)));
+        }
+    }
+
+    private void generateArrayOperand(ArrayOperand arrayOperand, CodeBuilder code) {
+        code.emitLocal(ALOAD, ALOAD_0, getRegister(arrayOperand), 0, getArrayVerificationType(arrayOperand));
+        generators.accept(arrayOperand.getIndexOperands().get(0), code);
+        if (isIntOrBoolean(arrayOperand.getType())) {
+            code.emit(IALOAD, 2, INTEGER);
+        } else {
+            code.emit(AALOAD, 2, getVerificationType(arrayOperand.getType()));
+        }
+    }
+
+    /**
+     * @return the conditional branch that compares two integers with the operation, or -1 if it is not a comparison
+     */
+    private static int getCompareOpcode(OperationType opType) {
+        return switch (opType) {
+            case LTH -> IF_ICMPLT;
+            case GTH -> IF_ICMPGT;
+            case LTE -> IF_ICMPLE;
+            case GTE -> IF_ICMPGE;
+            case EQ -> IF_ICMPEQ;
+            case NEQ -> IF_ICMPNE;
+            default -> -1;
+        };
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, CodeBuilder code) {
+        generators.accept(binaryOp.getLeftOperand(), code);
+        generators.accept(binaryOp.getRightOperand(), code);
+
+        var opType = binaryOp.getOperation().getOpType();
+        int compareOpcode = getCompareOpcode(opType);
+        if (compareOpcode != -1) {
+            // push 1 if the comparison holds, 0 otherwise
+            var trueLabel = new Label();
+            var endLabel = new Label();
+            code.emitBranch(compareOpcode, trueLabel, 2);
+            code.emit(ICONST_0, 0, INTEGER);
+            code.emitBranch(GOTO, endLabel, 0);
+            code.placeLabel(trueLabel);
+            code.emit(ICONST_1, 0, INTEGER);
+            code.placeLabel(endLabel);
+            return;
+        }
+
+        int opcode = switch (opType) {
+            case ADD -> IADD;
+            case SUB -> ISUB;
+            case MUL -> IMUL;
+            case DIV -> IDIV;
+            case SHL -> ISHL;
+            case SHR -> ISHR;
+            case SHRR -> IUSHR;
+            case AND, ANDB -> IAND;
+            case OR, ORB -> IOR;
+            case XOR -> IXOR;
+            default -> throw new NotImplementedException(opType);
+        };
+        code.emit(opcode, 2, INTEGER);
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp, CodeBuilder code) {
+        var opType = unaryOp.getOperation().getOpType();
+        if (opType != OperationType.NOTB) {
+            throw new NotImplementedException(opType);
+        }
+
+        generators.accept(unaryOp.getOperand(), code);
+        code.emit(ICONST_1, 0, INTEGER);
+        code.emit(IXOR, 2, INTEGER);
+    }
+
+    private void generateReturn(ReturnInstruction returnInst, CodeBuilder code) {
+        if (!returnInst.hasReturnValue()) {
+            code.emit(RETURN, 0);
+            return;
+        }
+
+        generators.accept(returnInst.getOperand(), code);
+        code.emit(isIntOrBoolean(getVarType(returnInst.getOperand())) ? IRETURN : ARETURN, 1);
+    }
+
+    private boolean isStaticField(String fieldName) {
+        return currentMethod.getOllirClass().getFields().stream()
+                .anyMatch(field -> field.getFieldName().equals(fieldName) && field.isStaticField());
+    }
+
+    private void generatePutField(PutFieldInstruction putField, CodeBuilder code) {
+        var field = putField.getField();
+        var owner = getClassName(putField.getObject().getType());
+        int fieldref = constantPool.addFieldref(owner, field.getName(), convertType(field.getType()));
+
+        if (isStaticField(field.getName())) {
+            generators.accept(putField.getValue(), code);
+            code.emitShort(PUTSTATIC, fieldref, 1);
+            return;
+        }
+
+        generators.accept(putField.getObject(), code);
+        generators.accept(putField.getValue(), code);
+        code.emitShort(PUTFIELD, fieldref, 2);
+    }
+
+    private void generateGetField(GetFieldInstruction getField, CodeBuilder code) {
+        var field = getField.getField();
+        var owner = getClassName(getField.getObject().getType());
+        int fieldref = constantPool.addFieldref(owner, field.getName(), convertType(field.getType()));
+
+        if (isStaticField(field.getName())) {
+            code.emitShort(GETSTATIC, fieldref, 0, getVerificationType(field.getType()));
+            return;
+        }
+
+        generators.accept(getField.getObject(), code);
+        code.emitShort(GETFIELD, fieldref, 1, getVerificationType(field.getType()));
+    }
+
+    private void generateCall(CallInstruction call, CodeBuilder code) {
+        var caller = call.getCaller();
+
+        switch (call.getInvocationType()) {
+            case NEW -> {
+                if (caller.getType().getTypeOfElement() == ElementType.ARRAYREF) {
+                    generators.accept(call.getArguments().get(0), code);
+                    var arrayType = getVerificationType(call.getReturnType());
+                    var elementType = ((ArrayType) call.getReturnType()).getElementType();
+                    switch (elementType.getTypeOfElement()) {
+                        case INT32 -> code.emitByte(NEWARRAY, T_INT, 1, arrayType);
+                        case BOOLEAN -> code.emitByte(NEWARRAY, T_BOOLEAN, 1, arrayType);
+                        default -> code.emitShort(ANEWARRAY, constantPool.addClass(getClassName(elementType)), 1,
+                                arrayType);
+                    }
+                } else {
+                    var className = getClassName(caller.getType());
+                    code.emitShort(NEW, constantPool.addClass(className), 0, VerificationType.object(className));
+                }
+            }
+            case arraylength -> {
+                generators.accept(caller, code);
+                code.emit(ARRAYLENGTH, 1, INTEGER);
+            }
+            case invokestatic, invokevirtual, invokespecial -> generateInvoke(call, code);
+            default -> throw new NotImplementedException(call.getInvocationType());
+        }
+    }
+
+    private void generateInvoke(CallInstruction call, CodeBuilder code) {
+        var invocationType = call.getInvocationType();
+        var caller = call.getCaller();
+
+        String owner;
+        if (invocationType == CallType.invokestatic && caller.getType().getTypeOfElement() != ElementType.THIS) {
+            // the caller of a static call is the name of the class
+            owner = convertImport(((Operand) caller).getName());
+        } else {
+            owner = getClassName(caller.getType());
+        }
+
+        var methodName = ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+        if (invocationType == CallType.invokespecial && methodName.isEmpty()) {
+            methodName = "<init>";
+        }
+
+        int pops = 0;
+        if (invocationType != CallType.invokestatic) {
+            generators.accept(caller, code);
+            pops++;
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var argument : call.getArguments()) {
+            generators.accept(argument, code);
+            descriptor.append(convertType(argument.getType()));
+            pops++;
+        }
+        descriptor.append(")").append(convertType(call.getReturnType()));
+
+        int opcode = switch (invocationType) {
+            case invokestatic -> INVOKESTATIC;
+            case invokevirtual -> INVOKEVIRTUAL;
+            default -> INVOKESPECIAL;
+        };
+        int methodref = constantPool.addMethodref(owner, methodName, descriptor.toString());
+        if (call.getReturnType().getTypeOfElement() == ElementType.VOID) {
+            code.emitShort(opcode, methodref, pops);
+        } else {
+            code.emitShort(opcode, methodref, pops, getVerificationType(call.getReturnType()));
+        }
+    }
+
+    private void generateOpCond(OpCondInstruction opCond, CodeBuilder code) {
+        var target = getLabel(opCond.getLabel());
+        var condition = opCond.getCondition();
+
+        if (condition instanceof BinaryOpInstruction binaryOp) {
+            int compareOpcode = getCompareOpcode(binaryOp.getOperation().getOpType());
+            if (compareOpcode != -1) {
+                generators.accept(binaryOp.getLeftOperand(), code);
+                generators.accept(binaryOp.getRightOperand(), code);
+                code.emitBranch(compareOpcode, target, 2);
+                return;
+            }
+        }
+
+        if (condition instanceof UnaryOpInstruction unaryOp && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            generators.accept(unaryOp.getOperand(), code);
+            code.emitBranch(IFEQ, target, 1);
+            return;
+        }
+
+        generators.accept(condition, code);
+        code.emitBranch(IFNE, target, 1);
+    }
+
+    private void generateSingleOpCond(SingleOpCondInstruction singleOpCond, CodeBuilder code) {
+        generators.accept(singleOpCond.getCondition(), code);
+        code.emitBranch(IFNE, getLabel(singleOpCond.getLabel()), 1);
+    }
+
+    private void generateGoto(GotoInstruction gotoInst, CodeBuilder code) {
+        code.emitBranch(GOTO, getLabel(gotoInst.getLabel()), 0);
+    }
+}
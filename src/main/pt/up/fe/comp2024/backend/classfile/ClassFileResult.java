@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Result of the class file backend. Compiling just writes the bytes that were generated, and the Jasmin code is a
+ * disassembly of those bytes, which is only written when it is asked for.
+ */
+public class ClassFileResult extends JasminResult {
+
+    private final byte[] classBytes;
+    private String jasminCode;
+
+    public ClassFileResult(OllirResult ollirResult, byte[] classBytes, List<Report> reports) {
+        super(ollirResult, null, reports);
+        this.classBytes = classBytes;
+    }
+
+    public byte[] getClassBytes() {
+        return classBytes;
+    }
+
+    @Override
+    public String getJasminCode() {
+        if (jasminCode == null) {
+            jasminCode = ClassFileDisassembler.disassemble(classBytes);
+        }
+
+        return jasminCode;
+    }
+
+    @Override
+    public File compile(File outputDir) {
+        var classFile = new File(outputDir, getClassName() + ".class");
+        try {
+            outputDir.mkdirs();
+            Files.write(classFile.toPath(), classBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return classFile;
+    }
+}
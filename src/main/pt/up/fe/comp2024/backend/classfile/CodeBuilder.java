@@ -0,0 +1,275 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static pt.up.fe.comp2024.backend.classfile.Opcodes.*;
+
+/**
+ * Bytecode of a single method. Resolves the offsets of branches to labels, keeps track of the types on the operand
+ * stack, to compute max_stack, and records a StackMapTable frame at each label.
+ * <p>
+ * The stack is tracked along the order of the code: a branch records its stack on the target label, and placing a
+ * label restores it, which is exact for the structured code generated from OLLIR. The types of the local variables
+ * come from the generator, through {@link #setLocals(List)}.
+ */
+public class CodeBuilder {
+
+    private static final int FULL_FRAME = 255;
+
+    private record Frame(int position, List<VerificationType> locals, List<VerificationType> stack) {
+    }
+
+    private byte[] code;
+    private int length;
+    private final List<VerificationType> stack;
+    private int maxStack;
+    private List<VerificationType> locals;
+    private boolean reachable;
+    private final List<Frame> frames;
+
+    public CodeBuilder() {
+        code = new byte[256];
+        length = 0;
+        stack = new ArrayList<>();
+        maxStack = 0;
+        locals = List.of();
+        reachable = true;
+        frames = new ArrayList<>();
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(code, length);
+    }
+
+    /**
+     * Sets the types of the local variables at the current position, which are used by the frames of the labels placed
+     * from now on.
+     */
+    public void setLocals(List<VerificationType> locals) {
+        this.locals = locals;
+    }
+
+    /**
+     * Adds an instruction without operands.
+     *
+     * @param opcode
+     * @param pops   number of values removed from the stack
+     * @param pushes types of the values added to the stack
+     */
+    public void emit(int opcode, int pops, VerificationType... pushes) {
+        writeOpcode(opcode);
+        updateStack(pops, pushes);
+
+        if (opcode == RETURN || opcode == IRETURN || opcode == ARETURN) {
+            reachable = false;
+        }
+    }
+
+    public void emitByte(int opcode, int operand, int pops, VerificationType... pushes) {
+        writeOpcode(opcode);
+        writeByte(operand);
+        updateStack(pops, pushes);
+    }
+
+    public void emitShort(int opcode, int operand, int pops, VerificationType... pushes) {
+        writeOpcode(opcode);
+        writeShort(operand);
+        updateStack(pops, pushes);
+    }
+
+    /**
+     * Adds a load or store of a local variable, using the short form (e.g. iload_1) or the wide form when possible.
+     *
+     * @param opcode      the generic form, e.g. ILOAD
+     * @param shortOpcode the form for local 0, e.g. ILOAD_0
+     */
+    public void emitLocal(int opcode, int shortOpcode, int local, int pops, VerificationType... pushes) {
+        if (local <= 3) {
+            writeOpcode(shortOpcode + local);
+        } else if (local <= 0xFF) {
+            writeOpcode(opcode);
+            writeByte(local);
+        } else {
+            writeOpcode(WIDE);
+            writeByte(opcode);
+            writeShort(local);
+        }
+        updateStack(pops, pushes);
+    }
+
+    public void emitInt(int value, ConstantPool constantPool) {
+        if (value >= -1 && value <= 5) {
+            emit(ICONST_0 + value, 0, VerificationType.INTEGER);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            emitByte(BIPUSH, value, 0, VerificationType.INTEGER);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            emitShort(SIPUSH, value, 0, VerificationType.INTEGER);
+        } else {
+            int index = constantPool.addInteger(value);
+            if (index <= 0xFF) {
+                emitByte(LDC, index, 0, VerificationType.INTEGER);
+            } else {
+                emitShort(LDC_W, index, 0, VerificationType.INTEGER);
+            }
+        }
+    }
+
+    /**
+     * Adds a branch to the label, which may not be placed yet.
+     *
+     * @param opcode a conditional branch or GOTO
+     * @param pops   values removed from the stack by the branch
+     */
+    public void emitBranch(int opcode, Label target, int pops) {
+        int branchPosition = length;
+        writeOpcode(opcode);
+        updateStack(pops);
+
+        if (target.stack == null) {
+            target.stack = List.copyOf(stack);
+        }
+
+        if (target.isPlaced()) {
+            writeShort(getOffset(branchPosition, target.position));
+        } else {
+            target.pendingBranches.add(new int[]{branchPosition, length});
+            writeShort(0);
+        }
+
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    public void placeLabel(Label label) {
+        if (label.isPlaced()) {
+            throw new IllegalStateException("Label is already placed at " + label.position);
+        }
+        label.position = length;
+
+        // code after a label is reached by its branches, with the stack they had
+        if (label.stack != null) {
+            stack.clear();
+            stack.addAll(label.stack);
+        } else {
+            label.stack = List.copyOf(stack);
+        }
+        reachable = true;
+
+        for (var branch : label.pendingBranches) {
+            int offset = getOffset(branch[0], length);
+            code[branch[1]] = (byte) (offset >> 8);
+            code[branch[1] + 1] = (byte) offset;
+        }
+        label.pendingBranches.clear();
+
+        // labels are the only branch targets, so they are the only places that need a frame
+        var frame = new Frame(length, trimLocals(locals), label.stack);
+        if (!frames.isEmpty() && frames.get(frames.size() - 1).position() == length) {
+            frames.set(frames.size() - 1, frame);
+        } else {
+            frames.add(frame);
+        }
+    }
+
+    /**
+     * @return the contents of the StackMapTable attribute, or null if the method does not need one
+     */
+    public byte[] getStackMapTable(ConstantPool constantPool) {
+        if (frames.isEmpty()) {
+            return null;
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(frames.size());
+            int previous = -1;
+            for (var frame : frames) {
+                out.writeByte(FULL_FRAME);
+                out.writeShort(frame.position() - previous - 1);
+                writeTypes(frame.locals(), out, constantPool);
+                writeTypes(frame.stack(), out, constantPool);
+                previous = frame.position();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeTypes(List<VerificationType> types, DataOutputStream out, ConstantPool constantPool)
+            throws IOException {
+        out.writeShort(types.size());
+        for (var type : types) {
+            out.writeByte(type.tag());
+            if (type.isObject()) {
+                out.writeShort(constantPool.addClass(type.className()));
+            }
+        }
+    }
+
+    private static List<VerificationType> trimLocals(List<VerificationType> locals) {
+        int size = locals.size();
+        while (size > 0 && locals.get(size - 1).equals(VerificationType.TOP)) {
+            size--;
+        }
+
+        return List.copyOf(locals.subList(0, size));
+    }
+
+    private static int getOffset(int from, int to) {
+        int offset = to - from;
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            throw new IllegalStateException("Branch offset " + offset + " does not fit in 16 bits");
+        }
+
+        return offset;
+    }
+
+    private void updateStack(int pops, VerificationType... pushes) {
+        if (stack.size() < pops) {
+            throw new IllegalStateException("Stack underflow at bytecode offset " + length);
+        }
+        for (int i = 0; i < pops; i++) {
+            stack.remove(stack.size() - 1);
+        }
+        stack.addAll(Arrays.asList(pushes));
+        maxStack = Math.max(maxStack, stack.size());
+    }
+
+    private void writeOpcode(int opcode) {
+        // the verifier checks unreachable code too, and without a frame it cannot know its types
+        if (!reachable) {
+            throw new IllegalStateException("Unreachable code at bytecode offset " + length);
+        }
+        writeByte(opcode);
+    }
+
+    private void writeByte(int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[length++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        writeByte(value >> 8);
+        writeByte(value);
+    }
+}
@@ -0,0 +1,141 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Each constant is added only once, and its entry is written as soon as it is added.
+ */
+public class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELDREF = 9;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream entries;
+    private final Map<String, Integer> indexes;
+    private int count;
+
+    public ConstantPool() {
+        bytes = new ByteArrayOutputStream();
+        entries = new DataOutputStream(bytes);
+        indexes = new HashMap<>();
+        // index 0 is not used
+        count = 1;
+    }
+
+    public int addUtf8(String value) {
+        var key = "utf8:" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            entries.writeByte(UTF8);
+            entries.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return register(key);
+    }
+
+    public int addInteger(int value) {
+        var key = "int:" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        writeEntry(INTEGER, value >>> 16, value & 0xFFFF);
+        return register(key);
+    }
+
+    /**
+     * @param internalName name of the class with '/' as separator, e.g. java/lang/Object
+     */
+    public int addClass(String internalName) {
+        return addReference(CLASS, "class:" + internalName, addUtf8(internalName), -1);
+    }
+
+    public int addString(String value) {
+        return addReference(STRING, "string:" + value, addUtf8(value), -1);
+    }
+
+    public int addNameAndType(String name, String descriptor) {
+        return addReference(NAME_AND_TYPE, "nat:" + name + ":" + descriptor, addUtf8(name), addUtf8(descriptor));
+    }
+
+    public int addFieldref(String owner, String name, String descriptor) {
+        return addReference(FIELDREF, "field:" + owner + "." + name + ":" + descriptor, addClass(owner),
+                addNameAndType(name, descriptor));
+    }
+
+    public int addMethodref(String owner, String name, String descriptor) {
+        return addReference(METHODREF, "method:" + owner + "." + name + descriptor, addClass(owner),
+                addNameAndType(name, descriptor));
+    }
+
+    /**
+     * @return the value of the constant_pool_count field, which is the number of entries plus one
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeShort(count);
+        bytes.writeTo(out);
+    }
+
+    private int addReference(int tag, String key, int first, int second) {
+        // the entries this one refers to must be added first, so the key is only checked afterwards
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        if (second == -1) {
+            try {
+                entries.writeByte(tag);
+                entries.writeShort(first);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            writeEntry(tag, first, second);
+        }
+
+        return register(key);
+    }
+
+    private void writeEntry(int tag, int first, int second) {
+        try {
+            entries.writeByte(tag);
+            entries.writeShort(first);
+            entries.writeShort(second);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int register(String key) {
+        if (count > 0xFFFF) {
+            throw new IllegalStateException("Too many constants in the constant pool");
+        }
+
+        int index = count++;
+        indexes.put(key, index);
+        return index;
+    }
+}
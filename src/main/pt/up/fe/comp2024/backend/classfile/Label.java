@@ -0,0 +1,18 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A position in the code of a method, which branches can refer to before it is placed.
+ */
+public class Label {
+
+    int position = -1;
+    List<VerificationType> stack = null;
+    final List<int[]> pendingBranches = new ArrayList<>(1);
+
+    public boolean isPlaced() {
+        return position != -1;
+    }
+}
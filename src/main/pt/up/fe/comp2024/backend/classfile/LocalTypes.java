@@ -0,0 +1,103 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Types of the JVM local variables before each instruction of a method, as needed by StackMapTable frames.
+ * <p>
+ * A forward dataflow analysis over the control-flow graph: a register has the type of the last variable stored in it,
+ * and becomes TOP where paths with different types meet, e.g. where a variable is only assigned on some of them.
+ */
+public class LocalTypes {
+
+    private final List<List<VerificationType>> in;
+
+    /**
+     * @param method
+     * @param maxLocals
+     * @param converter gives the verification type of an OLLIR type
+     */
+    public LocalTypes(Method method, int maxLocals, Function<Type, VerificationType> converter) {
+        var cfg = new ControlFlowGraph(method);
+        this.in = new ArrayList<>(Collections.nCopies(cfg.size(), null));
+
+        if (cfg.size() == 0) {
+            return;
+        }
+
+        // at the start, only 'this' and the parameters are set
+        var entry = new ArrayList<>(Collections.nCopies(maxLocals, VerificationType.TOP));
+        if (!method.isStaticMethod()) {
+            entry.set(0, converter.apply(new ClassType(ElementType.THIS, method.getOllirClass().getClassName())));
+        }
+        for (var descriptor : method.getVarTable().values()) {
+            if (descriptor.getScope() == VarScope.PARAMETER) {
+                entry.set(descriptor.getVirtualReg(), converter.apply(descriptor.getVarType()));
+            }
+        }
+        in.set(0, entry);
+
+        var worklist = new ArrayDeque<Integer>();
+        var inWorklist = new boolean[cfg.size()];
+        worklist.add(0);
+        inWorklist[0] = true;
+
+        while (!worklist.isEmpty()) {
+            int current = worklist.poll();
+            inWorklist[current] = false;
+
+            var out = transfer(method, cfg.getInstruction(current), in.get(current), converter);
+
+            for (int succ : cfg.getSuccessors(current)) {
+                var merged = in.get(succ) == null ? out : meet(in.get(succ), out);
+                if (merged.equals(in.get(succ))) {
+                    continue;
+                }
+
+                in.set(succ, merged);
+                if (!inWorklist[succ]) {
+                    worklist.add(succ);
+                    inWorklist[succ] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param instruction index in the instruction list of the method
+     * @return the types of the registers before the instruction, or null if it is unreachable
+     */
+    public List<VerificationType> getTypesBefore(int instruction) {
+        return in.get(instruction);
+    }
+
+    private static List<VerificationType> transfer(Method method, Instruction inst, List<VerificationType> state,
+                                                   Function<Type, VerificationType> converter) {
+        if (!(inst instanceof AssignInstruction assign) || assign.getDest() instanceof ArrayOperand
+                || !(assign.getDest() instanceof Operand dest)) {
+            return state;
+        }
+
+        var descriptor = method.getVarTable().get(dest.getName());
+        if (descriptor == null) {
+            return state;
+        }
+
+        var result = new ArrayList<>(state);
+        result.set(descriptor.getVirtualReg(), converter.apply(descriptor.getVarType()));
+        return result;
+    }
+
+    private static List<VerificationType> meet(List<VerificationType> first, List<VerificationType> second) {
+        var result = new ArrayList<VerificationType>(first.size());
+        for (int i = 0; i < first.size(); i++) {
+            result.add(first.get(i).equals(second.get(i)) ? first.get(i) : VerificationType.TOP);
+        }
+
+        return result;
+    }
+}
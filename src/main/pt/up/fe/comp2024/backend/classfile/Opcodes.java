@@ -0,0 +1,101 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+/**
+ * JVM opcodes and flags used by the class file writer.
+ */
+public final class Opcodes {
+
+    private Opcodes() {
+    }
+
+    // access flags
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_PROTECTED = 0x0004;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    // array types of newarray
+    public static final int T_BOOLEAN = 4;
+    public static final int T_INT = 10;
+
+    // constants
+    public static final int ICONST_0 = 0x03;
+    public static final int ICONST_1 = 0x04;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC = 0x12;
+    public static final int LDC_W = 0x13;
+
+    // loads and stores
+    public static final int ILOAD = 0x15;
+    public static final int ALOAD = 0x19;
+    public static final int ILOAD_0 = 0x1a;
+    public static final int ALOAD_0 = 0x2a;
+    public static final int IALOAD = 0x2e;
+    public static final int AALOAD = 0x32;
+    public static final int BALOAD = 0x33;
+    public static final int ISTORE = 0x36;
+    public static final int ASTORE = 0x3a;
+    public static final int ISTORE_0 = 0x3b;
+    public static final int ASTORE_0 = 0x4b;
+    public static final int IASTORE = 0x4f;
+    public static final int AASTORE = 0x53;
+    public static final int BASTORE = 0x54;
+
+    // stack
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+
+    // arithmetic
+    public static final int IADD = 0x60;
+    public static final int ISUB = 0x64;
+    public static final int IMUL = 0x68;
+    public static final int IDIV = 0x6c;
+    public static final int INEG = 0x74;
+    public static final int ISHL = 0x78;
+    public static final int ISHR = 0x7a;
+    public static final int IUSHR = 0x7c;
+    public static final int IAND = 0x7e;
+    public static final int IOR = 0x80;
+    public static final int IXOR = 0x82;
+    public static final int IINC = 0x84;
+
+    // branches
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+
+    // returns
+    public static final int IRETURN = 0xac;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+
+    // fields and methods
+    public static final int GETSTATIC = 0xb2;
+    public static final int PUTSTATIC = 0xb3;
+    public static final int GETFIELD = 0xb4;
+    public static final int PUTFIELD = 0xb5;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+
+    // objects and arrays
+    public static final int NEW = 0xbb;
+    public static final int NEWARRAY = 0xbc;
+    public static final int ANEWARRAY = 0xbd;
+    public static final int ARRAYLENGTH = 0xbe;
+
+    public static final int WIDE = 0xc4;
+}
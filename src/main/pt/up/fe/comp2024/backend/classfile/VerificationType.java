@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+/**
+ * Type of a local variable or stack value in a StackMapTable frame.
+ *
+ * @param tag       the verification_type_info tag
+ * @param className internal name of the class, for object types
+ */
+public record VerificationType(int tag, String className) {
+
+    public static final VerificationType TOP = new VerificationType(0, null);
+    public static final VerificationType INTEGER = new VerificationType(1, null);
+
+    private static final int OBJECT_TAG = 7;
+
+    /**
+     * @param className internal name of the class, or descriptor of the array type
+     */
+    public static VerificationType object(String className) {
+        return new VerificationType(OBJECT_TAG, className);
+    }
+
+    public boolean isObject() {
+        return tag == OBJECT_TAG;
+    }
+}
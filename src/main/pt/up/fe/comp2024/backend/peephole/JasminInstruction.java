@@ -0,0 +1,177 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.peephole.JasminOperand.IntConstant;
+import pt.up.fe.comp2024.backend.peephole.JasminOperand.LabelRef;
+import pt.up.fe.comp2024.backend.peephole.JasminOperand.Local;
+import pt.up.fe.comp2024.backend.peephole.JasminOperand.Symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A line of the code of a Jasmin method: either a label or an instruction with its operands.
+ *
+ * @param label    name of the label, or null for instructions
+ * @param opcode   the instruction, or null for labels
+ * @param operands the operands of the instruction, of the kinds given by {@link JasminOpcode#getOperands()}
+ */
+public record JasminInstruction(String label, JasminOpcode opcode, List<JasminOperand> operands) {
+
+    // loads and stores of locals 0 to 3, e.g. iload_1
+    private static final Pattern SHORT_FORM = Pattern.compile("([ia](?:load|store))_([0-3])");
+
+    public static JasminInstruction newLabel(String label) {
+        return new JasminInstruction(label, null, List.of());
+    }
+
+    public static JasminInstruction newInstruction(JasminOpcode opcode, JasminOperand... operands) {
+        return new JasminInstruction(null, opcode, List.of(operands));
+    }
+
+    /**
+     * Parses the lines of a method body into labels and instructions, skipping blank lines and comments.
+     *
+     * @throws IllegalArgumentException if a line is not an instruction of {@link JasminOpcode} with its operands
+     */
+    public static List<JasminInstruction> parse(List<String> lines) {
+        var instructions = new ArrayList<JasminInstruction>();
+
+        for (var line : lines) {
+            var trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(";")) {
+                continue;
+            }
+
+            if (trimmed.endsWith(":")) {
+                instructions.add(newLabel(trimmed.substring(0, trimmed.length() - 1)));
+                continue;
+            }
+
+            int space = trimmed.indexOf(' ');
+            var mnemonic = space == -1 ? trimmed : trimmed.substring(0, space);
+            var rest = space == -1 ? "" : trimmed.substring(space + 1).trim();
+            instructions.add(parseInstruction(mnemonic, rest));
+        }
+
+        return instructions;
+    }
+
+    private static JasminInstruction parseInstruction(String mnemonic, String rest) {
+        var shortForm = SHORT_FORM.matcher(mnemonic);
+        if (shortForm.matches() && rest.isEmpty()) {
+            return newInstruction(JasminOpcode.fromMnemonic(shortForm.group(1)),
+                    new Local(Integer.parseInt(shortForm.group(2))));
+        }
+
+        var opcode = JasminOpcode.fromMnemonic(mnemonic);
+        var operands = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+
+        return switch (opcode.getOperands()) {
+            case NONE -> {
+                checkOperandCount(mnemonic, operands, 0);
+                yield newInstruction(opcode);
+            }
+            case LOCAL -> {
+                checkOperandCount(mnemonic, operands, 1);
+                yield newInstruction(opcode, new Local(Integer.parseInt(operands[0])));
+            }
+            case LOCAL_AND_INT -> {
+                checkOperandCount(mnemonic, operands, 2);
+                yield newInstruction(opcode, new Local(Integer.parseInt(operands[0])),
+                        new IntConstant(Integer.parseInt(operands[1])));
+            }
+            case INT -> {
+                checkOperandCount(mnemonic, operands, 1);
+                yield newInstruction(opcode, new IntConstant(Integer.parseInt(operands[0])));
+            }
+            case CONSTANT -> {
+                try {
+                    yield newInstruction(opcode, new IntConstant(Integer.parseInt(rest)));
+                } catch (NumberFormatException e) {
+                    yield newInstruction(opcode, new Symbol(rest));
+                }
+            }
+            case LABEL -> {
+                checkOperandCount(mnemonic, operands, 1);
+                yield newInstruction(opcode, new LabelRef(operands[0]));
+            }
+            case SYMBOL -> newInstruction(opcode, new Symbol(rest));
+        };
+    }
+
+    private static void checkOperandCount(String mnemonic, String[] operands, int expected) {
+        if (operands.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " operands for '" + mnemonic + "', got "
+                    + operands.length);
+        }
+    }
+
+    public boolean isLabel() {
+        return label != null;
+    }
+
+    public boolean is(JasminOpcode opcode) {
+        return this.opcode == opcode;
+    }
+
+    /**
+     * @return true for istore and astore
+     */
+    public boolean isStore() {
+        return opcode != null && opcode.isStore();
+    }
+
+    /**
+     * @return true for iload and aload
+     */
+    public boolean isLoad() {
+        return opcode != null && opcode.isLoad();
+    }
+
+    /**
+     * @return the local variable used by a load, a store or an iinc, or -1 for other instructions
+     */
+    public int getLocal() {
+        for (var operand : operands) {
+            if (operand instanceof Local local) {
+                return local.index();
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the label a branch jumps to, or null for other instructions
+     */
+    public String getTarget() {
+        for (var operand : operands) {
+            if (operand instanceof LabelRef labelRef) {
+                return labelRef.label();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        if (isLabel()) {
+            return label + ":";
+        }
+
+        if ((isLoad() || isStore()) && getLocal() <= 3) {
+            return opcode.getMnemonic() + "_" + getLocal();
+        }
+
+        if (operands.isEmpty()) {
+            return opcode.getMnemonic();
+        }
+
+        return opcode.getMnemonic() + " " + operands.stream()
+                .map(JasminOperand::toString)
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,162 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Jasmin instructions generated by {@link pt.up.fe.comp2024.backend.JasminGenerator}, with the operands each one
+ * takes.
+ * <p>
+ * Loads and stores have a single constant for the short (iload_1) and the long (iload 4) forms, which only differ in
+ * how they are written.
+ */
+public enum JasminOpcode {
+
+    // locals
+    ILOAD("iload", Operands.LOCAL),
+    ALOAD("aload", Operands.LOCAL),
+    ISTORE("istore", Operands.LOCAL),
+    ASTORE("astore", Operands.LOCAL),
+    IINC("iinc", Operands.LOCAL_AND_INT),
+
+    // constants
+    ICONST_M1("iconst_m1", Operands.NONE),
+    ICONST_0("iconst_0", Operands.NONE),
+    ICONST_1("iconst_1", Operands.NONE),
+    ICONST_2("iconst_2", Operands.NONE),
+    ICONST_3("iconst_3", Operands.NONE),
+    ICONST_4("iconst_4", Operands.NONE),
+    ICONST_5("iconst_5", Operands.NONE),
+    BIPUSH("bipush", Operands.INT),
+    SIPUSH("sipush", Operands.INT),
+    LDC("ldc", Operands.CONSTANT),
+
+    // arrays
+    IALOAD("iaload", Operands.NONE),
+    IASTORE("iastore", Operands.NONE),
+    ARRAYLENGTH("arraylength", Operands.NONE),
+    NEWARRAY("newarray", Operands.SYMBOL),
+
+    // stack
+    DUP("dup", Operands.NONE),
+    POP("pop", Operands.NONE),
+
+    // arithmetic
+    IADD("iadd", Operands.NONE),
+    ISUB("isub", Operands.NONE),
+    IMUL("imul", Operands.NONE),
+    IDIV("idiv", Operands.NONE),
+    IAND("iand", Operands.NONE),
+    IOR("ior", Operands.NONE),
+    IXOR("ixor", Operands.NONE),
+
+    // branches
+    IFEQ("ifeq", Operands.LABEL),
+    IFNE("ifne", Operands.LABEL),
+    IFLT("iflt", Operands.LABEL),
+    IFGE("ifge", Operands.LABEL),
+    IFGT("ifgt", Operands.LABEL),
+    IFLE("ifle", Operands.LABEL),
+    IF_ICMPEQ("if_icmpeq", Operands.LABEL),
+    IF_ICMPNE("if_icmpne", Operands.LABEL),
+    IF_ICMPLT("if_icmplt", Operands.LABEL),
+    IF_ICMPGE("if_icmpge", Operands.LABEL),
+    IF_ICMPGT("if_icmpgt", Operands.LABEL),
+    IF_ICMPLE("if_icmple", Operands.LABEL),
+    GOTO("goto", Operands.LABEL),
+
+    // returns
+    RETURN("return", Operands.NONE),
+    IRETURN("ireturn", Operands.NONE),
+    ARETURN("areturn", Operands.NONE),
+
+    // fields, methods and objects
+    GETFIELD("getfield", Operands.SYMBOL),
+    PUTFIELD("putfield", Operands.SYMBOL),
+    INVOKEVIRTUAL("invokevirtual", Operands.SYMBOL),
+    INVOKESPECIAL("invokespecial", Operands.SYMBOL),
+    INVOKESTATIC("invokestatic", Operands.SYMBOL),
+    NEW("new", Operands.SYMBOL);
+
+    /**
+     * The operands an instruction takes.
+     */
+    public enum Operands {
+        NONE,
+        LOCAL,
+        LOCAL_AND_INT,
+        INT,
+        /**
+         * An integer or a string constant
+         */
+        CONSTANT,
+        LABEL,
+        SYMBOL
+    }
+
+    private static final Map<String, JasminOpcode> BY_MNEMONIC = new HashMap<>();
+
+    static {
+        for (var opcode : values()) {
+            BY_MNEMONIC.put(opcode.mnemonic, opcode);
+        }
+    }
+
+    private final String mnemonic;
+    private final Operands operands;
+
+    JasminOpcode(String mnemonic, Operands operands) {
+        this.mnemonic = mnemonic;
+        this.operands = operands;
+    }
+
+    /**
+     * @param mnemonic the name of the instruction, without the index of the short forms of loads and stores
+     */
+    public static JasminOpcode fromMnemonic(String mnemonic) {
+        var opcode = BY_MNEMONIC.get(mnemonic);
+        if (opcode == null) {
+            throw new IllegalArgumentException("Unknown Jasmin instruction '" + mnemonic + "'");
+        }
+
+        return opcode;
+    }
+
+    public String getMnemonic() {
+        return mnemonic;
+    }
+
+    public Operands getOperands() {
+        return operands;
+    }
+
+    public boolean isLoad() {
+        return this == ILOAD || this == ALOAD;
+    }
+
+    public boolean isStore() {
+        return this == ISTORE || this == ASTORE;
+    }
+
+    /**
+     * @return the load that reads back what this store writes, or null if this is not a store
+     */
+    public JasminOpcode getReload() {
+        return switch (this) {
+            case ISTORE -> ILOAD;
+            case ASTORE -> ALOAD;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return true for the instructions that push a value without popping any or having other effects
+     */
+    public boolean onlyPushes() {
+        return switch (this) {
+            case ILOAD, ALOAD, ICONST_M1, ICONST_0, ICONST_1, ICONST_2, ICONST_3, ICONST_4, ICONST_5, BIPUSH, SIPUSH,
+                    LDC, DUP -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+/**
+ * Operand of a {@link JasminInstruction}.
+ */
+public sealed interface JasminOperand {
+
+    /**
+     * Index of a local variable, e.g. of iload or iinc.
+     */
+    record Local(int index) implements JasminOperand {
+        @Override
+        public String toString() {
+            return Integer.toString(index);
+        }
+    }
+
+    /**
+     * Integer constant, e.g. of bipush or the increment of iinc.
+     */
+    record IntConstant(int value) implements JasminOperand {
+        @Override
+        public String toString() {
+            return Integer.toString(value);
+        }
+    }
+
+    /**
+     * Label a branch jumps to.
+     */
+    record LabelRef(String label) implements JasminOperand {
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Any other operand, as written: a class, a field or method reference, a string constant or an array type. The
+     * patterns never look into these.
+     */
+    record Symbol(String text) implements JasminOperand {
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the peephole patterns to the code of Jasmin methods until none of them matches, and counts how many times
+ * each pattern was applied.
+ * <p>
+ * One rewrite often enables another, e.g. a store followed by a reload of a temporary becomes dup and a dead store,
+ * which becomes a dup followed by a pop, which is removed.
+ */
+public class PeepholeOptimizer {
+
+    // the longest pattern has 4 instructions, so a rewrite can create a new match at most 3 instructions before it
+    private static final int LOOK_BEHIND = 3;
+
+    private final Map<PeepholePattern, Integer> hits;
+
+    public PeepholeOptimizer() {
+        hits = new EnumMap<>(PeepholePattern.class);
+    }
+
+    /**
+     * @return the number of times each pattern was applied, across all the methods optimized so far
+     */
+    public Map<PeepholePattern, Integer> getHits() {
+        return hits;
+    }
+
+    public int getTotalHits() {
+        return hits.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Optimizes the code of a method in place.
+     *
+     * @param code the instructions and labels of the method body
+     * @return true if the code was changed
+     */
+    public boolean optimize(List<JasminInstruction> code) {
+        boolean changed = false;
+        boolean roundChanged;
+
+        do {
+            roundChanged = false;
+
+            // rewrites only remove reads, so the set computed at the start of a round is safe for the whole round
+            var readRegisters = getReadRegisters(code);
+
+            int index = 0;
+            while (index < code.size()) {
+                var applied = applyAt(code, index, readRegisters);
+                if (applied) {
+                    roundChanged = true;
+                    index = Math.max(0, index - LOOK_BEHIND);
+                } else {
+                    index++;
+                }
+            }
+
+            changed |= roundChanged;
+        } while (roundChanged);
+
+        return changed;
+    }
+
+    private boolean applyAt(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+        for (var pattern : PeepholePattern.values()) {
+            if (pattern.apply(code, index, readRegisters)) {
+                hits.merge(pattern, 1, Integer::sum);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Set<Integer> getReadRegisters(List<JasminInstruction> code) {
+        var registers = new HashSet<Integer>();
+        for (var inst : code) {
+            if (inst.isLoad() || inst.is(JasminOpcode.IINC)) {
+                registers.add(inst.getLocal());
+            }
+        }
+
+        return registers;
+    }
+}
@@ -0,0 +1,131 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import java.util.List;
+import java.util.Set;
+
+import static pt.up.fe.comp2024.backend.peephole.JasminInstruction.newInstruction;
+import static pt.up.fe.comp2024.backend.peephole.JasminOpcode.*;
+
+/**
+ * Local rewrites of the code of a Jasmin method. Each pattern looks at the instructions starting at a given index and
+ * replaces them if they match.
+ * <p>
+ * Labels are entries of the code too, so a pattern never merges instructions that a branch can jump between.
+ */
+public enum PeepholePattern {
+
+    /**
+     * istore_2; iload_2  ->  dup; istore_2
+     */
+    STORE_RELOAD {
+        @Override
+        boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+            if (index + 1 >= code.size()) {
+                return false;
+            }
+
+            var store = code.get(index);
+            var load = code.get(index + 1);
+            if (!store.isStore() || !load.is(store.opcode().getReload()) || store.getLocal() != load.getLocal()) {
+                return false;
+            }
+
+            code.set(index, newInstruction(DUP));
+            code.set(index + 1, store);
+            return true;
+        }
+    },
+
+    /**
+     * istore_2  ->  pop, when local 2 is never read
+     */
+    DEAD_STORE {
+        @Override
+        boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+            var store = code.get(index);
+            if (!store.isStore() || readRegisters.contains(store.getLocal())) {
+                return false;
+            }
+
+            code.set(index, newInstruction(POP));
+            return true;
+        }
+    },
+
+    /**
+     * goto L; L:  ->  L:
+     */
+    GOTO_NEXT {
+        @Override
+        boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+            if (!code.get(index).is(GOTO)) {
+                return false;
+            }
+
+            var target = code.get(index).getTarget();
+            for (int i = index + 1; i < code.size() && code.get(i).isLabel(); i++) {
+                if (code.get(i).label().equals(target)) {
+                    code.remove(index);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    },
+
+    /**
+     * iconst_1; ixor; iconst_1; ixor  ->  nothing
+     */
+    DOUBLE_NEGATION {
+        @Override
+        boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+            if (index + 3 >= code.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < 4; i += 2) {
+                if (!code.get(index + i).is(ICONST_1) || !code.get(index + i + 1).is(IXOR)) {
+                    return false;
+                }
+            }
+
+            code.subList(index, index + 4).clear();
+            return true;
+        }
+    },
+
+    /**
+     * iload_1; pop  ->  nothing, for any instruction that only pushes a value
+     */
+    PUSH_POP {
+        @Override
+        boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters) {
+            if (index + 1 >= code.size() || !code.get(index + 1).is(POP)) {
+                return false;
+            }
+
+            var push = code.get(index);
+            if (push.isLabel() || !push.opcode().onlyPushes()) {
+                return false;
+            }
+
+            code.subList(index, index + 2).clear();
+            return true;
+        }
+    };
+
+    /**
+     * Rewrites the code if the pattern matches at the index.
+     *
+     * @param code          the code of the method, changed in place
+     * @param index         position of the first instruction of the pattern
+     * @param readRegisters locals that may be read somewhere in the method
+     * @return true if the code was changed
+     */
+    abstract boolean apply(List<JasminInstruction> code, int index, Set<Integer> readRegisters);
+
+    public String getName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Run of a semantic analysis pass over the AST. The passes share a single traversal, so each event is committed after
+ * it and has the totals of the calls of the visit methods of its pass.
+ */
+@Name("pt.up.fe.comp2024.AnalysisPass")
+@Label("Analysis Pass")
+@Category({"Java--", "Compiler"})
+@Description("Run of a semantic analysis pass over the AST")
+public class AnalysisPassEvent extends Event {
+
+    @Label("Pass")
+    public String pass;
+
+    @Label("Class Name")
+    public String className;
+
+    @Label("Call Count")
+    @Description("Calls of the visit methods of the pass")
+    public int callCount;
+
+    @Label("Pass Time")
+    @Description("Wall time of the calls of the visit methods of the pass")
+    @Timespan(Timespan.NANOSECONDS)
+    public long passTime;
+
+    @Label("Pass CPU Time")
+    @Description("CPU time of the calls of the visit methods of the pass, or -1 if not supported")
+    @Timespan(Timespan.NANOSECONDS)
+    public long passCpuTime;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the calls of the visit methods of the pass, or -1 if not supported")
+    @DataAmount(DataAmount.BYTES)
+    public long allocatedBytes;
+
+    @Label("Report Count")
+    public int reportCount;
+}
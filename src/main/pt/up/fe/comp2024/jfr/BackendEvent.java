@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emission of the Jasmin code of a class from its OLLIR.
+ */
+@Name("pt.up.fe.comp2024.Backend")
+@Label("Backend")
+@Category({"Java--", "Compiler"})
+@Description("Emission of the Jasmin code of a class from its OLLIR")
+public class BackendEvent extends Event {
+
+    @Label("Class Name")
+    public String className;
+
+    @Label("Method Count")
+    public int methodCount;
+
+    @Label("Instruction Count")
+    @Description("Jasmin instructions of all the methods")
+    public int instructionCount;
+}
@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Generation of the OLLIR code of a class from its AST.
+ */
+@Name("pt.up.fe.comp2024.OllirGeneration")
+@Label("OLLIR Generation")
+@Category({"Java--", "Compiler"})
+@Description("Generation of the OLLIR code of a class from its AST")
+public class OllirGenerationEvent extends Event {
+
+    @Label("Class Name")
+    public String className;
+
+    @Label("Node Count")
+    public int nodeCount;
+
+    @Label("Instruction Count")
+    @Description("OLLIR instructions of all the methods")
+    public int instructionCount;
+}
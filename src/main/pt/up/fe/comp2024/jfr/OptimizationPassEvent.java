@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Run of an optimization pass over an OLLIR method.
+ */
+@Name("pt.up.fe.comp2024.OptimizationPass")
+@Label("Optimization Pass")
+@Category({"Java--", "Compiler"})
+@Description("Run of an optimization pass over an OLLIR method")
+public class OptimizationPassEvent extends Event {
+
+    @Label("Pass")
+    public String pass;
+
+    @Label("Class Name")
+    public String className;
+
+    @Label("Method Name")
+    public String methodName;
+
+    @Label("Instruction Count")
+    @Description("OLLIR instructions of the method after the pass")
+    public int instructionCount;
+
+    @Label("Changed")
+    public boolean changed;
+}
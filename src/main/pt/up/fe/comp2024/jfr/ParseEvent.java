@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Parsing of a Java-- program into an AST.
+ */
+@Name("pt.up.fe.comp2024.Parse")
+@Label("Parse")
+@Category({"Java--", "Compiler"})
+@Description("Parsing of a program into an AST")
+public class ParseEvent extends Event {
+
+    @Label("Class Name")
+    public String className;
+
+    @Label("Node Count")
+    public int nodeCount;
+
+    @Label("Prediction Mode")
+    @Description("SLL, or LL if the program had to be parsed again with full LL")
+    public String predictionMode;
+}
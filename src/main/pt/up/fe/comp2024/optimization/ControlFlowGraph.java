@@ -0,0 +1,101 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Control-flow graph over the instruction list of an OLLIR method, where nodes are instruction indexes.
+ * <p>
+ * Unlike {@link Method#buildCFG()}, it can be rebuilt any number of times, which is needed by passes that change the
+ * instruction list.
+ */
+public class ControlFlowGraph {
+
+    private final List<Instruction> instructions;
+    private final List<List<Integer>> successors;
+    private final List<List<Integer>> predecessors;
+
+    public ControlFlowGraph(Method method) {
+        this.instructions = method.getInstructions();
+
+        int size = instructions.size();
+        successors = new ArrayList<>(size);
+        predecessors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            successors.add(new ArrayList<>(2));
+            predecessors.add(new ArrayList<>(2));
+        }
+
+        Map<Instruction, Integer> indexes = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        for (int i = 0; i < size; i++) {
+            var inst = instructions.get(i);
+
+            if (inst instanceof GotoInstruction gotoInst) {
+                addEdge(i, indexes.get(method.getLabels().get(gotoInst.getLabel())));
+            } else if (inst instanceof CondBranchInstruction condBranch) {
+                addEdge(i, indexes.get(method.getLabels().get(condBranch.getLabel())));
+                addEdge(i, i + 1);
+            } else if (!(inst instanceof ReturnInstruction)) {
+                addEdge(i, i + 1);
+            }
+        }
+    }
+
+    private void addEdge(int from, Integer to) {
+        if (to == null || to >= instructions.size()) {
+            return;
+        }
+
+        successors.get(from).add(to);
+        predecessors.get(to).add(from);
+    }
+
+    public int size() {
+        return instructions.size();
+    }
+
+    public Instruction getInstruction(int index) {
+        return instructions.get(index);
+    }
+
+    public List<Integer> getSuccessors(int index) {
+        return successors.get(index);
+    }
+
+    public List<Integer> getPredecessors(int index) {
+        return predecessors.get(index);
+    }
+
+    /**
+     * @return for each instruction, true if it can be reached from the first instruction of the method
+     */
+    public boolean[] getReachable() {
+        var reachable = new boolean[size()];
+        if (size() == 0) {
+            return reachable;
+        }
+
+        var worklist = new ArrayList<Integer>();
+        worklist.add(0);
+        reachable[0] = true;
+        while (!worklist.isEmpty()) {
+            int current = worklist.remove(worklist.size() - 1);
+            for (int succ : successors.get(current)) {
+                if (!reachable[succ]) {
+                    reachable[succ] = true;
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        return reachable;
+    }
+}
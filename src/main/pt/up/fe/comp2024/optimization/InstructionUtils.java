@@ -0,0 +1,143 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Helpers to inspect and rewrite the elements read and written by OLLIR instructions.
+ */
+public class InstructionUtils {
+
+    /**
+     * Applies the given function to every element read by the instruction, replacing each element with the returned
+     * one. Elements that cannot be replaced (e.g., the object of a call or a field access) are still passed to the
+     * function, but its result is ignored.
+     *
+     * @param inst
+     * @param replacer
+     */
+    public static void replaceUses(Instruction inst, UnaryOperator<Element> replacer) {
+
+        if (inst instanceof AssignInstruction assign) {
+            if (assign.getDest() instanceof ArrayOperand arrayDest) {
+                replaceIndexes(arrayDest, replacer);
+                replacer.apply(arrayDest);
+            }
+            replaceUses(assign.getRhs(), replacer);
+        } else if (inst instanceof SingleOpInstruction singleOp) {
+            singleOp.setSingleOperand(replace(singleOp.getSingleOperand(), replacer));
+        } else if (inst instanceof BinaryOpInstruction binaryOp) {
+            binaryOp.setLeftOperand(replace(binaryOp.getLeftOperand(), replacer));
+            binaryOp.setRightOperand(replace(binaryOp.getRightOperand(), replacer));
+        } else if (inst instanceof UnaryOpInstruction unaryOp) {
+            unaryOp.setOperand(replace(unaryOp.getOperand(), replacer));
+        } else if (inst instanceof CallInstruction call) {
+            var invocationType = call.getInvocationType();
+            // the caller of "new" and of static calls is a class name, not a variable
+            if (invocationType != CallType.NEW && invocationType != CallType.invokestatic
+                    && invocationType != CallType.ldc) {
+                replacer.apply(call.getCaller());
+            }
+            var arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.set(i, replace(arguments.get(i), replacer));
+            }
+        } else if (inst instanceof ReturnInstruction ret) {
+            if (ret.hasReturnValue()) {
+                ret.setOperand(replace(ret.getOperand(), replacer));
+            }
+        } else if (inst instanceof PutFieldInstruction putField) {
+            replacer.apply(putField.getObject());
+            var operands = new ArrayList<>(putField.getOperands());
+            operands.set(2, replace(operands.get(2), replacer));
+            putField.setOperands(operands);
+        } else if (inst instanceof GetFieldInstruction getField) {
+            replacer.apply(getField.getObject());
+        } else if (inst instanceof CondBranchInstruction condBranch) {
+            replaceUses(condBranch.getCondition(), replacer);
+        }
+    }
+
+    /**
+     * @param inst
+     * @return the variables read by the instruction
+     */
+    public static List<Operand> getUses(Instruction inst) {
+        var uses = new ArrayList<Operand>();
+
+        replaceUses(inst, element -> {
+            if (element instanceof Operand operand) {
+                uses.add(operand);
+            }
+            return element;
+        });
+
+        return uses;
+    }
+
+    /**
+     * @param inst
+     * @return the variable written by the instruction, if any. Stores into array elements do not define a variable
+     */
+    public static Optional<Operand> getDef(Instruction inst) {
+        if (inst instanceof AssignInstruction assign
+                && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand)) {
+            return Optional.of(dest);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @param element
+     * @return the value of the element if it is an integer or boolean literal, null otherwise
+     */
+    public static Integer getIntLiteral(Element element) {
+        if (!(element instanceof LiteralElement literal) || !isIntOrBoolean(element.getType())) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(literal.getLiteral());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static boolean isIntOrBoolean(Type type) {
+        var elementType = type.getTypeOfElement();
+        return elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN;
+    }
+
+    /**
+     * Replaces an instruction of the method with another one, keeping the labels that pointed to the old instruction.
+     *
+     * @param method
+     * @param index
+     * @param newInst
+     */
+    public static void replaceInstruction(Method method, int index, Instruction newInst) {
+        var oldInst = method.getInstructions().set(index, newInst);
+        method.getLabels().replaceAll((label, inst) -> inst == oldInst ? newInst : inst);
+    }
+
+    private static Element replace(Element element, UnaryOperator<Element> replacer) {
+        if (element instanceof ArrayOperand arrayOperand) {
+            replaceIndexes(arrayOperand, replacer);
+        }
+
+        return replacer.apply(element);
+    }
+
+    private static void replaceIndexes(ArrayOperand arrayOperand, UnaryOperator<Element> replacer) {
+        var indexes = arrayOperand.getIndexOperands();
+        for (int i = 0; i < indexes.size(); i++) {
+            indexes.set(i, replacer.apply(indexes.get(i)));
+        }
+    }
+}
@@ -1,27 +1,168 @@
 package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.ExpressionTypes;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.jfr.OllirGenerationEvent;
+import pt.up.fe.comp2024.jfr.OptimizationPassEvent;
+import pt.up.fe.comp2024.optimization.passes.ConstantFolding;
+import pt.up.fe.comp2024.optimization.passes.ConstantPropagation;
+import pt.up.fe.comp2024.optimization.regalloc.RegisterAllocation;
+import pt.up.fe.comp2024.utils.StageMetrics;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private final List<OptimizationPass> optimizationPasses;
+
+    public JmmOptimizationImpl() {
+
+        this.optimizationPasses = List.of(new ConstantPropagation(),
+                new ConstantFolding()
+        );
+
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(),
+                ExpressionTypes.of(semanticsResult));
+        var rootNode = semanticsResult.getRootNode();
+        var metrics = CompilerConfig.getMetrics(semanticsResult.getConfig()) ? new StageMetrics("ollir") : null;
+
+        var event = new OllirGenerationEvent();
+        event.begin();
+
+        var ollirCode = metrics == null ? visitor.visit(rootNode)
+                : metrics.measure("ollirGenerator", () -> visitor.visit(rootNode));
+
+        event.end();
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        List<Report> reports = metrics == null ? Collections.emptyList() : List.of(metrics.toReport(Stage.LLIR));
+        var ollirResult = new OllirResult(semanticsResult, ollirCode, reports);
+
+        if (event.shouldCommit()) {
+            event.className = semanticsResult.getSymbolTable().getClassName();
+            event.nodeCount = NodeUtils.countNodes(rootNode);
+            if (ollirResult.getOllirClass() != null) {
+                for (var method : ollirResult.getOllirClass().getMethods()) {
+                    event.instructionCount += method.getInstructions().size();
+                }
+            }
+            event.commit();
+        }
+
+        return ollirResult;
     }
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        //TODO: Do your OLLIR-based optimizations here
+        var config = ollirResult.getConfig();
 
-        return ollirResult;
+        if (!CompilerConfig.getMetrics(config)) {
+            return optimizeOllir(ollirResult);
+        }
+
+        // the reports of the result are the ones of the next stages, so the metrics are added to it
+        var metrics = new StageMetrics("optimization");
+        var optimized = metrics.measure("optimize", () -> optimizeOllir(ollirResult));
+        optimized.getReports().add(metrics.toReport(Stage.OPTIMIZATION));
+
+        return optimized;
+    }
+
+    private OllirResult optimizeOllir(OllirResult ollirResult) {
+
+        var config = ollirResult.getConfig();
+
+        var result = CompilerConfig.getOptimize(config) ? runOptimizationPasses(ollirResult) : ollirResult;
+
+        // Register allocation runs last, since the other passes change which variables are live
+        int maxRegisters = CompilerConfig.getRegisterAllocation(config);
+        if (maxRegisters >= 0) {
+            var strategy = RegisterAllocation.Strategy.fromName(CompilerConfig.getRegisterAllocator(config));
+            var registerAllocation = new RegisterAllocation(maxRegisters, strategy);
+            for (var method : result.getOllirClass().getMethods()) {
+                // the variables of every method get new registers
+                runPass("RegisterAllocation", method, () -> {
+                    registerAllocation.allocate(method).ifPresent(result.getReports()::add);
+                    return true;
+                });
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs the passes over each method of the class until they change nothing.
+     *
+     * @return the result with the optimized class and its code, or the same result if nothing changed
+     */
+    private OllirResult runOptimizationPasses(OllirResult ollirResult) {
+
+        // Passes work on the parsed OLLIR class, which is what the backend uses
+        boolean classChanged = false;
+        for (var method : ollirResult.getOllirClass().getMethods()) {
+            boolean changed;
+            do {
+                changed = false;
+                for (var optimizationPass : optimizationPasses) {
+                    changed |= runPass(optimizationPass.getClass().getSimpleName(), method,
+                            () -> optimizationPass.optimize(method));
+                }
+                classChanged |= changed;
+            } while (changed);
+        }
+
+        return classChanged ? withOptimizedCode(ollirResult) : ollirResult;
+    }
+
+    /**
+     * The code of a result is not changed by the passes, which only change its class, so the class is printed as the
+     * new code, which is parsed again into the class of the result that is returned.
+     */
+    private static OllirResult withOptimizedCode(OllirResult ollirResult) {
+        var ollirCode = OllirPrinter.print(ollirResult.getOllirClass());
+        var semanticsResult = new JmmSemanticsResult((JmmNode) null, ollirResult.getSymbolTable(),
+                Collections.emptyList(), ollirResult.getConfig());
+
+        return new OllirResult(semanticsResult, ollirCode, ollirResult.getReports());
+    }
+
+    /**
+     * Runs a pass over a method, and records it as an {@link OptimizationPassEvent}.
+     *
+     * @return if the method was changed
+     */
+    private static boolean runPass(String name, Method method, BooleanSupplier pass) {
+        var event = new OptimizationPassEvent();
+        event.begin();
+
+        boolean changed = pass.getAsBoolean();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.pass = name;
+            event.className = method.getOllirClass().getClassName();
+            event.methodName = method.getMethodName();
+            event.instructionCount = method.getInstructions().size();
+            event.changed = changed;
+            event.commit();
+        }
+
+        return changed;
     }
 }
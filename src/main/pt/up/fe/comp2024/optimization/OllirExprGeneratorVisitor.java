@@ -4,7 +4,10 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.analysis.ExpressionTypes;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 import java.util.ArrayList;
 
@@ -20,9 +23,14 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private final String END_STMT = ";\n";
 
     private final SymbolTable table;
+    private final ExpressionTypes types;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    /**
+     * @param types the types of the expressions, inferred by the semantic analysis
+     */
+    public OllirExprGeneratorVisitor(SymbolTable table, ExpressionTypes types) {
         this.table = table;
+        this.types = types;
     }
 
     @Override
@@ -183,18 +191,10 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                         .append(ollirType).append(";\n");
                 // missing arguments to pass;
             } else {
-                Type typeObject = new Type("", false);
-                for (var variable : table.getFields()) {
-                    if (variable.getName().equals(node.getChild(0).get("name"))) {
-                        typeObject = variable.getType();
-                    }
-                }
-
-                for (var variable : table.getLocalVariables(node.getAncestor(METHOD_DECL).get().get("name"))) {
-                    if (variable.getName().equals(node.getChild(0).get("name"))) {
-                        typeObject = variable.getType();
-                    }
-                }
+                var currentMethod = node.getAncestor(METHOD_DECL).get().get("name");
+                Type typeObject = JmmSymbolTable.resolve(table, node.getChild(0).get("name"), currentMethod)
+                        .map(ResolvedSymbol::getType)
+                        .orElse(new Type("", false));
 
                 var parameters = node.getChildren().subList(1, node.getNumChildren());
 
@@ -220,18 +220,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             return new OllirExprResult(code, computation);
         }
 
-        for (var field : table.getFields()) {
-            if (field.getName().equals(node.getChild(0).get("name"))) {
-                computation.append("code");
-                return new OllirExprResult("code");
-            }
-        }
-
-        for (var varia : table.getLocalVariables(methodName)) {
-            if (varia.getName().equals(node.getChild(0).get("name"))) {
-                computation.append("code");
-                return new OllirExprResult("code");
-            }
+        if (JmmSymbolTable.resolve(table, node.getChild(0).get("name"), methodName).isPresent()) {
+            computation.append("code");
+            return new OllirExprResult("code");
         }
 
         return null;
@@ -262,7 +253,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         computation.append(rhs.getComputation());
 
         // code to compute self
-        Type resType = TypeUtils.getExprType(node, table);
+        Type resType = TypeUtils.getExprType(node, table, types);
         String resOllirType = OptUtils.toOllirType(resType);
 
         String code;
@@ -276,7 +267,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                 .append(ASSIGN).append(resOllirType).append(SPACE)
                 .append(lhs.getCode()).append(SPACE);
 
-        Type type = TypeUtils.getExprType(node, table);
+        Type type = TypeUtils.getExprType(node, table, types);
         computation.append(node.get("name")).append(OptUtils.toOllirType(type)).append(SPACE)
                 .append(rhs.getCode()).append(END_STMT);
 
@@ -287,7 +278,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private OllirExprResult visitVarRef(JmmNode node, Void unused) {
 
         var id = node.get("name");
-        Type type = TypeUtils.getExprType(node, table);
+        Type type = TypeUtils.getExprType(node, table, types);
         String ollirType = OptUtils.toOllirType(type);
 
         String code = id + ollirType;
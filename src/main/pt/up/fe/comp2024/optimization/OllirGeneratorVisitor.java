@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.ExpressionTypes;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
@@ -27,12 +28,17 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String L_BRACKET = " {\n";
     private final String R_BRACKET = "}\n";
     private final SymbolTable table;
+    private final ExpressionTypes types;
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
-    public OllirGeneratorVisitor(SymbolTable table) {
+    /**
+     * @param types the types of the expressions, inferred by the semantic analysis
+     */
+    public OllirGeneratorVisitor(SymbolTable table, ExpressionTypes types) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.types = types;
+        exprVisitor = new OllirExprGeneratorVisitor(table, types);
     }
 
     @Override
@@ -200,7 +206,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         // code to compute self
         // statement has type of lhs
-        Type thisType = TypeUtils.getExprType(node.getJmmChild(0), table);
+        Type thisType = TypeUtils.getExprType(node.getJmmChild(0), table, types);
         String typeString = OptUtils.toOllirType(thisType);
 
 
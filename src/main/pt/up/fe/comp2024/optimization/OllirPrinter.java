@@ -0,0 +1,263 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a parsed OLLIR class back as OLLIR code, e.g. after the optimization passes changed its methods, so that the
+ * code and the class of an {@link pt.up.fe.comp.jmm.ollir.OllirResult} stay the same program.
+ */
+public class OllirPrinter {
+
+    private static final String NL = "\n";
+
+    private OllirPrinter() {
+    }
+
+    /**
+     * @param classUnit
+     * @return the OLLIR code of the class, which parses back into an equivalent class
+     */
+    public static String print(ClassUnit classUnit) {
+        var code = new StringBuilder();
+
+        for (var importName : classUnit.getImports()) {
+            code.append("import ").append(importName).append(";").append(NL);
+        }
+
+        code.append(accessModifier(classUnit.getClassAccessModifier()));
+        if (classUnit.isStaticClass()) {
+            code.append("static ");
+        }
+        if (classUnit.isFinalClass()) {
+            code.append("final ");
+        }
+        code.append(classUnit.getClassName());
+        if (classUnit.getSuperClass() != null) {
+            code.append(" extends ").append(classUnit.getSuperClass());
+        }
+        code.append(" {").append(NL);
+
+        for (var field : classUnit.getFields()) {
+            code.append(NL).append(field(field));
+        }
+
+        for (var method : classUnit.getMethods()) {
+            code.append(NL).append(method(method));
+        }
+
+        code.append("}").append(NL);
+
+        return code.toString();
+    }
+
+    private static String field(Field field) {
+        var code = new StringBuilder(".field ");
+
+        code.append(accessModifier(field.getFieldAccessModifier()));
+        if (field.isStaticField()) {
+            code.append("static ");
+        }
+        if (field.isFinalField()) {
+            code.append("final ");
+        }
+        code.append(field.getFieldName()).append(type(field.getFieldType()));
+        if (field.isInitialized()) {
+            code.append(" := ").append(field.getInitialValue());
+        }
+        code.append(";").append(NL);
+
+        return code.toString();
+    }
+
+    private static String method(Method method) {
+        var code = new StringBuilder();
+
+        if (method.isConstructMethod()) {
+            code.append(".construct ").append(method.getMethodName());
+        } else {
+            code.append(".method ").append(accessModifier(method.getMethodAccessModifier()));
+            if (method.isStaticMethod()) {
+                code.append("static ");
+            }
+            if (method.isFinalMethod()) {
+                code.append("final ");
+            }
+            if (method.isVarargs()) {
+                code.append("varargs ");
+            }
+            code.append(method.getMethodName());
+        }
+
+        var params = method.getParams().stream()
+                .map(OllirPrinter::element)
+                .collect(Collectors.joining(", ", "(", ")"));
+        code.append(params).append(type(method.getReturnType())).append(" {").append(NL);
+
+        // the labels map of the method is cached on first use, so it is built again from the current labels
+        Map<Instruction, List<String>> labels = new IdentityHashMap<>();
+        for (var entry : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(entry.getValue(), inst -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        for (var inst : method.getInstructions()) {
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                code.append(label).append(":").append(NL);
+            }
+            code.append(instruction(inst)).append(";").append(NL);
+        }
+
+        code.append("}").append(NL);
+
+        return code.toString();
+    }
+
+    private static String instruction(Instruction inst) {
+        if (inst instanceof AssignInstruction assign) {
+            return element(assign.getDest()) + " :=" + type(assign.getTypeOfAssign()) + " "
+                    + instruction(assign.getRhs());
+        }
+
+        if (inst instanceof SingleOpInstruction singleOp) {
+            return element(singleOp.getSingleOperand());
+        }
+
+        if (inst instanceof BinaryOpInstruction binaryOp) {
+            return element(binaryOp.getLeftOperand()) + " " + operation(binaryOp.getOperation()) + " "
+                    + element(binaryOp.getRightOperand());
+        }
+
+        if (inst instanceof UnaryOpInstruction unaryOp) {
+            return operation(unaryOp.getOperation()) + " " + element(unaryOp.getOperand());
+        }
+
+        if (inst instanceof CallInstruction call) {
+            return call(call);
+        }
+
+        if (inst instanceof GotoInstruction gotoInst) {
+            return "goto " + gotoInst.getLabel();
+        }
+
+        if (inst instanceof CondBranchInstruction condBranch) {
+            return "if (" + instruction(condBranch.getCondition()) + ") goto " + condBranch.getLabel();
+        }
+
+        if (inst instanceof ReturnInstruction ret) {
+            var code = "ret" + type(ret.getReturnType());
+            return ret.hasReturnValue() ? code + " " + element(ret.getOperand()) : code;
+        }
+
+        if (inst instanceof PutFieldInstruction putField) {
+            return "putfield(" + element(putField.getObject()) + ", " + element(putField.getField()) + ", "
+                    + element(putField.getValue()) + ").V";
+        }
+
+        if (inst instanceof GetFieldInstruction getField) {
+            return "getfield(" + element(getField.getObject()) + ", " + element(getField.getField()) + ")"
+                    + type(getField.getFieldType());
+        }
+
+        throw new IllegalArgumentException("Cannot print OLLIR instruction " + inst.getInstType());
+    }
+
+    private static String call(CallInstruction call) {
+        var args = new ArrayList<String>();
+
+        switch (call.getInvocationType()) {
+            case NEW -> {
+                // the class of the new object, or 'array' followed by the size
+                var caller = call.getCaller();
+                args.add(caller.getType().getTypeOfElement() == ElementType.ARRAYREF ? "array"
+                        : ((Operand) caller).getName());
+                call.getArguments().forEach(arg -> args.add(element(arg)));
+                return "new(" + String.join(", ", args) + ")" + type(call.getReturnType());
+            }
+            case arraylength -> {
+                return "arraylength(" + element(call.getCaller()) + ")" + type(call.getReturnType());
+            }
+            case ldc -> {
+                return "ldc(" + ((LiteralElement) call.getCaller()).getLiteral() + ").String";
+            }
+            case invokestatic -> args.add(((Operand) call.getCaller()).getName());
+            default -> args.add(element(call.getCaller()));
+        }
+
+        args.add(((LiteralElement) call.getMethodName()).getLiteral());
+        call.getArguments().forEach(arg -> args.add(element(arg)));
+
+        return call.getInvocationType().name() + "(" + String.join(", ", args) + ")" + type(call.getReturnType());
+    }
+
+    private static String element(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral() + type(literal.getType());
+        }
+
+        var operand = (Operand) element;
+        var elementType = operand.getType().getTypeOfElement();
+        if (elementType == ElementType.THIS) {
+            return "this";
+        }
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            var indexes = arrayOperand.getIndexOperands().stream()
+                    .map(OllirPrinter::element)
+                    .collect(Collectors.joining("][", "[", "]"));
+            return operand.getName() + indexes + type(operand.getType());
+        }
+
+        return operand.getName() + type(operand.getType());
+    }
+
+    private static String operation(Operation operation) {
+        var symbol = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case SHR -> ">>";
+            case SHL -> "<<";
+            case SHRR -> ">>>";
+            case XOR -> "^";
+            case AND -> "&";
+            case OR -> "|";
+            case LTH -> "<";
+            case GTH -> ">";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            case NOT -> "~";
+        };
+
+        return symbol + type(operation.getTypeInfo());
+    }
+
+    private static String type(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+            case ARRAYREF -> ".array" + type(((ArrayType) type).getElementType());
+            case OBJECTREF, CLASS, THIS -> "." + ((ClassType) type).getName();
+        };
+    }
+
+    private static String accessModifier(AccessModifier accessModifier) {
+        if (accessModifier == null || accessModifier == AccessModifier.DEFAULT) {
+            return "";
+        }
+
+        return accessModifier.name().toLowerCase() + " ";
+    }
+}
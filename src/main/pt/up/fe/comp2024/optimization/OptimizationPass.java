@@ -0,0 +1,18 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Method;
+
+/**
+ * Represents an OLLIR optimization pass.
+ */
+public interface OptimizationPass {
+
+    /**
+     * Optimizes the given method in place.
+     *
+     * @param method the OLLIR method that will be transformed
+     * @return true if the method was changed, false otherwise
+     */
+    boolean optimize(Method method);
+
+}
@@ -0,0 +1,187 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+import pt.up.fe.comp2024.optimization.InstructionUtils;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Replaces operations whose operands are all literals by their result.
+ * <p>
+ * Conditional branches with a constant condition become gotos (always taken) or are removed (never taken), and the
+ * instructions that become unreachable are removed from the method.
+ */
+public class ConstantFolding implements OptimizationPass {
+
+    @Override
+    public boolean optimize(Method method) {
+        var instructions = method.getInstructions();
+        if (instructions.isEmpty()) {
+            return false;
+        }
+
+        boolean changed = false;
+        var remove = new boolean[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+
+            if (inst instanceof AssignInstruction assign && assign.getRhs() instanceof OpInstruction rhs) {
+                var value = evaluate(rhs, InstructionUtils::getIntLiteral);
+                if (value == null) {
+                    continue;
+                }
+
+                var literal = new LiteralElement(String.valueOf(value), assign.getTypeOfAssign());
+                var folded = new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(), new SingleOpInstruction(literal));
+                InstructionUtils.replaceInstruction(method, i, folded);
+                changed = true;
+            } else if (inst instanceof CondBranchInstruction condBranch) {
+                var value = evaluate(condBranch.getCondition(), InstructionUtils::getIntLiteral);
+                if (value == null) {
+                    continue;
+                }
+
+                if (value != 0) {
+                    InstructionUtils.replaceInstruction(method, i, new GotoInstruction(condBranch.getLabel()));
+                } else {
+                    remove[i] = true;
+                }
+                changed = true;
+            }
+        }
+
+        if (!changed) {
+            return false;
+        }
+
+        // branches that are never taken are removed, and their labels move to the next instruction
+        removeInstructions(method, remove, true);
+
+        // drop the code that is no longer reachable
+        var reachable = new ControlFlowGraph(method).getReachable();
+        for (int i = 0; i < reachable.length; i++) {
+            reachable[i] = !reachable[i];
+        }
+        removeInstructions(method, reachable, false);
+
+        return true;
+    }
+
+    /**
+     * Computes the value of an instruction, given a way of getting the value of its operands.
+     *
+     * @param inst
+     * @param values returns the value of an element, or null if it is not a constant
+     * @return the value of the instruction, or null if it cannot be computed at compile time
+     */
+    public static Integer evaluate(Instruction inst, Function<Element, Integer> values) {
+
+        if (inst instanceof SingleOpInstruction singleOp) {
+            return values.apply(singleOp.getSingleOperand());
+        }
+
+        if (inst instanceof UnaryOpInstruction unaryOp) {
+            var operand = values.apply(unaryOp.getOperand());
+            if (operand == null) {
+                return null;
+            }
+
+            return switch (unaryOp.getOperation().getOpType()) {
+                case NOTB -> operand == 0 ? 1 : 0;
+                default -> null;
+            };
+        }
+
+        if (inst instanceof BinaryOpInstruction binaryOp) {
+            var left = values.apply(binaryOp.getLeftOperand());
+            var right = values.apply(binaryOp.getRightOperand());
+            if (left == null || right == null) {
+                return null;
+            }
+
+            return evaluate(binaryOp.getOperation().getOpType(), left, right);
+        }
+
+        return null;
+    }
+
+    private static Integer evaluate(OperationType opType, int left, int right) {
+        return switch (opType) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            // division by zero must still throw at runtime
+            case DIV -> right == 0 ? null : left / right;
+            case SHL -> left << right;
+            case SHR -> left >> right;
+            case SHRR -> left >>> right;
+            case AND -> left & right;
+            case OR -> left | right;
+            case XOR -> left ^ right;
+            case LTH -> toBoolean(left < right);
+            case GTH -> toBoolean(left > right);
+            case LTE -> toBoolean(left <= right);
+            case GTE -> toBoolean(left >= right);
+            case EQ -> toBoolean(left == right);
+            case NEQ -> toBoolean(left != right);
+            case ANDB -> toBoolean(left != 0 && right != 0);
+            case ORB -> toBoolean(left != 0 || right != 0);
+            default -> null;
+        };
+    }
+
+    private static int toBoolean(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    /**
+     * Removes the marked instructions from the method.
+     *
+     * @param method
+     * @param remove
+     * @param keepLabels if true, labels of removed instructions are moved to the next kept instruction, otherwise
+     *                   they are dropped
+     */
+    private static void removeInstructions(Method method, boolean[] remove, boolean keepLabels) {
+        var instructions = method.getInstructions();
+        var kept = new ArrayList<Instruction>(instructions.size());
+        var removed = new ArrayList<Instruction>();
+        Map<Instruction, Instruction> movedTo = new IdentityHashMap<>();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            if (remove[i]) {
+                removed.add(inst);
+                continue;
+            }
+
+            if (keepLabels) {
+                removed.forEach(r -> movedTo.put(r, inst));
+                removed.clear();
+            }
+            kept.add(inst);
+        }
+
+        if (kept.size() == instructions.size()) {
+            return;
+        }
+
+        Set<Instruction> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        keptSet.addAll(kept);
+
+        method.getLabels().entrySet().removeIf(entry -> !movedTo.containsKey(entry.getValue())
+                && !keptSet.contains(entry.getValue()));
+        method.getLabels().replaceAll((label, inst) -> movedTo.getOrDefault(inst, inst));
+
+        instructions.clear();
+        instructions.addAll(kept);
+    }
+}
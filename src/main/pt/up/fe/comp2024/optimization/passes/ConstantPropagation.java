@@ -0,0 +1,146 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+import pt.up.fe.comp2024.optimization.InstructionUtils;
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+
+import java.util.*;
+
+/**
+ * Replaces reads of integer and boolean variables that hold a known constant by the constant itself.
+ * <p>
+ * Uses a forward dataflow analysis over the control-flow graph of the method, so values are only propagated if every
+ * path that reaches an instruction (including loop back-edges) agrees on the value of the variable.
+ * <p>
+ * The state maps variable names to their value. A variable without an entry has not been assigned yet, and a variable
+ * mapped to null can have more than one value.
+ */
+public class ConstantPropagation implements OptimizationPass {
+
+    @Override
+    public boolean optimize(Method method) {
+        var cfg = new ControlFlowGraph(method);
+        var constants = computeConstants(method, cfg);
+
+        boolean changed = false;
+        for (int i = 0; i < cfg.size(); i++) {
+            // unreachable instruction
+            if (constants.get(i) == null) {
+                continue;
+            }
+
+            changed |= propagate(cfg.getInstruction(i), constants.get(i));
+        }
+
+        return changed;
+    }
+
+    /**
+     * @param method
+     * @param cfg
+     * @return for each instruction, the state of the variables before it executes
+     */
+    private List<Map<String, Integer>> computeConstants(Method method, ControlFlowGraph cfg) {
+        List<Map<String, Integer>> in = new ArrayList<>(Collections.nCopies(cfg.size(), null));
+        if (cfg.size() == 0) {
+            return in;
+        }
+
+        // parameters can have any value
+        var entry = new HashMap<String, Integer>();
+        for (var param : method.getParams()) {
+            if (param instanceof Operand operand) {
+                entry.put(operand.getName(), null);
+            }
+        }
+        in.set(0, entry);
+
+        var worklist = new ArrayDeque<Integer>();
+        var inWorklist = new boolean[cfg.size()];
+        worklist.add(0);
+        inWorklist[0] = true;
+
+        while (!worklist.isEmpty()) {
+            int current = worklist.poll();
+            inWorklist[current] = false;
+
+            var out = transfer(cfg.getInstruction(current), new HashMap<>(in.get(current)));
+
+            for (int succ : cfg.getSuccessors(current)) {
+                var merged = in.get(succ) == null ? new HashMap<>(out) : meet(in.get(succ), out);
+                if (merged.equals(in.get(succ))) {
+                    continue;
+                }
+
+                in.set(succ, merged);
+                if (!inWorklist[succ]) {
+                    worklist.add(succ);
+                    inWorklist[succ] = true;
+                }
+            }
+        }
+
+        return in;
+    }
+
+    private Map<String, Integer> transfer(Instruction inst, Map<String, Integer> state) {
+        var def = InstructionUtils.getDef(inst);
+        if (def.isEmpty() || !InstructionUtils.isIntOrBoolean(def.get().getType())) {
+            return state;
+        }
+
+        var rhs = ((AssignInstruction) inst).getRhs();
+        state.put(def.get().getName(), ConstantFolding.evaluate(rhs, element -> getValue(element, state)));
+
+        return state;
+    }
+
+    private Map<String, Integer> meet(Map<String, Integer> first, Map<String, Integer> second) {
+        var result = new HashMap<>(first);
+
+        for (var entry : second.entrySet()) {
+            var name = entry.getKey();
+            if (!result.containsKey(name)) {
+                result.put(name, entry.getValue());
+            } else if (!Objects.equals(result.get(name), entry.getValue())) {
+                result.put(name, null);
+            }
+        }
+
+        return result;
+    }
+
+    private Integer getValue(Element element, Map<String, Integer> state) {
+        if (element instanceof LiteralElement) {
+            return InstructionUtils.getIntLiteral(element);
+        }
+
+        if (element instanceof Operand operand && !(element instanceof ArrayOperand)
+                && InstructionUtils.isIntOrBoolean(element.getType())) {
+            return state.get(operand.getName());
+        }
+
+        return null;
+    }
+
+    private boolean propagate(Instruction inst, Map<String, Integer> state) {
+        var changed = new boolean[]{false};
+
+        InstructionUtils.replaceUses(inst, element -> {
+            if (element instanceof LiteralElement) {
+                return element;
+            }
+
+            var value = getValue(element, state);
+            if (value == null) {
+                return element;
+            }
+
+            changed[0] = true;
+            return new LiteralElement(String.valueOf(value), element.getType());
+        });
+
+        return changed[0];
+    }
+}
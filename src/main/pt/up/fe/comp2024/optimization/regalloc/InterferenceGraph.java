@@ -0,0 +1,182 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.SingleOpInstruction;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+
+import java.util.*;
+
+/**
+ * Interference graph of the variables of a {@link Liveness} analysis. Two variables interfere if one of them is
+ * written while the other is live, in which case they cannot share a register.
+ */
+public class InterferenceGraph {
+
+    private final List<Set<Integer>> neighbours;
+    private int numEdges;
+
+    public InterferenceGraph(ControlFlowGraph cfg, Liveness liveness) {
+        int numNodes = liveness.getVariables().size();
+
+        neighbours = new ArrayList<>(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            neighbours.add(new HashSet<>());
+        }
+        numEdges = 0;
+
+        for (int i = 0; i < cfg.size(); i++) {
+            int def = liveness.getDef(i);
+            if (def == -1) {
+                continue;
+            }
+
+            // in a copy 'a := b', a and b hold the same value, so they may share a register
+            int copied = getCopiedVariable(cfg, liveness, i);
+
+            var liveOut = liveness.getLiveOut(i);
+            for (int live = liveOut.nextSetBit(0); live >= 0; live = liveOut.nextSetBit(live + 1)) {
+                if (live != def && live != copied) {
+                    addEdge(def, live);
+                }
+            }
+        }
+    }
+
+    private static int getCopiedVariable(ControlFlowGraph cfg, Liveness liveness, int instruction) {
+        if (cfg.getInstruction(instruction) instanceof AssignInstruction assign
+                && assign.getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand operand
+                && !(operand instanceof ArrayOperand)) {
+
+            var index = liveness.getIndex(operand.getName());
+            return index != null ? index : -1;
+        }
+
+        return -1;
+    }
+
+    private void addEdge(int first, int second) {
+        if (neighbours.get(first).add(second)) {
+            neighbours.get(second).add(first);
+            numEdges++;
+        }
+    }
+
+    public int getNumNodes() {
+        return neighbours.size();
+    }
+
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    public Set<Integer> getNeighbours(int node) {
+        return neighbours.get(node);
+    }
+
+    /**
+     * Grows a clique from the node with most neighbours, adding the neighbour with most neighbours that interferes with
+     * every node already in it. Any coloring needs at least as many colors as the nodes of a clique.
+     *
+     * @return the number of nodes of the clique, which is 0 only if the graph has no nodes
+     */
+    public int getCliqueLowerBound() {
+        int numNodes = getNumNodes();
+        if (numNodes == 0) {
+            return 0;
+        }
+
+        int first = 0;
+        for (int node = 1; node < numNodes; node++) {
+            if (neighbours.get(node).size() > neighbours.get(first).size()) {
+                first = node;
+            }
+        }
+
+        int cliqueSize = 1;
+        var candidates = new ArrayList<>(neighbours.get(first));
+        while (!candidates.isEmpty()) {
+            int next = candidates.get(0);
+            for (int candidate : candidates) {
+                if (neighbours.get(candidate).size() > neighbours.get(next).size()) {
+                    next = candidate;
+                }
+            }
+
+            cliqueSize++;
+            var nextNeighbours = neighbours.get(next);
+            candidates.removeIf(candidate -> !nextNeighbours.contains(candidate));
+        }
+
+        return cliqueSize;
+    }
+
+    /**
+     * Colors the graph with at most the given number of colors, using the simplify/select heuristic of Chaitin with
+     * the optimistic coloring of Briggs.
+     *
+     * @param maxColors
+     * @return the color of each node, or empty if the heuristic could not color the graph
+     */
+    public Optional<int[]> color(int maxColors) {
+        int numNodes = getNumNodes();
+
+        var degrees = new int[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            degrees[i] = neighbours.get(i).size();
+        }
+
+        // simplify: remove nodes with less than maxColors neighbours first, since they can always be colored
+        var removed = new boolean[numNodes];
+        var stack = new ArrayDeque<Integer>(numNodes);
+        for (int step = 0; step < numNodes; step++) {
+            int chosen = -1;
+            for (int node = 0; node < numNodes; node++) {
+                if (removed[node]) {
+                    continue;
+                }
+
+                if (degrees[node] < maxColors) {
+                    chosen = node;
+                    break;
+                }
+
+                // potential spill, choose the node that most reduces the degree of the others
+                if (chosen == -1 || degrees[node] > degrees[chosen]) {
+                    chosen = node;
+                }
+            }
+
+            removed[chosen] = true;
+            stack.push(chosen);
+            for (int neighbour : neighbours.get(chosen)) {
+                degrees[neighbour]--;
+            }
+        }
+
+        // select: give each node the lowest color not used by its neighbours
+        var colors = new int[numNodes];
+        Arrays.fill(colors, -1);
+        var usedColors = new BitSet();
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+
+            usedColors.clear();
+            for (int neighbour : neighbours.get(node)) {
+                if (colors[neighbour] != -1) {
+                    usedColors.set(colors[neighbour]);
+                }
+            }
+
+            int color = usedColors.nextClearBit(0);
+            if (color >= maxColors) {
+                return Optional.empty();
+            }
+            colors[node] = color;
+        }
+
+        return Optional.of(colors);
+    }
+}
@@ -0,0 +1,106 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Linear-scan allocation over the live intervals of the variables of a {@link Liveness} analysis, in the order of the
+ * instruction list.
+ * <p>
+ * Each instruction i has two points, 2i before it executes and 2i + 1 after, and the interval of a variable goes from
+ * the first to the last point where it is live or written. Intervals are conservative around loops, but never let two
+ * variables that interfere share a register, and the allocation takes O(n log n) in the number of variables instead of
+ * the quadratic cost of building and coloring the interference graph.
+ */
+public class LinearScan {
+
+    private final int[] start;
+    private final int[] end;
+
+    public LinearScan(ControlFlowGraph cfg, Liveness liveness) {
+        int numVariables = liveness.getVariables().size();
+
+        start = new int[numVariables];
+        end = new int[numVariables];
+        Arrays.fill(start, Integer.MAX_VALUE);
+        Arrays.fill(end, -1);
+
+        for (int i = 0; i < cfg.size(); i++) {
+            extend(liveness.getLiveIn(i), 2 * i);
+            extend(liveness.getLiveOut(i), 2 * i + 1);
+
+            int def = liveness.getDef(i);
+            if (def != -1) {
+                extend(def, 2 * i + 1);
+            }
+        }
+    }
+
+    private void extend(BitSet variables, int point) {
+        for (int var = variables.nextSetBit(0); var >= 0; var = variables.nextSetBit(var + 1)) {
+            extend(var, point);
+        }
+    }
+
+    private void extend(int var, int point) {
+        start[var] = Math.min(start[var], point);
+        end[var] = Math.max(end[var], point);
+    }
+
+    /**
+     * @return the first point of the interval of the variable, or Integer.MAX_VALUE if it is never live or written
+     */
+    int getStart(int var) {
+        return start[var];
+    }
+
+    /**
+     * @return the last point of the interval of the variable, or -1 if it is never live or written
+     */
+    int getEnd(int var) {
+        return end[var];
+    }
+
+    /**
+     * Gives each variable the lowest register not used by an active interval. Since the intervals are visited by their
+     * start, this uses as few registers as the most intervals that overlap at any point.
+     *
+     * @return the color of each variable
+     */
+    public int[] allocate() {
+        int numVariables = start.length;
+
+        // variables that are never live or written do not need a register of their own
+        var colors = new int[numVariables];
+
+        var order = new Integer[numVariables];
+        for (int i = 0; i < numVariables; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(var -> start[var]));
+
+        var active = new PriorityQueue<Integer>(Comparator.comparingInt(var -> end[var]));
+        var usedColors = new BitSet();
+        for (int var : order) {
+            if (end[var] == -1) {
+                continue;
+            }
+
+            // free the registers of the intervals that ended before this one starts
+            while (!active.isEmpty() && end[active.peek()] < start[var]) {
+                usedColors.clear(colors[active.poll()]);
+            }
+
+            int color = usedColors.nextClearBit(0);
+            usedColors.set(color);
+            colors[var] = color;
+            active.add(var);
+        }
+
+        return colors;
+    }
+}
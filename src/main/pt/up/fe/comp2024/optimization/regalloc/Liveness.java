@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+import pt.up.fe.comp2024.optimization.InstructionUtils;
+
+import java.util.*;
+
+/**
+ * Liveness analysis of a set of variables over the instructions of a method.
+ * <p>
+ * Variables are identified by their index in the list given in the constructor, and sets of variables are BitSets of
+ * those indexes.
+ */
+public class Liveness {
+
+    private final ControlFlowGraph cfg;
+    private final List<String> variables;
+    private final Map<String, Integer> indexes;
+    private final BitSet[] uses;
+    private final int[] defs;
+    private final BitSet[] liveIn;
+    private final BitSet[] liveOut;
+
+    public Liveness(ControlFlowGraph cfg, List<String> variables) {
+        this.cfg = cfg;
+        this.variables = variables;
+
+        indexes = new HashMap<>(variables.size() * 2);
+        for (int i = 0; i < variables.size(); i++) {
+            indexes.put(variables.get(i), i);
+        }
+
+        int size = cfg.size();
+        uses = new BitSet[size];
+        defs = new int[size];
+        liveIn = new BitSet[size];
+        liveOut = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            var inst = cfg.getInstruction(i);
+
+            uses[i] = new BitSet();
+            for (var use : InstructionUtils.getUses(inst)) {
+                var index = indexes.get(use.getName());
+                if (index != null) {
+                    uses[i].set(index);
+                }
+            }
+
+            defs[i] = InstructionUtils.getDef(inst)
+                    .map(def -> indexes.getOrDefault(def.getName(), -1))
+                    .orElse(-1);
+
+            liveIn[i] = new BitSet();
+            liveOut[i] = new BitSet();
+        }
+
+        compute();
+    }
+
+    private void compute() {
+        int size = cfg.size();
+
+        // visit instructions backwards, so that most of the information is available on the first iteration
+        var worklist = new ArrayDeque<Integer>(size);
+        var inWorklist = new boolean[size];
+        for (int i = size - 1; i >= 0; i--) {
+            worklist.add(i);
+            inWorklist[i] = true;
+        }
+
+        while (!worklist.isEmpty()) {
+            int current = worklist.poll();
+            inWorklist[current] = false;
+
+            // out = union of the inputs of the successors
+            var out = liveOut[current];
+            for (int succ : cfg.getSuccessors(current)) {
+                out.or(liveIn[succ]);
+            }
+
+            // in = uses + (out - def)
+            var in = (BitSet) out.clone();
+            if (defs[current] != -1) {
+                in.clear(defs[current]);
+            }
+            in.or(uses[current]);
+
+            if (in.equals(liveIn[current])) {
+                continue;
+            }
+
+            liveIn[current] = in;
+            for (int pred : cfg.getPredecessors(current)) {
+                if (!inWorklist[pred]) {
+                    worklist.add(pred);
+                    inWorklist[pred] = true;
+                }
+            }
+        }
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public Integer getIndex(String variable) {
+        return indexes.get(variable);
+    }
+
+    /**
+     * @param instruction
+     * @return the index of the variable written by the instruction, or -1 if it does not write any tracked variable
+     */
+    public int getDef(int instruction) {
+        return defs[instruction];
+    }
+
+    public BitSet getUses(int instruction) {
+        return uses[instruction];
+    }
+
+    public BitSet getLiveIn(int instruction) {
+        return liveIn[instruction];
+    }
+
+    public BitSet getLiveOut(int instruction) {
+        return liveOut[instruction];
+    }
+}
@@ -0,0 +1,170 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Assigns JVM local variables to the variables of a method, by coloring their interference graph or with a linear
+ * scan of their live intervals.
+ * <p>
+ * 'this' and the parameters keep the registers given by OLLIR, only local variables are reallocated.
+ */
+public class RegisterAllocation {
+
+    /**
+     * Above this number of nodes plus edges, {@link Strategy#AUTO} uses the linear scan instead of graph coloring.
+     */
+    public static final int GRAPH_SIZE_THRESHOLD = 20_000;
+
+    public enum Strategy {
+        GRAPH,
+        LINEAR,
+        AUTO;
+
+        public static Strategy fromName(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final int maxRegisters;
+    private final Strategy strategy;
+
+    /**
+     * @param maxRegisters maximum number of JVM local variables per method (including 'this' and the parameters), or
+     *                     0 to use as few as possible
+     * @param strategy     how the registers are assigned, see {@link Strategy}
+     */
+    public RegisterAllocation(int maxRegisters, Strategy strategy) {
+        this.maxRegisters = maxRegisters;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Rewrites the virtual registers of the variables of the method.
+     *
+     * @param method
+     * @return an error report if the method does not fit in the requested number of registers, in which case the
+     * method is not changed
+     */
+    public Optional<Report> allocate(Method method) {
+        var varTable = method.getVarTable();
+
+        // 'this' and parameters are fixed, locals start after them
+        int firstLocal = method.isStaticMethod() ? 0 : 1;
+        var locals = new ArrayList<String>();
+        for (var entry : varTable.entrySet()) {
+            var descriptor = entry.getValue();
+            if (descriptor.getScope() == VarScope.PARAMETER) {
+                firstLocal = Math.max(firstLocal, descriptor.getVirtualReg() + 1);
+            } else if (descriptor.getScope() == VarScope.LOCAL && !entry.getKey().equals("this")) {
+                locals.add(entry.getKey());
+            }
+        }
+        // deterministic allocation, regardless of the order of the table
+        locals.sort(String::compareTo);
+
+        var cfg = new ControlFlowGraph(method);
+        var liveness = new Liveness(cfg, locals);
+
+        int[] colors;
+        if (usesLinearScan(cfg, liveness)) {
+            colors = new LinearScan(cfg, liveness).allocate();
+            if (maxRegisters != 0 && firstLocal + getNumColors(colors) > maxRegisters) {
+                return Optional.of(newTooFewRegistersReport(method, firstLocal + getNumColors(colors)));
+            }
+        } else {
+            var graph = new InterferenceGraph(cfg, liveness);
+            if (maxRegisters == 0) {
+                colors = colorWithMinimumRegisters(graph);
+            } else {
+                var availableColors = maxRegisters - firstLocal;
+                var coloring = availableColors < 0 ? Optional.<int[]>empty() : graph.color(availableColors);
+                if (coloring.isEmpty()) {
+                    int needed = firstLocal + getNumColors(colorWithMinimumRegisters(graph));
+                    return Optional.of(newTooFewRegistersReport(method, needed));
+                }
+                colors = coloring.get();
+            }
+        }
+
+        for (int i = 0; i < locals.size(); i++) {
+            Descriptor descriptor = varTable.get(locals.get(i));
+            descriptor.setVirtualReg(firstLocal + colors[i]);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return if the variables of the method are allocated with a linear scan instead of graph coloring
+     */
+    boolean usesLinearScan(ControlFlowGraph cfg, Liveness liveness) {
+        return switch (strategy) {
+            case GRAPH -> false;
+            case LINEAR -> true;
+            case AUTO -> estimateGraphSize(cfg, liveness) > GRAPH_SIZE_THRESHOLD;
+        };
+    }
+
+    /**
+     * Upper bound of the number of nodes plus edges of the interference graph, without building it.
+     */
+    static long estimateGraphSize(ControlFlowGraph cfg, Liveness liveness) {
+        long size = liveness.getVariables().size();
+        for (int i = 0; i < cfg.size(); i++) {
+            if (liveness.getDef(i) != -1) {
+                size += liveness.getLiveOut(i).cardinality();
+            }
+        }
+
+        return size;
+    }
+
+    private Report newTooFewRegistersReport(Method method, int needed) {
+        var message = String.format("Method '%s' needs at least %d registers, but only %d are allowed (-r=%d)",
+                method.getMethodName(), needed, maxRegisters, maxRegisters);
+        return Report.newError(Stage.OPTIMIZATION, -1, -1, message, null);
+    }
+
+    /**
+     * Searches the fewest colors the heuristic succeeds with, between the size of a clique of the graph, which needs
+     * that many colors, and the colors used when any number is allowed, with a binary search so that the graph is
+     * only colored a logarithmic number of times.
+     */
+    private static int[] colorWithMinimumRegisters(InterferenceGraph graph) {
+        // with as many colors as nodes, coloring never fails
+        var best = graph.color(Math.max(graph.getNumNodes(), 1)).orElseThrow();
+
+        int low = graph.getCliqueLowerBound();
+        int high = getNumColors(best) - 1;
+        while (low <= high) {
+            int numColors = (low + high) >>> 1;
+            var colors = graph.color(numColors);
+            if (colors.isPresent()) {
+                best = colors.get();
+                high = getNumColors(best) - 1;
+            } else {
+                low = numColors + 1;
+            }
+        }
+
+        return best;
+    }
+
+    private static int getNumColors(int[] colors) {
+        int numColors = 0;
+        for (int color : colors) {
+            numColors = Math.max(numColors, color + 1);
+        }
+
+        return numColors;
+    }
+}
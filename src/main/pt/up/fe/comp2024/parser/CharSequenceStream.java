@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * An ANTLR {@link CharStream} over any {@link CharSequence}, which reads the characters where they are instead of
+ * copying them into an array like ANTLRInputStream.
+ */
+final class CharSequenceStream implements CharStream {
+
+    private final CharSequence text;
+    private final String sourceName;
+    private int index;
+
+    CharSequenceStream(CharSequence text, String sourceName) {
+        this.text = text;
+        this.sourceName = sourceName;
+        this.index = 0;
+    }
+
+    @Override
+    public void consume() {
+        if (index >= text.length()) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        index++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // undefined
+            return 0;
+        }
+
+        // LA(-1) is the character before the current one
+        int position = i < 0 ? index + i : index + i - 1;
+        if (position < 0 || position >= text.length()) {
+            return IntStream.EOF;
+        }
+
+        return text.charAt(position);
+    }
+
+    @Override
+    public int mark() {
+        // the characters are all there, nothing has to be kept
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.min(index, text.length());
+    }
+
+    @Override
+    public int size() {
+        return text.length();
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName == null ? IntStream.UNKNOWN_SOURCE_NAME : sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, text.length() - 1);
+        if (start >= text.length() || stop < start) {
+            return "";
+        }
+
+        return text.subSequence(start, stop + 1).toString();
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,521 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Token;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static pt.up.fe.comp2024.JavammLexer.*;
+
+/**
+ * The rules of Javamm.g4 as recursive-descent methods, which build the same nodes as the ANTLR parser with the same
+ * attributes and positions. Expressions are parsed by precedence climbing, with the precedences ANTLR gives to the
+ * alternatives of the left-recursive expr rule: the earlier an alternative, the higher its precedence.
+ * <p>
+ * The parse stops at the first syntax error, with a {@link SyntaxError}.
+ */
+class DescentParser {
+
+    static class SyntaxError extends RuntimeException {
+
+        private final int line;
+        private final int column;
+
+        SyntaxError(String message, int line, int column) {
+            super(message);
+            this.line = line;
+            this.column = column;
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        int getColumn() {
+            return column;
+        }
+    }
+
+    private static final String STMT = "Stmt";
+    private static final String EXPR = "Expr";
+
+    // the precedences of the alternatives of expr, e.g. a NOT applies to an operand without suffixes
+    private static final int NOT_OPERAND = 17;
+    private static final int LENGTH_SUFFIX = 16;
+    private static final int CALL_SUFFIX = 14;
+    private static final int ACCESS_SUFFIX = 10;
+    private static final int MULTIPLICATIVE = 9;
+    private static final int ADDITIVE = 8;
+    private static final int LOGICAL = 7;
+
+    private final JmmTokens tokens;
+    private int next;
+
+    DescentParser(JmmTokens tokens) {
+        this.tokens = tokens;
+        this.next = 0;
+    }
+
+    /**
+     * @param rule the name of a rule of the grammar, e.g. "program"
+     */
+    JmmNode parse(String rule) {
+        return switch (rule) {
+            case "program" -> program();
+            case "importDeclaration" -> importDeclaration();
+            case "classDecl" -> classDecl();
+            case "varDecl" -> varDecl();
+            case "type" -> type(false);
+            case "methodDecl" -> methodDecl();
+            case "param" -> param();
+            case "stmt" -> stmt();
+            case "binaryOp" -> binaryOp();
+            case "expr" -> expr(0);
+            default -> throw new RuntimeException("Grammar has no rule '" + rule + "'");
+        };
+    }
+
+    private JmmNode program() {
+        int start = next;
+        var node = new JmmNodeImpl("Program");
+
+        while (peek(0) == IMPORT) {
+            node.add(importDeclaration());
+        }
+        node.add(classDecl());
+        expect(Token.EOF);
+
+        return end(node, start);
+    }
+
+    private JmmNode importDeclaration() {
+        int start = next;
+        var node = new JmmNodeImpl("ImportDeclaration");
+
+        expect(IMPORT);
+        var lib = new ArrayList<String>();
+        lib.add(tokens.text(expect(ID)));
+        while (accept(DOT)) {
+            lib.add(tokens.text(expect(ID)));
+        }
+        expect(SEMI);
+
+        node.put("ID", lib.get(lib.size() - 1));
+        node.putObject("lib", lib);
+        return end(node, start);
+    }
+
+    private JmmNode classDecl() {
+        int start = next;
+        var node = new JmmNodeImpl("ClassDecl");
+
+        expect(CLASS);
+        node.put("name", tokens.text(expect(ID)));
+        if (accept(EXTENDS)) {
+            node.put("superClass", tokens.text(expect(ID)));
+        }
+
+        expect(LCURLY);
+        while (isFieldDecl()) {
+            node.add(varDecl());
+        }
+        while (peek(0) != RCURLY) {
+            node.add(methodDecl());
+        }
+        expect(RCURLY);
+
+        return end(node, start);
+    }
+
+    private JmmNode varDecl() {
+        int start = next;
+        var node = new JmmNodeImpl("VarDecl");
+
+        node.add(type(false));
+        node.put("name", tokens.text(expect(MAIN, ID)));
+        expect(SEMI);
+
+        return end(node, start);
+    }
+
+    /**
+     * @param afterNew if the type follows 'new', where 'int[]' is only the type when '(' follows, like in
+     *                 'new int[]()', since in 'new int[] ...' ANTLR takes the brackets as an empty array
+     */
+    private JmmNode type(boolean afterNew) {
+        int start = next;
+        var node = new JmmNodeImpl("Type");
+
+        int name = expect(INT, BOOL, ID, VOID);
+        boolean isArray = tokens.type(name) != VOID && peek(0) == LSPAREN && peek(1) == RSPAREN
+                && (!afterNew || peek(2) == LPAREN);
+        if (isArray) {
+            next += 2;
+        }
+
+        node.putObject("isArray", isArray);
+        node.put("name", tokens.text(name));
+        return end(node, start);
+    }
+
+    private JmmNode methodDecl() {
+        int start = next;
+        var node = new JmmNodeImpl("MethodDecl");
+
+        boolean isPublic = accept(PUBLIC);
+        boolean isStatic = accept(STATIC);
+        node.putObject("isPublic", isPublic);
+        node.putObject("isStatic", isStatic);
+
+        node.add(type(false));
+        if (isStatic) {
+            // the main method, whose parameters are not separated by commas
+            node.put("name", tokens.text(expect(MAIN)));
+            expect(LPAREN);
+            while (peek(0) != RPAREN) {
+                node.add(param());
+            }
+        } else {
+            node.put("name", tokens.text(expect(LENGTH, ID)));
+            expect(LPAREN);
+            if (peek(0) != RPAREN) {
+                node.add(param());
+                while (accept(COMMA)) {
+                    node.add(param());
+                }
+            }
+        }
+        expect(RPAREN);
+
+        expect(LCURLY);
+        while (isLocalDecl()) {
+            node.add(varDecl());
+        }
+        while (peek(0) != RCURLY) {
+            node.add(stmt());
+        }
+        expect(RCURLY);
+
+        return end(node, start);
+    }
+
+    private JmmNode param() {
+        int start = next;
+        var node = new JmmNodeImpl("Param");
+
+        node.add(type(false));
+        node.putObject("isVarArg", accept(MULTIPLE));
+        node.put("name", tokens.text(expect(ID)));
+
+        return end(node, start);
+    }
+
+    private JmmNode stmt() {
+        int start = next;
+
+        switch (peek(0)) {
+            case LCURLY -> {
+                var node = newNode("ParStmt", STMT);
+                next++;
+                while (peek(0) != RCURLY) {
+                    node.add(stmt());
+                }
+                expect(RCURLY);
+                return end(node, start);
+            }
+            case IF -> {
+                var node = newNode("IfStmt", STMT);
+                next++;
+                expect(LPAREN);
+                node.add(expr(0));
+                expect(RPAREN);
+                node.add(stmt());
+                expect(ELSE);
+                node.add(stmt());
+                return end(node, start);
+            }
+            case WHILE -> {
+                var node = newNode("WhileStmt", STMT);
+                next++;
+                expect(LPAREN);
+                node.add(expr(0));
+                expect(RPAREN);
+                node.add(stmt());
+                return end(node, start);
+            }
+            case RETURN -> {
+                var node = newNode("RetStmt", STMT);
+                next++;
+                node.add(expr(0));
+                expect(SEMI);
+                return end(node, start);
+            }
+            default -> {
+                var target = expr(0);
+                JmmNode node;
+                if (accept(EQUALS)) {
+                    node = wrap(newNode("AssignStmt", STMT), start, target, expr(0));
+                } else {
+                    node = wrap(newNode("Expression", STMT), start, target);
+                }
+                expect(SEMI);
+                return end(node, start);
+            }
+        }
+    }
+
+    private JmmNode binaryOp() {
+        int start = next;
+        var node = new JmmNodeImpl("BinaryOp");
+
+        node.put("name", tokens.text(expect(AND, OR, LESS, ADD, MINUS, MUL, DIV)));
+
+        return end(node, start);
+    }
+
+    /**
+     * @param precedence the lowest precedence of the operators and suffixes that apply to the expression
+     */
+    private JmmNode expr(int precedence) {
+        int start = next;
+        var left = primary();
+
+        while (true) {
+            int type = peek(0);
+
+            if (type == DOT && peek(1) == LENGTH && LENGTH_SUFFIX >= precedence) {
+                next += 2;
+                left = wrap(newExpr("Length"), start, left);
+            } else if (type == DOT && peek(1) == ID && peek(2) == LPAREN && CALL_SUFFIX >= precedence) {
+                var call = newExpr("MethodCall");
+                call.putObject("ignore_first", true);
+                call.put("name", tokens.text(next + 1));
+                next += 3;
+
+                call.add(left);
+                arguments(call, RPAREN);
+                left = end(call, start);
+            } else if (type == LSPAREN && ACCESS_SUFFIX >= precedence) {
+                next++;
+                var access = wrap(newExpr("ArrayAccess"), start, left, expr(0));
+                expect(RSPAREN);
+                left = end(access, start);
+            } else if ((type == MUL || type == DIV) && MULTIPLICATIVE >= precedence) {
+                left = binaryExpr(start, left, MULTIPLICATIVE);
+            } else if ((type == ADD || type == MINUS) && ADDITIVE >= precedence) {
+                left = binaryExpr(start, left, ADDITIVE);
+            } else if ((type == AND || type == LESS) && LOGICAL >= precedence) {
+                left = binaryExpr(start, left, LOGICAL);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private JmmNode primary() {
+        int start = next;
+
+        switch (peek(0)) {
+            case LPAREN -> {
+                next++;
+                var node = wrap(newExpr("Parantheses"), start, expr(0));
+                expect(RPAREN);
+                return end(node, start);
+            }
+            case NOT -> {
+                next++;
+                return wrap(newExpr("NotOp"), start, expr(NOT_OPERAND));
+            }
+            case THIS -> {
+                if (peek(1) == DOT && peek(2) == ID && peek(3) == LPAREN) {
+                    var call = newExpr("MethodCall");
+                    call.putObject("isVirtual", true);
+                    call.putObject("ignore_first", true);
+                    call.putObject("is_this", true);
+                    call.put("name", tokens.text(next + 2));
+                    next += 4;
+
+                    arguments(call, RPAREN);
+                    return end(call, start);
+                }
+
+                var node = newExpr("ThisExpr");
+                node.put("name", tokens.text(next++));
+                return end(node, start);
+            }
+            case ID -> {
+                if (peek(1) == LPAREN) {
+                    var call = newExpr("MethodCall");
+                    call.put("name", tokens.text(next));
+                    next += 2;
+
+                    arguments(call, RPAREN);
+                    return end(call, start);
+                }
+
+                var node = newExpr("VarRefExpr");
+                node.put("name", tokens.text(next++));
+                return end(node, start);
+            }
+            case NEW -> {
+                next++;
+                var type = type(true);
+                if (accept(LPAREN)) {
+                    var node = wrap(newExpr("NewObject"), start, type);
+                    arguments(node, RPAREN);
+                    return end(node, start);
+                }
+
+                expect(LSPAREN);
+                var node = wrap(newExpr("NewArray"), start, type);
+                arguments(node, RSPAREN);
+                return end(node, start);
+            }
+            case LSPAREN -> {
+                next++;
+                var node = newExpr("ArrayCall");
+                arguments(node, RSPAREN);
+                return end(node, start);
+            }
+            case TRUE, FALSE, INTEGER -> {
+                var node = newExpr("Const");
+                node.put("name", tokens.text(next++));
+                return end(node, start);
+            }
+            default -> throw error("no viable alternative at input '" + tokens.text(current()) + "'");
+        }
+    }
+
+    private JmmNode binaryExpr(int start, JmmNode left, int precedence) {
+        var node = newExpr("BinaryExpr");
+        node.put("name", tokens.text(next++));
+
+        // the operators are left associative, so the right operand only has operators of higher precedence
+        return wrap(node, start, left, expr(precedence + 1));
+    }
+
+    /**
+     * Parses the expressions separated by commas until the closing token, and adds them to the node.
+     */
+    private void arguments(JmmNode node, int closing) {
+        if (peek(0) != closing) {
+            node.add(expr(0));
+            while (accept(COMMA)) {
+                node.add(expr(0));
+            }
+        }
+        expect(closing);
+    }
+
+    /**
+     * A field when the class body has a type, a name and ';', otherwise a method.
+     */
+    private boolean isFieldDecl() {
+        int type = peek(0);
+        if (type != INT && type != BOOL && type != ID && type != VOID) {
+            return false;
+        }
+
+        int name = type != VOID && isArrayType(0) ? 3 : 1;
+        return (peek(name) == MAIN || peek(name) == ID) && peek(name + 1) == SEMI;
+    }
+
+    /**
+     * A variable when the method body has a type that cannot start a statement, or an identifier followed by a name.
+     */
+    private boolean isLocalDecl() {
+        return switch (peek(0)) {
+            case INT, BOOL, VOID -> true;
+            case ID -> peek(1) == ID || peek(1) == MAIN || isArrayType(0);
+            default -> false;
+        };
+    }
+
+    private boolean isArrayType(int offset) {
+        return peek(offset + 1) == LSPAREN && peek(offset + 2) == RSPAREN;
+    }
+
+    private JmmNodeImpl newNode(String kind, String superKind) {
+        var node = new JmmNodeImpl(kind);
+        node.setHierarchy(List.of(kind, superKind));
+        return node;
+    }
+
+    private JmmNodeImpl newExpr(String kind) {
+        var node = newNode(kind, EXPR);
+        node.putObject("isVirtual", false);
+        node.putObject("ignore_first", false);
+        node.putObject("is_this", false);
+        return node;
+    }
+
+    private JmmNode wrap(JmmNode node, int start, JmmNode... children) {
+        for (var child : children) {
+            node.add(child);
+        }
+
+        return end(node, start);
+    }
+
+    /**
+     * Sets the position of the node, from its first token to the last one consumed.
+     */
+    private JmmNode end(JmmNode node, int start) {
+        int last = next - 1;
+
+        node.put(NodePosition.LINE_START.getKey(), Integer.toString(tokens.line(start)));
+        node.put(NodePosition.COL_START.getKey(), Integer.toString(tokens.column(start)));
+        node.put(NodePosition.LINE_END.getKey(), Integer.toString(tokens.line(last)));
+        node.put(NodePosition.COL_END.getKey(), Integer.toString(tokens.column(last)));
+        return node;
+    }
+
+    /**
+     * @return the index of the next token, or of EOF after it
+     */
+    private int current() {
+        return Math.min(next, tokens.size() - 1);
+    }
+
+    private SyntaxError error(String message) {
+        return new SyntaxError(message, tokens.line(current()), tokens.column(current()));
+    }
+
+    private int peek(int offset) {
+        // past the end, the tokens are the last one, EOF
+        return tokens.type(Math.min(next + offset, tokens.size() - 1));
+    }
+
+    private boolean accept(int type) {
+        if (peek(0) != type) {
+            return false;
+        }
+
+        next++;
+        return true;
+    }
+
+    /**
+     * @return the index of the token
+     */
+    private int expect(int... types) {
+        int token = current();
+        for (int type : types) {
+            if (tokens.type(token) == type) {
+                next++;
+                return token;
+            }
+        }
+
+        // the vocabulary loads the generated lexer, so it is only read for the message of an error
+        var expected = new StringBuilder();
+        for (int type : types) {
+            expected.append(expected.length() == 0 ? "" : ", ").append(VOCABULARY.getDisplayName(type));
+        }
+        var expecting = types.length == 1 ? expected.toString() : "{" + expected + "}";
+        throw error("mismatched input '" + tokens.text(token) + "' expecting " + expecting);
+    }
+}
@@ -0,0 +1,316 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Token;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.List;
+
+/**
+ * Splits a Java-- program into the same tokens as the lexer generated from Javamm.g4, into {@link JmmTokens}.
+ * <p>
+ * Like the generated lexer, it takes the longest token at each position, keywords win over identifiers of the same
+ * length, and a comment that is not closed is not a comment, e.g. '//' at the end of the file is two DIV tokens.
+ * <p>
+ * Each character is classified with a table, and the keywords are found with a perfect hash of their first and last
+ * characters and length, so the only allocations are the arrays of the tokens.
+ */
+final class JmmLexer {
+
+    // the classes of the ASCII characters, anything else starts no token
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte LETTER = 2;
+    private static final byte DOLLAR = 3;
+    private static final byte ZERO = 4;
+    private static final byte DIGIT = 5;
+    private static final byte SLASH = 6;
+    private static final byte DOT = 7;
+    private static final byte AMPERSAND = 8;
+    private static final byte PIPE = 9;
+    private static final byte SINGLE = 10;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    // the type of the tokens of a single character, e.g. ';'
+    private static final int[] SINGLE_TYPES = new int[128];
+
+    private static final int KEYWORD_TABLE_SIZE = 64;
+    private static final String[] KEYWORD_TEXTS = new String[KEYWORD_TABLE_SIZE];
+    private static final int[] KEYWORD_TYPES = new int[KEYWORD_TABLE_SIZE];
+    private static final int MAX_KEYWORD_LENGTH;
+    private static final int FIRST_MULTIPLIER;
+    private static final int LAST_MULTIPLIER;
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = LETTER;
+            CHAR_CLASSES[Character.toUpperCase(c)] = LETTER;
+        }
+        CHAR_CLASSES['_'] = LETTER;
+        CHAR_CLASSES['$'] = DOLLAR;
+        CHAR_CLASSES['0'] = ZERO;
+        for (char c = '1'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+        for (char c : new char[]{' ', '\t', '\n', '\r', '\f'}) {
+            CHAR_CLASSES[c] = WHITESPACE;
+        }
+        CHAR_CLASSES['/'] = SLASH;
+        CHAR_CLASSES['.'] = DOT;
+        CHAR_CLASSES['&'] = AMPERSAND;
+        CHAR_CLASSES['|'] = PIPE;
+
+        // the tokens of a single character and the keywords of Javamm.g4, JavammLexer.VOCABULARY has them too, but
+        // reading it loads the generated lexer, while the token types are constants
+        single('=', JavammLexer.EQUALS);
+        single('*', JavammLexer.MUL);
+        single('+', JavammLexer.ADD);
+        single('-', JavammLexer.MINUS);
+        single('<', JavammLexer.LESS);
+        single('!', JavammLexer.NOT);
+        single(';', JavammLexer.SEMI);
+        single('{', JavammLexer.LCURLY);
+        single('}', JavammLexer.RCURLY);
+        single('(', JavammLexer.LPAREN);
+        single(')', JavammLexer.RPAREN);
+        single('[', JavammLexer.LSPAREN);
+        single(']', JavammLexer.RSPAREN);
+        single(',', JavammLexer.COMMA);
+
+        var keywords = List.of("int", "true", "false", "boolean", "class", "public", "return", "import", "if", "else",
+                "while", "extends", "static", "new", "void", "main", "length", "this");
+        var keywordTypes = List.of(JavammLexer.INT, JavammLexer.TRUE, JavammLexer.FALSE, JavammLexer.BOOL,
+                JavammLexer.CLASS, JavammLexer.PUBLIC, JavammLexer.RETURN, JavammLexer.IMPORT, JavammLexer.IF,
+                JavammLexer.ELSE, JavammLexer.WHILE, JavammLexer.EXTENDS, JavammLexer.STATIC, JavammLexer.NEW,
+                JavammLexer.VOID, JavammLexer.MAIN, JavammLexer.LENGTH, JavammLexer.THIS);
+
+        // finds the multipliers that give each keyword its own entry, the hash is cheap to compute for any word
+        int[] multipliers = findMultipliers(keywords);
+        FIRST_MULTIPLIER = multipliers[0];
+        LAST_MULTIPLIER = multipliers[1];
+
+        int maxLength = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            var keyword = keywords.get(i);
+            int entry = hash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length(), multipliers[0],
+                    multipliers[1]);
+            KEYWORD_TEXTS[entry] = keyword;
+            KEYWORD_TYPES[entry] = keywordTypes.get(i);
+            maxLength = Math.max(maxLength, keyword.length());
+        }
+        MAX_KEYWORD_LENGTH = maxLength;
+    }
+
+    private JmmLexer() {
+    }
+
+    private static void single(char c, int type) {
+        CHAR_CLASSES[c] = SINGLE;
+        SINGLE_TYPES[c] = type;
+    }
+
+    /**
+     * @return the tokens of the code, ending with an EOF token, and the errors for the characters that start no
+     * token, which are skipped
+     */
+    static JmmTokens tokenize(CharSequence code) {
+        int length = code.length();
+        // programs have about one token every four characters, so the arrays rarely grow
+        var tokens = new JmmTokens(code, length / 3 + 16);
+
+        int position = 0;
+        int line = 1;
+
+        while (position < length) {
+            char c = code.charAt(position);
+            int start = position;
+
+            switch (c < 128 ? CHAR_CLASSES[c] : OTHER) {
+                case WHITESPACE -> {
+                    position++;
+                    if (c == '\n') {
+                        line++;
+                        tokens.addLine(position);
+                    }
+                    continue;
+                }
+                case LETTER, DOLLAR -> {
+                    position = identifierEnd(code, position, length);
+                    tokens.add(keywordType(code, start, position - start), start, position - start, line);
+                    continue;
+                }
+                case ZERO -> position++;
+                case DIGIT -> {
+                    position++;
+                    while (position < length && isDigit(code.charAt(position))) {
+                        position++;
+                    }
+                }
+                case SLASH -> {
+                    int commentEnd = commentEnd(code, position, length);
+                    if (commentEnd < 0) {
+                        tokens.add(JavammLexer.DIV, start, 1, line);
+                        position++;
+                        continue;
+                    }
+
+                    // comments are the only tokens with newlines inside
+                    for (; position < commentEnd; position++) {
+                        if (code.charAt(position) == '\n') {
+                            line++;
+                            tokens.addLine(position + 1);
+                        }
+                    }
+                    continue;
+                }
+                case DOT -> {
+                    boolean ellipsis = position + 2 < length && code.charAt(position + 1) == '.'
+                            && code.charAt(position + 2) == '.';
+                    tokens.add(ellipsis ? JavammLexer.MULTIPLE : JavammLexer.DOT, start, ellipsis ? 3 : 1, line);
+                    position += ellipsis ? 3 : 1;
+                    continue;
+                }
+                case AMPERSAND, PIPE -> {
+                    if (position + 1 < length && code.charAt(position + 1) == c) {
+                        tokens.add(c == '&' ? JavammLexer.AND : JavammLexer.OR, start, 2, line);
+                        position += 2;
+                        continue;
+                    }
+
+                    // like the generated lexer, the character read to try to match '&&' or '||' is skipped too
+                    position = Math.min(position + 2, length);
+                    unknownCharacters(tokens, code, start, position, line);
+                    if (position == start + 2 && code.charAt(start + 1) == '\n') {
+                        line++;
+                        tokens.addLine(position);
+                    }
+                    continue;
+                }
+                case SINGLE -> {
+                    tokens.add(SINGLE_TYPES[c], start, 1, line);
+                    position++;
+                    continue;
+                }
+                default -> {
+                    position++;
+                    unknownCharacters(tokens, code, start, position, line);
+                    continue;
+                }
+            }
+
+            // the numbers
+            tokens.add(JavammLexer.INTEGER, start, position - start, line);
+        }
+
+        tokens.add(Token.EOF, length, 0, line);
+        return tokens;
+    }
+
+    /**
+     * '$' can only appear before the first digit, e.g. 'a1$' is the identifiers 'a1' and '$'.
+     */
+    private static int identifierEnd(CharSequence code, int position, int length) {
+        boolean seenDigit = false;
+        while (position < length) {
+            char c = code.charAt(position);
+            byte charClass = c < 128 ? CHAR_CLASSES[c] : OTHER;
+
+            if (charClass == DIGIT || charClass == ZERO) {
+                seenDigit = true;
+            } else if (charClass != LETTER && (charClass != DOLLAR || seenDigit)) {
+                break;
+            }
+            position++;
+        }
+
+        return position;
+    }
+
+    /**
+     * @return the position after the comment that starts at the position, or -1 if there is none or it is not closed
+     */
+    private static int commentEnd(CharSequence code, int position, int length) {
+        if (position + 1 >= length) {
+            return -1;
+        }
+
+        char next = code.charAt(position + 1);
+        if (next == '/') {
+            // the newline is part of the comment
+            for (int i = position + 2; i < length; i++) {
+                if (code.charAt(i) == '\n') {
+                    return i + 1;
+                }
+            }
+        } else if (next == '*') {
+            for (int i = position + 2; i + 1 < length; i++) {
+                if (code.charAt(i) == '*' && code.charAt(i + 1) == '/') {
+                    return i + 2;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static int keywordType(CharSequence code, int start, int length) {
+        if (length > MAX_KEYWORD_LENGTH) {
+            return JavammLexer.ID;
+        }
+
+        int entry = hash(code.charAt(start), code.charAt(start + length - 1), length, FIRST_MULTIPLIER,
+                LAST_MULTIPLIER);
+        var keyword = KEYWORD_TEXTS[entry];
+        if (keyword == null || keyword.length() != length) {
+            return JavammLexer.ID;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != code.charAt(start + i)) {
+                return JavammLexer.ID;
+            }
+        }
+
+        return KEYWORD_TYPES[entry];
+    }
+
+    private static int hash(char first, char last, int length, int firstMultiplier, int lastMultiplier) {
+        return (first * firstMultiplier + last * lastMultiplier + length) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
+    private static int[] findMultipliers(List<String> keywords) {
+        for (int first = 1; first < KEYWORD_TABLE_SIZE; first++) {
+            for (int last = 1; last < KEYWORD_TABLE_SIZE; last++) {
+                var used = new boolean[KEYWORD_TABLE_SIZE];
+                boolean perfect = true;
+
+                for (var keyword : keywords) {
+                    int entry = hash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length(), first,
+                            last);
+                    if (used[entry]) {
+                        perfect = false;
+                        break;
+                    }
+                    used[entry] = true;
+                }
+
+                if (perfect) {
+                    return new int[]{first, last};
+                }
+            }
+        }
+
+        throw new RuntimeException("Could not find a perfect hash for the keywords " + keywords);
+    }
+
+    private static void unknownCharacters(JmmTokens tokens, CharSequence code, int start, int end, int line) {
+        tokens.addReport(Report.newError(Stage.LEXICAL, line, start - tokens.lineStart(line),
+                "token recognition error at: '" + code.subSequence(start, end) + "'", null));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
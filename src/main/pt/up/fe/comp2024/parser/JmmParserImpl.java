@@ -1,14 +1,23 @@
 package pt.up.fe.comp2024.parser;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.jfr.ParseEvent;
+import pt.up.fe.comp2024.utils.StageMetrics;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Copyright 2022 SPeCS.
@@ -25,6 +34,16 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    // shared by all the parses of the process, a parser for each parse that runs at the same time
+    private static final ParserPool PARSERS = new ParserPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @param result         the result of the parse
+     * @param predictionMode the mode of the parse that gave the result, or null if it threw
+     */
+    private record ParseOutcome(JmmParserResult result, PredictionMode predictionMode) {
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -32,24 +51,134 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return parseSource(jmmCode, startingRule, config);
+    }
 
+    /**
+     * Parses a file with the default rule, without reading it into a String first: the file is mapped into memory and
+     * the lexer reads its characters from the mapping, see {@link MappedSource}.
+     */
+    public JmmParserResult parse(Path file, Map<String, String> config) {
+        CharSequence jmmCode;
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            jmmCode = MappedSource.map(file);
+        } catch (IOException e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Could not read '" + file + "'",
+                    e), config);
+        }
 
+        return parseSource(jmmCode, getDefaultRule(), config);
+    }
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+    private JmmParserResult parseSource(CharSequence jmmCode, String startingRule, Map<String, String> config) {
+
+        var event = new ParseEvent();
+        event.begin();
+
+        var outcome = CompilerConfig.getMetrics(config) ? parseMeasured(jmmCode, startingRule, config)
+                : parseCode(jmmCode, startingRule, config, null);
+        var result = outcome.result();
+
+        event.end();
+        if (event.shouldCommit()) {
+            var rootNode = result.getRootNode();
+            if (rootNode != null) {
+                event.className = rootNode.getJmmChild(rootNode.getNumChildren() - 1).getOptional("name").orElse("");
+                event.nodeCount = NodeUtils.countNodes(rootNode);
+            }
+            event.predictionMode = outcome.predictionMode() == null ? "" : outcome.predictionMode().name();
+            event.commit();
+        }
+
+        return result;
+    }
+
+    private ParseOutcome parseMeasured(CharSequence jmmCode, String startingRule, Map<String, String> config) {
+
+        // each attempt is measured by itself, so the name of the last one is the mode that succeeded
+        var metrics = new StageMetrics("parser");
+        var outcome = parseCode(jmmCode, startingRule, config, metrics);
+        var result = outcome.result();
+
+        var reports = new ArrayList<>(result.getReports());
+        reports.add(metrics.toReport(Stage.SYNTATIC));
+        return new ParseOutcome(new JmmParserResult(result.getRootNode(), reports, config), outcome.predictionMode());
+    }
+
+    /**
+     * Parses with SLL prediction first, which is faster than full LL but fails on some valid inputs, and only parses
+     * again with full LL when it fails. Syntax errors also make SLL fail, so their reports always come from full LL.
+     * The code is only split into tokens once, by {@link JmmLexer}, and both parses read the same tokens, with the same
+     * parser taken from {@link #PARSERS}.
+     *
+     * @param metrics where each attempt is measured, or null
+     */
+    private ParseOutcome parseCode(CharSequence jmmCode, String startingRule, Map<String, String> config,
+                                   StageMetrics metrics) {
+
+        try {
+            var tokens = measure(metrics, "lex", () -> JmmLexer.tokenize(jmmCode));
+
+            var pooled = PARSERS.acquire(tokens);
+            try {
+                var result = measure(metrics, "sll", () -> parseWith(pooled, startingRule, config,
+                        PredictionMode.SLL));
+                if (result != null) {
+                    return new ParseOutcome(result, PredictionMode.SLL);
+                }
+
+                pooled.reset(tokens);
+                result = measure(metrics, "ll", () -> parseWith(pooled, startingRule, config, PredictionMode.LL));
+                return new ParseOutcome(result, PredictionMode.LL);
+            } finally {
+                PARSERS.release(pooled);
+            }
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
-            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+            return new ParseOutcome(JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1,
+                    "Exception during parsing", e), config), null);
         }
     }
+
+    /**
+     * @param pooled a parser ready to parse the tokens from the start
+     * @return the result of the parse, or null if the SLL parse found an error
+     */
+    private static JmmParserResult parseWith(ParserPool.PooledParser pooled, String startingRule,
+                                             Map<String, String> config, PredictionMode predictionMode) {
+
+        var parser = pooled.getParser();
+        parser.getInterpreter().setPredictionMode(predictionMode);
+        // stop at the first error instead of recovering in SLL, the full LL parse reports it
+        parser.setErrorHandler(predictionMode == PredictionMode.SLL ? new BailErrorStrategy()
+                : new DefaultErrorStrategy());
+
+        try {
+            // Convert ANTLR CST to JmmNode AST
+            return pooled.parse(startingRule, config);
+        } catch (RuntimeException e) {
+            if (predictionMode == PredictionMode.SLL && isCancellation(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the exception was thrown by the {@link BailErrorStrategy}, which the rule invocation wraps
+     */
+    private static boolean isCancellation(Throwable exception) {
+        for (var cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static <T> T measure(StageMetrics metrics, String name, Supplier<T> supplier) {
+        return metrics == null ? supplier.get() : metrics.measure(name, supplier);
+    }
 }
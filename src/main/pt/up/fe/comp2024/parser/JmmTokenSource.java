@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+import org.antlr.v4.runtime.atn.ATN;
+import pt.up.fe.comp2024.JavammLexer;
+
+/**
+ * Gives the tokens read by {@link JmmLexer} to the parser generated by ANTLR, in place of the generated lexer.
+ * <p>
+ * It is a {@link Lexer} so that AntlrParser reports its errors like the ones of the generated lexer, but it does not
+ * read any characters itself: the same tokens can be given to several parses of the code, e.g. when the SLL parse
+ * fails and the code is parsed again. The text of each token is only read from the code when it is asked for.
+ */
+class JmmTokenSource extends Lexer {
+
+    private JmmTokens tokens;
+    private int next;
+
+    JmmTokenSource(JmmTokens tokens) {
+        super(new CharSequenceStream(tokens.getCode(), null));
+        this.tokens = tokens;
+        this.next = 0;
+    }
+
+    /**
+     * Gives other tokens, from the first one, e.g. to parse another program with the same parser.
+     */
+    void setTokens(JmmTokens tokens) {
+        this.tokens = tokens;
+        setInputStream(new CharSequenceStream(tokens.getCode(), null));
+    }
+
+    @Override
+    public Token nextToken() {
+        if (next == 0) {
+            // the first token is asked for by the parse, after the error listeners are added
+            for (var report : tokens.getReports()) {
+                getErrorListenerDispatch().syntaxError(this, null, report.getLine(), report.getColumn(),
+                        report.getMessage(), null);
+            }
+        }
+
+        // after the end, the tokens are EOF
+        int index = Math.min(next, tokens.size() - 1);
+        next = index + 1;
+
+        int start = tokens.offset(index);
+        return _factory.create(_tokenFactorySourcePair, tokens.type(index), null, Token.DEFAULT_CHANNEL, start,
+                start + tokens.length(index) - 1, tokens.line(index), tokens.column(index));
+    }
+
+    @Override
+    public void reset() {
+        // not the reset of Lexer, which resets the ATN interpreter this lexer does not have
+        if (_input != null) {
+            _input.seek(0);
+        }
+        next = 0;
+    }
+
+    @Override
+    public int getLine() {
+        return tokens.line(Math.min(next, tokens.size() - 1));
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return tokens.column(Math.min(next, tokens.size() - 1));
+    }
+
+    @Override
+    public String[] getRuleNames() {
+        return JavammLexer.ruleNames;
+    }
+
+    @Override
+    public String getGrammarFileName() {
+        return "Javamm.g4";
+    }
+
+    @Override
+    public ATN getATN() {
+        return JavammLexer._ATN;
+    }
+
+    @Override
+    public Vocabulary getVocabulary() {
+        return JavammLexer.VOCABULARY;
+    }
+}
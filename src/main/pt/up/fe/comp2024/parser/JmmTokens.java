@@ -0,0 +1,133 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Token;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tokens of a Java-- program, as read by {@link JmmLexer}, in parallel arrays instead of one object per token.
+ * The text of a token is only made into a String when it is asked for, e.g. for the names in the AST.
+ * <p>
+ * The last token is always EOF, at the end of the code. The column of a token is not kept, it is its distance to the
+ * start of its line.
+ */
+final class JmmTokens {
+
+    private final CharSequence code;
+    private final List<Report> reports;
+
+    private int[] types;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    // the offset of the first character of each line
+    private int[] lineStarts;
+    private int numLines;
+
+    JmmTokens(CharSequence code, int capacity) {
+        this.code = code;
+        this.reports = new ArrayList<>();
+        this.types = new int[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.size = 0;
+        this.lineStarts = new int[64];
+        this.lineStarts[0] = 0;
+        this.numLines = 1;
+    }
+
+    void add(int type, int offset, int length, int line) {
+        if (size == types.length) {
+            int capacity = Math.max(16, size * 2);
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+
+        types[size] = type;
+        offsets[size] = offset;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * Starts a new line, after the ones already started.
+     *
+     * @param offset the offset of its first character
+     */
+    void addLine(int offset) {
+        if (numLines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, numLines * 2);
+        }
+
+        lineStarts[numLines++] = offset;
+    }
+
+    void addReport(Report report) {
+        reports.add(report);
+    }
+
+    CharSequence getCode() {
+        return code;
+    }
+
+    /**
+     * @return the errors of the lexer, for the characters that start no token and were skipped
+     */
+    List<Report> getReports() {
+        return reports;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int type(int index) {
+        return types[index];
+    }
+
+    int offset(int index) {
+        return offsets[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @return the line where the token starts, from 1
+     */
+    int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @return the column where the token starts, from 0
+     */
+    int column(int index) {
+        return offsets[index] - lineStart(lines[index]);
+    }
+
+    /**
+     * @return the offset of the first character of the line
+     */
+    int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    String text(int index) {
+        if (types[index] == Token.EOF) {
+            return "<EOF>";
+        }
+
+        return code.subSequence(offsets[index], offsets[index] + lengths[index]).toString();
+    }
+}
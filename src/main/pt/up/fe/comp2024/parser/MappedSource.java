@@ -0,0 +1,89 @@
+package pt.up.fe.comp2024.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The characters of a source file mapped into memory, which are read from the mapped bytes when they are asked for,
+ * so that the text of a large program is not copied into the heap before it is parsed.
+ * <p>
+ * Each byte is one character, which is only the case for ASCII files. Any other file is decoded as UTF-8 into a
+ * String, as when it is read with SpecsIo.
+ */
+final class MappedSource implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private MappedSource(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the characters of the file, mapped into memory if it only has ASCII characters
+     */
+    static CharSequence map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File '" + file + "' is too large to parse, it has " + size + " bytes");
+            }
+
+            // the mapping stays valid after the channel is closed
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!isAscii(bytes)) {
+                return StandardCharsets.UTF_8.decode(bytes).toString();
+            }
+
+            return new MappedSource(bytes, 0, (int) size);
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length "
+                    + length);
+        }
+
+        return new MappedSource(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        var chars = new byte[length];
+        bytes.get(offset, chars);
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,209 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JavammParser;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsers generated by ANTLR, with the sources and streams of their tokens, which are reused from one parse to the
+ * next instead of being created for each program. Each parser is only used by one parse at a time, so any number of
+ * threads can parse at the same time.
+ * <p>
+ * What the parsers learn while parsing, the DFA of each decision and the cache of prediction contexts, is kept here
+ * and shared by every parser of the process, in any thread, so a parser taken from the pool, or a new one, predicts
+ * with everything learned from the programs parsed before. The DFA of ANTLR is made to be shared: its states and edges
+ * are added under locks, and read without them.
+ */
+final class ParserPool {
+
+    private static final DFA[] DECISION_TO_DFA = newDecisionToDFA();
+    private static final PredictionContextCache CONTEXT_CACHE = new PredictionContextCache();
+
+    // the methods of the rules, by name
+    private static final Map<String, Method> RULES = new ConcurrentHashMap<>();
+
+    private static DFA[] newDecisionToDFA() {
+        var atn = JavammParser._ATN;
+        var decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+        for (int decision = 0; decision < decisionToDFA.length; decision++) {
+            decisionToDFA[decision] = new DFA(atn.getDecisionState(decision), decision);
+        }
+
+        return decisionToDFA;
+    }
+
+    /**
+     * @return the number of states of the shared DFA, which only grows while the parsers meet input they did not
+     * predict before
+     */
+    static int getNumDFAStates() {
+        int numStates = 0;
+        for (var dfa : DECISION_TO_DFA) {
+            numStates += dfa.states.size();
+        }
+
+        return numStates;
+    }
+
+    /**
+     * A token stream that can read from the start of its source again. The one of ANTLR 4.5 does not read again after
+     * EOF when given a new source.
+     */
+    private static final class ReusableTokenStream extends CommonTokenStream {
+
+        private ReusableTokenStream(TokenSource tokenSource) {
+            super(tokenSource);
+        }
+
+        @Override
+        public void setTokenSource(TokenSource tokenSource) {
+            super.setTokenSource(tokenSource);
+            fetchedEOF = false;
+        }
+    }
+
+    /**
+     * A parser and the source and stream of its tokens.
+     */
+    static final class PooledParser {
+
+        private final JmmTokenSource tokenSource;
+        private final ReusableTokenStream tokenStream;
+        private final JavammParser parser;
+
+        private PooledParser(JmmTokens tokens) {
+            this.tokenSource = new JmmTokenSource(tokens);
+            this.tokenStream = new ReusableTokenStream(tokenSource);
+            this.parser = new JavammParser(tokenStream);
+            parser.setInterpreter(new ParserATNSimulator(parser, JavammParser._ATN, DECISION_TO_DFA, CONTEXT_CACHE));
+        }
+
+        /**
+         * Prepares the parser to parse the tokens from the start, forgetting the state of the previous parse.
+         */
+        void reset(JmmTokens tokens) {
+            tokenSource.setTokens(tokens);
+            tokenStream.setTokenSource(tokenSource);
+            // also resets the parser, and the prediction mode and error strategy are set again by each parse
+            parser.setInputStream(tokenStream);
+            // the parser does not reset its state, which a left-recursive start rule, e.g. expr, leaves inside the
+            // rule, and the next root context would take it as the state that invoked it, breaking error recovery
+            parser.setState(-1);
+        }
+
+        /**
+         * Parses the tokens from the given rule like {@link AntlrParser}, which looks up the method of the rule in a
+         * cache of SpecsSystem that is not thread-safe, and that concurrent parses would corrupt.
+         *
+         * @return a result with the AST, or without it if there were errors
+         */
+        JmmParserResult parse(String startingRule, Map<String, String> config) {
+            tokenSource.removeErrorListeners();
+            var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+            tokenSource.addErrorListener(lexerListener);
+
+            parser.removeErrorListeners();
+            var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+            parser.addErrorListener(parserListener);
+
+            var node = invokeRule(startingRule);
+
+            var reports = new ArrayList<Report>();
+            reports.addAll(lexerListener.getReports());
+            reports.addAll(parserListener.getReports());
+
+            if (reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR)) {
+                return new JmmParserResult(null, reports, config);
+            }
+
+            var root = AntlrToJmmNodeConverter.convert(node, parser);
+
+            var ignoreList = AntlrParser.getIgnoreList(parser);
+            if (!ignoreList.isEmpty()) {
+                new JmmNodeCleanup(ignoreList).visit(root);
+            }
+
+            return new JmmParserResult(root, reports, config);
+        }
+
+        private ParseTree invokeRule(String ruleName) {
+            var rule = RULES.computeIfAbsent(ruleName, name -> {
+                try {
+                    return JavammParser.class.getMethod(name);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException("Could not find rule '" + name + "'", e);
+                }
+            });
+
+            try {
+                return (ParseTree) rule.invoke(parser);
+            } catch (ReflectiveOperationException e) {
+                // the exceptions of the parse, e.g. of the BailErrorStrategy, are the causes
+                throw new RuntimeException("Error while invoking method '" + ruleName + "'", e);
+            }
+        }
+
+        JavammParser getParser() {
+            return parser;
+        }
+    }
+
+    // an idle parser must not keep the code it parsed alive, e.g. a mapped file
+    private static final JmmTokens NO_TOKENS = JmmLexer.tokenize("");
+
+    private final BlockingQueue<PooledParser> idle;
+
+    /**
+     * @param maxIdle how many parsers are kept while not in use, the others are dropped when released
+     */
+    ParserPool(int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * @return an idle parser ready to parse the tokens, or a new one if all are in use
+     */
+    PooledParser acquire(JmmTokens tokens) {
+        var pooled = idle.poll();
+        if (pooled == null) {
+            return new PooledParser(tokens);
+        }
+
+        pooled.reset(tokens);
+        return pooled;
+    }
+
+    /**
+     * Gives back a parser taken with {@link #acquire(JmmTokens)}, which must not be used after this.
+     */
+    void release(PooledParser pooled) {
+        pooled.reset(NO_TOKENS);
+        idle.offer(pooled);
+    }
+
+    /**
+     * @return the number of parsers kept while not in use
+     */
+    int getNumIdle() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,87 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParser;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.jfr.ParseEvent;
+import pt.up.fe.comp2024.utils.StageMetrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Parses Java-- with a hand-written lexer and recursive-descent parser instead of the ones ANTLR generates from
+ * Javamm.g4, without building a parse tree first. The AST is the same as the one of {@link JmmParserImpl}: the same
+ * kinds, hierarchies, attributes and positions.
+ * <p>
+ * Syntax errors are not recovered from, only the first one is reported. To use it, set ParserClass in
+ * config.properties to this class.
+ */
+public class RecursiveDescentParser implements JmmParser {
+
+    @Override
+    public String getDefaultRule() {
+        return "program";
+    }
+
+    @Override
+    public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+
+        var event = new ParseEvent();
+        event.begin();
+
+        var metrics = CompilerConfig.getMetrics(config) ? new StageMetrics("parser") : null;
+        var result = parseCode(jmmCode, startingRule, config, metrics);
+
+        event.end();
+        if (event.shouldCommit()) {
+            var rootNode = result.getRootNode();
+            if (rootNode != null) {
+                event.className = rootNode.getJmmChild(rootNode.getNumChildren() - 1).getOptional("name").orElse("");
+                event.nodeCount = NodeUtils.countNodes(rootNode);
+            }
+            event.predictionMode = "";
+            event.commit();
+        }
+
+        if (metrics == null) {
+            return result;
+        }
+
+        var reports = new ArrayList<>(result.getReports());
+        reports.add(metrics.toReport(Stage.SYNTATIC));
+        return new JmmParserResult(result.getRootNode(), reports, config);
+    }
+
+    /**
+     * @param metrics where the lexer and the parser are measured, or null
+     */
+    private JmmParserResult parseCode(String jmmCode, String startingRule, Map<String, String> config,
+                                      StageMetrics metrics) {
+
+        try {
+            var tokens = metrics == null ? JmmLexer.tokenize(jmmCode)
+                    : metrics.measure("lex", () -> JmmLexer.tokenize(jmmCode));
+            if (!tokens.getReports().isEmpty()) {
+                return new JmmParserResult(null, tokens.getReports(), config);
+            }
+
+            var parser = new DescentParser(tokens);
+            JmmNode root = metrics == null ? parser.parse(startingRule)
+                    : metrics.measure("parse", () -> parser.parse(startingRule));
+            return new JmmParserResult(root, new ArrayList<>(), config);
+
+        } catch (DescentParser.SyntaxError e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, e.getLine(), e.getColumn(),
+                    e.getMessage(), null), config);
+
+        } catch (Exception e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e),
+                    config);
+        }
+    }
+}
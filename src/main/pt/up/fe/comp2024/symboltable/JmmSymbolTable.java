@@ -5,8 +5,11 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -18,6 +21,11 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    private final Map<Symbol, SourceLocation> locations;
+
+    // names visible in each method, to resolve a variable without scanning the lists of symbols
+    private final Map<String, ResolvedSymbol> fieldIndex;
+    private final Map<String, Map<String, ResolvedSymbol>> methodIndex;
 
     public JmmSymbolTable(List<Symbol> fields,
                           List<String> imports,
@@ -26,15 +34,47 @@ public class JmmSymbolTable implements SymbolTable {
                           List<String> methods,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
-                          Map<String, List<Symbol>> locals) {
+                          Map<String, List<Symbol>> locals,
+                          Map<Symbol, SourceLocation> locations) {
         this.fields = fields;
         this.imports = imports;
         this.superClass = superClass;
         this.className = className;
-        this.methods = methods;
+        this.methods = Collections.unmodifiableList(methods);
         this.returnTypes = returnTypes;
-        this.params = params;
-        this.locals = locals;
+        this.params = unmodifiableValues(params);
+        this.locals = unmodifiableValues(locals);
+        this.locations = locations;
+
+        this.fieldIndex = new HashMap<>();
+        index(fields, SymbolScope.FIELD, fieldIndex);
+
+        this.methodIndex = new HashMap<>();
+        for (var method : methods) {
+            // parameters and locals shadow fields
+            var visible = new HashMap<>(fieldIndex);
+            index(locals.getOrDefault(method, List.of()), SymbolScope.LOCAL, visible);
+            index(params.getOrDefault(method, List.of()), SymbolScope.PARAMETER, visible);
+            methodIndex.put(method, visible);
+        }
+    }
+
+    /**
+     * Adds the symbols to the index, overriding the ones of outer scopes. When a name is declared more than once in
+     * the same scope, the first declaration is used, like the linear search it replaces.
+     */
+    private static void index(List<Symbol> symbols, SymbolScope scope, Map<String, ResolvedSymbol> index) {
+        var declared = new HashMap<String, ResolvedSymbol>();
+        for (var symbol : symbols) {
+            declared.putIfAbsent(symbol.getName(), new ResolvedSymbol(symbol, scope));
+        }
+        index.putAll(declared);
+    }
+
+    private static Map<String, List<Symbol>> unmodifiableValues(Map<String, List<Symbol>> map) {
+        var result = new HashMap<String, List<Symbol>>();
+        map.forEach((method, symbols) -> result.put(method, Collections.unmodifiableList(symbols)));
+        return result;
     }
 
     @Override
@@ -59,7 +99,7 @@ public class JmmSymbolTable implements SymbolTable {
 
     @Override
     public List<String> getMethods() {
-        return Collections.unmodifiableList(methods);
+        return methods;
     }
 
     @Override
@@ -67,26 +107,77 @@ public class JmmSymbolTable implements SymbolTable {
         return returnTypes.get(methodSignature);
     }
 
+    /**
+     * @throws NullPointerException if the method is not declared in the class
+     */
     @Override
     public List<Symbol> getParameters(String methodSignature) {
-        return Collections.unmodifiableList(params.get(methodSignature));
+        return Objects.requireNonNull(params.get(methodSignature), () -> "Unknown method " + methodSignature);
     }
 
+    /**
+     * @throws NullPointerException if the method is not declared in the class
+     */
     @Override
     public List<Symbol> getLocalVariables(String methodSignature) {
-        return Collections.unmodifiableList(locals.get(methodSignature));
+        return Objects.requireNonNull(locals.get(methodSignature), () -> "Unknown method " + methodSignature);
     }
 
-    public boolean hasVariable(String variable, String method) {
-        for (var field : fields) {
-            if (field.getName().equals(variable)) return true;
+    /**
+     * Finds the declaration a variable name refers to inside a method: a parameter, a local variable or a field, in
+     * this order.
+     *
+     * @param variable
+     * @param method   name of the method, or null to only look at the fields
+     * @return the declaration, or empty if the name is not a variable
+     */
+    public Optional<ResolvedSymbol> resolve(String variable, String method) {
+        var visible = method == null ? fieldIndex : methodIndex.getOrDefault(method, fieldIndex);
+        return Optional.ofNullable(visible.get(variable));
+    }
+
+    /**
+     * Like {@link #resolve(String, String)}, for any symbol table: other implementations are searched symbol by
+     * symbol, in the same order.
+     *
+     * @param method name of the method, or null to only look at the fields
+     */
+    public static Optional<ResolvedSymbol> resolve(SymbolTable table, String variable, String method) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.resolve(variable, method);
         }
-        for (var varia : getLocalVariables(method)) {
-            if (varia.getName().equals(variable)) return true;
+
+        if (method != null && table.getMethods().contains(method)) {
+            var symbol = find(table.getParameters(method), variable, SymbolScope.PARAMETER)
+                    .or(() -> find(table.getLocalVariables(method), variable, SymbolScope.LOCAL));
+            if (symbol.isPresent()) {
+                return symbol;
+            }
         }
 
-        return false;
+        return find(table.getFields(), variable, SymbolScope.FIELD);
+    }
 
+    private static Optional<ResolvedSymbol> find(List<Symbol> symbols, String variable, SymbolScope scope) {
+        for (var symbol : symbols) {
+            if (symbol.getName().equals(variable)) {
+                return Optional.of(new ResolvedSymbol(symbol, scope));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @param symbol a field, parameter or local variable of this table
+     * @return where the symbol is declared, keyed by identity since two declarations can have the same name and type
+     */
+    public SourceLocation getLocation(Symbol symbol) {
+        return locations.getOrDefault(symbol, SourceLocation.UNKNOWN);
+    }
+
+    public boolean hasVariable(String variable, String method) {
+        return resolve(variable, method).isPresent();
     }
 
 }
@@ -8,13 +8,41 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
+/**
+ * Builds the symbol table of a program.
+ * <p>
+ * All the tables are filled in a single pass over the declarations: the imports, the members of the class and the
+ * parameters and local variables of each method. The bodies of the methods are not visited.
+ */
 public class JmmSymbolTableBuilder {
 
+    private final List<String> imports;
+    private final List<Symbol> fields;
+    private final List<String> methods;
+    private final Map<String, Type> returnTypes;
+    private final Map<String, List<Symbol>> params;
+    private final Map<String, List<Symbol>> locals;
+    private final Map<Symbol, SourceLocation> locations;
+
+    private JmmSymbolTableBuilder(JmmNode root, JmmNode classDecl) {
+        int numImports = root.getNumChildren() - 1;
+        int numMembers = classDecl.getNumChildren();
+
+        imports = new ArrayList<>(numImports);
+        fields = new ArrayList<>(numMembers);
+        methods = new ArrayList<>(numMembers);
+        // enough room for every member to be a method, without rehashing
+        returnTypes = new HashMap<>(numMembers * 4 / 3 + 1);
+        params = new HashMap<>(numMembers * 4 / 3 + 1);
+        locals = new HashMap<>(numMembers * 4 / 3 + 1);
+        locations = new IdentityHashMap<>();
+    }
 
     public static JmmSymbolTable build(JmmNode root) {
 
@@ -23,111 +51,62 @@ public class JmmSymbolTableBuilder {
         SpecsCheck.checkArgument(Kind.CLASS_DECL.check(classDecl), () -> "Expected a class declaration: " + classDecl);
         String className = classDecl.get("name");
 
-        var fields = buildFields(classDecl);
-        var imports = buildImports(root);
-        var methods = buildMethods(classDecl);
-        var returnTypes = buildReturnTypes(classDecl);
-        var params = buildParams(classDecl);
-        var locals = buildLocals(classDecl);
-
-        String superClass;
-        try {
-            superClass = classDecl.get("superClass");
-        } catch (NullPointerException e) {
-            superClass = "";
-        }
-
-        return new JmmSymbolTable(fields, imports, className, superClass, methods, returnTypes, params, locals);
-    }
-
-    private static List<Symbol> buildFields(JmmNode classDecl) {
-        List<JmmNode> var_declarations = classDecl.getChildren(VAR_DECL);
-        List<Symbol> fields = new ArrayList<Symbol>();
-
-        for (var var_declaration : var_declarations) {
-            String fieldType = var_declaration.getChild(0).get("name");
-            String fieldName = var_declaration.get("name");
+        var builder = new JmmSymbolTableBuilder(root, classDecl);
 
-            Symbol field = new Symbol(new Type(fieldType, false), fieldName);
-            fields.add(field);
+        var children = root.getChildren();
+        for (int i = 0; i < children.size() - 1; i++) {
+            builder.imports.add(children.get(i).get("lib"));
         }
 
-        return fields;
-    }
+        builder.visitClassDecl(classDecl);
 
-    private static List<String> buildImports(JmmNode root) {
-        int size = root.getChildren().size();
-        List<String> res = new ArrayList<>();
+        String superClass = classDecl.getOptional("superClass").orElse("");
 
-        for (int i = 0; i < size - 1; i++) {
-            res.add(root.getChild(i).get("lib"));
-        }
-
-        return res;
+        return new JmmSymbolTable(builder.fields, builder.imports, className, superClass, builder.methods,
+                builder.returnTypes, builder.params, builder.locals, builder.locations);
     }
 
-    private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
-
-        Map<String, Type> map = new HashMap<>();
-
-        classDecl.getChildren(METHOD_DECL).stream()
-                .forEach(method -> map.put(method.get("name"), new Type(method.getChild(0).get("name"), Boolean.parseBoolean(method.getChild(0).get("isArray")))));
-
-        return map;
-    }
-
-    private static Map<String, List<Symbol>> buildParams(JmmNode classDecl) {
-
-        Map<String, List<Symbol>> map = new HashMap<>();
-        List<JmmNode> methods = classDecl.getChildren(METHOD_DECL);
-
-        for (JmmNode method : methods) {
-            var methodName = method.get("name");
-            var params = new ArrayList<Symbol>();
-            List<JmmNode> paramNodes = method.getChildren(PARAM);
-            for (JmmNode param : paramNodes) {
-                var paramName = param.get("name");
-                var type = new Type(param.getChild(0).get("name"), Boolean.parseBoolean(param.getChild(0).get("isArray")) || Boolean.parseBoolean(param.get("isVarArg")));
-                params.add(new Symbol(type, paramName));
+    private void visitClassDecl(JmmNode classDecl) {
+        for (var member : classDecl.getChildren()) {
+            if (member.isInstance(VAR_DECL.toString())) {
+                fields.add(newSymbol(getType(member.getChild(0)), member));
+            } else if (member.isInstance(METHOD_DECL.toString())) {
+                visitMethodDecl(member);
             }
-            map.put(methodName, params);
-
-
         }
-
-
-        return map;
     }
 
-    private static Map<String, List<Symbol>> buildLocals(JmmNode classDecl) {
-        Map<String, List<Symbol>> map = new HashMap<>();
-
-
-        classDecl.getChildren(METHOD_DECL).stream()
-                .forEach(method -> map.put(method.get("name"), getLocalsList(method)));
+    private void visitMethodDecl(JmmNode method) {
+        var methodName = method.get("name");
+        var children = method.getChildren();
+
+        methods.add(methodName);
+        returnTypes.put(methodName, getType(method.getChild(0)));
+
+        var methodParams = new ArrayList<Symbol>();
+        var methodLocals = new ArrayList<Symbol>();
+        for (var child : children) {
+            if (child.isInstance(PARAM.toString())) {
+                var baseType = child.getChild(0);
+                var isArray = Boolean.parseBoolean(baseType.get("isArray"))
+                        || Boolean.parseBoolean(child.get("isVarArg"));
+                methodParams.add(newSymbol(new Type(baseType.get("name"), isArray), child));
+            } else if (child.isInstance(VAR_DECL.toString())) {
+                methodLocals.add(newSymbol(getType(child.getChild(0)), child));
+            }
+        }
 
-        return map;
+        params.put(methodName, methodParams);
+        locals.put(methodName, methodLocals);
     }
 
-    private static List<String> buildMethods(JmmNode classDecl) {
-
-        return classDecl.getChildren(METHOD_DECL).stream()
-                .map(method -> method.get("name"))
-                .toList();
+    private Symbol newSymbol(Type type, JmmNode declaration) {
+        var symbol = new Symbol(type, declaration.get("name"));
+        locations.put(symbol, SourceLocation.of(declaration));
+        return symbol;
     }
 
-
-    private static List<Symbol> getLocalsList(JmmNode methodDecl) {
-
-        var vars = new ArrayList<Symbol>();
-        List<JmmNode> varsDec = methodDecl.getChildren(VAR_DECL);
-        for (JmmNode variable : varsDec) {
-            var variableName = variable.get("name");
-            var type = new Type(variable.getChild(0).get("name"), Boolean.parseBoolean(variable.getChild(0).get("isArray")));
-            vars.add(new Symbol(type, variableName));
-        }
-
-        return vars;
+    private static Type getType(JmmNode typeNode) {
+        return new Type(typeNode.get("name"), Boolean.parseBoolean(typeNode.get("isArray")));
     }
-
 }
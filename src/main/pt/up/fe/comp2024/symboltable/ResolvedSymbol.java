@@ -0,0 +1,21 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * The declaration a variable name refers to inside a method.
+ *
+ * @param symbol
+ * @param scope
+ */
+public record ResolvedSymbol(Symbol symbol, SymbolScope scope) {
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+}
@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+/**
+ * Position of a declaration in the source code.
+ *
+ * @param line   first line, or -1 if unknown
+ * @param column first column, or -1 if unknown
+ */
+public record SourceLocation(int line, int column) {
+
+    public static final SourceLocation UNKNOWN = new SourceLocation(-1, -1);
+
+    public static SourceLocation of(JmmNode node) {
+        return new SourceLocation(NodeUtils.getLine(node), NodeUtils.getColumn(node));
+    }
+}
@@ -0,0 +1,10 @@
+package pt.up.fe.comp2024.symboltable;
+
+/**
+ * Where a variable of a method is declared.
+ */
+public enum SymbolScope {
+    PARAMETER,
+    LOCAL,
+    FIELD
+}
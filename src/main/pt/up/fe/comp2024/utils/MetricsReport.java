@@ -0,0 +1,22 @@
+package pt.up.fe.comp2024.utils;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+/**
+ * Log report with the {@link StageMetrics} of a stage, as JSON in the message.
+ */
+public class MetricsReport extends Report {
+
+    private final StageMetrics metrics;
+
+    public MetricsReport(Stage stage, StageMetrics metrics) {
+        super(ReportType.LOG, stage, -1, -1, metrics.toJson());
+        this.metrics = metrics;
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,119 @@
+package pt.up.fe.comp2024.utils;
+
+import com.google.gson.Gson;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Wall time, CPU time and allocated bytes of the parts of a stage of the compiler.
+ * <p>
+ * CPU time and allocations are read from the counters of the current thread, so work done by other threads (e.g. the
+ * parallel analysis) only shows in the wall time. Counters the JVM does not support are reported as -1.
+ */
+public class StageMetrics {
+
+    /**
+     * @param name           the part of the stage that was measured
+     * @param wallNanos      elapsed time
+     * @param cpuNanos       CPU time of the current thread
+     * @param allocatedBytes bytes allocated by the current thread
+     */
+    public record Measurement(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private final String stage;
+    private final List<Measurement> measurements;
+
+    public StageMetrics(String stage) {
+        this.stage = stage;
+        this.measurements = new ArrayList<>();
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public List<Measurement> getMeasurements() {
+        return measurements;
+    }
+
+    public <T> T measure(String name, Supplier<T> part) {
+        long allocated = getAllocatedBytes();
+        long cpu = getCpuTime();
+        long start = System.nanoTime();
+
+        var result = part.get();
+
+        long wall = System.nanoTime() - start;
+        cpu = cpu < 0 ? -1 : getCpuTime() - cpu;
+        allocated = allocated < 0 ? -1 : getAllocatedBytes() - allocated;
+        measurements.add(new Measurement(name, wall, cpu, allocated));
+
+        return result;
+    }
+
+    public void measure(String name, Runnable part) {
+        measure(name, () -> {
+            part.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds a measurement taken elsewhere, e.g. added up over several calls.
+     */
+    public void add(Measurement measurement) {
+        measurements.add(measurement);
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    /**
+     * @return a log report with these metrics, as JSON
+     */
+    public Report toReport(Stage reportStage) {
+        return new MetricsReport(reportStage, this);
+    }
+
+    /**
+     * @return a JSON array with the metrics of all the stages that have a report in the list
+     */
+    public static String toJson(List<Report> reports) {
+        var metrics = new ArrayList<StageMetrics>();
+        for (var report : reports) {
+            if (report instanceof MetricsReport metricsReport) {
+                metrics.add(metricsReport.getMetrics());
+            }
+        }
+
+        return GSON.toJson(metrics);
+    }
+
+    private static long getCpuTime() {
+        var threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isCurrentThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    private static long getAllocatedBytes() {
+        // allocations are only counted by the HotSpot extension of the bean
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+}
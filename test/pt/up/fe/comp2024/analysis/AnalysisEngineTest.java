@@ -0,0 +1,212 @@
+package pt.up.fe.comp2024.analysis;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.jfr.AnalysisPassEvent;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.StageMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AnalysisEngineTest {
+
+    private static final String THREE_METHODS = """
+            class A {
+                public int a() { return 1; }
+                public int b() { return 2; }
+                public int c() { return 3; }
+            }
+            """;
+
+    /**
+     * Counts the methods it visits, and reports each one if asked to.
+     */
+    private static class MethodCounter extends AnalysisVisitor {
+
+        private final boolean report;
+        private int count = 0;
+
+        MethodCounter(boolean report) {
+            this.report = report;
+        }
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+        }
+
+        private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+            count++;
+            if (report) {
+                addReport(Report.newError(Stage.SEMANTIC, -1, -1, "method " + method.get("name"), null));
+            }
+            return null;
+        }
+    }
+
+    private static class Thrower extends AnalysisVisitor {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.METHOD_DECL, (method, table) -> {
+                throw new IllegalStateException("fails on " + method.get("name"));
+            });
+        }
+    }
+
+    /**
+     * Runs each pass over the whole tree by itself, and keeps the reports up to the first pass that reported.
+     */
+    private static List<String> analyzeEachPass(List<AnalysisVisitor> passes, JmmNode root, SymbolTable table) {
+        var reports = new ArrayList<List<Report>>();
+        var failures = new ArrayList<Exception>();
+        for (var pass : passes) {
+            try {
+                reports.add(pass.analyze(root, table));
+                failures.add(null);
+            } catch (Exception e) {
+                reports.add(List.of());
+                failures.add(e);
+            }
+        }
+
+        return toStrings(AnalysisEngine.collectReports(passes, reports, failures));
+    }
+
+    private static List<String> toStrings(List<Report> reports) {
+        return reports.stream().map(Report::toString).toList();
+    }
+
+    @Test
+    public void passesAfterOneThatReportedStopAtTheNextMethod() {
+        var root = TestUtils.parse(THREE_METHODS).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        var before = new MethodCounter(false);
+        var reporter = new MethodCounter(true);
+        var after = new MethodCounter(false);
+
+        var reports = new AnalysisEngine(List.of(before, reporter, after)).analyze(root, table);
+
+        assertEquals(3, before.count);
+        assertEquals(3, reporter.count);
+        // it still visits the method where the reporter first reported
+        assertEquals(1, after.count);
+        assertEquals(List.of("method a", "method b", "method c"), reports.stream().map(Report::getMessage).toList());
+    }
+
+    @Test
+    public void passAfterOneThatFailedStillRuns() {
+        var root = TestUtils.parse(THREE_METHODS).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        var next = new MethodCounter(false);
+        var last = new MethodCounter(false);
+
+        var reports = new AnalysisEngine(List.of(new Thrower(), next, last)).analyze(root, table);
+
+        assertEquals(3, next.count);
+        assertEquals(1, last.count);
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).getMessage().contains(Thrower.class.getName()));
+    }
+
+    @Test
+    public void metricsMeasureTheSharedTraversal() {
+        var root = TestUtils.parse(THREE_METHODS).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        var first = new MethodCounter(false);
+        var second = new MethodCounter(false);
+        var metrics = new StageMetrics("analysis");
+
+        var reports = new AnalysisEngine(List.of(first, second)).analyze(root, table, metrics);
+
+        assertTrue(reports.isEmpty());
+        assertEquals(3, first.count);
+        assertEquals(3, second.count);
+
+        var measurements = metrics.getMeasurements();
+        assertEquals(List.of("passes", "MethodCounter", "MethodCounter"),
+                measurements.stream().map(StageMetrics.Measurement::name).toList());
+        // the passes are measured inside the traversal
+        for (var measurement : measurements.subList(1, 3)) {
+            assertTrue(measurement.wallNanos() > 0);
+            assertTrue(measurement.wallNanos() <= measurements.get(0).wallNanos());
+        }
+    }
+
+    @Test
+    public void recordingGetsAnEventForEachPass() throws IOException {
+        var root = TestUtils.parse(THREE_METHODS).getRootNode();
+        var table = JmmSymbolTableBuilder.build(root);
+        var counter = new MethodCounter(false);
+        var reporter = new MethodCounter(true);
+
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable(AnalysisPassEvent.class).withoutThreshold();
+            recording.start();
+            new AnalysisEngine(List.of(counter, reporter)).analyze(root, table);
+            recording.stop();
+
+            var file = Files.createTempFile("analysis", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        // the passes still share the traversal
+        assertEquals(3, counter.count);
+        assertEquals(3, reporter.count);
+
+        assertEquals(2, events.size());
+        for (var event : events) {
+            assertEquals("MethodCounter", event.getString("pass"));
+            assertEquals("A", event.getString("className"));
+            assertEquals(3, event.getInt("callCount"));
+            assertTrue(event.getLong("passTime") > 0);
+        }
+        assertEquals(List.of(0, 3), events.stream().map(event -> event.getInt("reportCount")).sorted().toList());
+    }
+
+    @Test
+    public void sameReportsAsEachPassByItself() throws IOException {
+        List<Path> inputs;
+        try (var files = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            inputs = files.filter(file -> file.toString().endsWith(".jmm")).sorted().toList();
+        }
+
+        int numCompared = 0;
+        for (var input : inputs) {
+            var parserResult = TestUtils.parse(Files.readString(input));
+            if (parserResult.getRootNode() == null) {
+                continue;
+            }
+
+            var root = parserResult.getRootNode();
+            var expected = analyzeEachPass(JmmAnalysisImpl.createPasses(), root, JmmSymbolTableBuilder.build(root));
+            var actual = new AnalysisEngine(JmmAnalysisImpl.createPasses())
+                    .analyze(root, JmmSymbolTableBuilder.build(root));
+
+            assertEquals(input.toString(), expected, toStrings(actual));
+            numCompared++;
+        }
+
+        assertTrue(numCompared > 100);
+    }
+}
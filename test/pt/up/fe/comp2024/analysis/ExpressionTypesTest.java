@@ -0,0 +1,128 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExpressionTypesTest {
+
+    private static final String PROGRAM = """
+            class A {
+                int field;
+                public int sum(int[] a, int n) {
+                    int i;
+                    int s;
+                    i = 0;
+                    s = 0;
+                    while (i < n) {
+                        s = s + a[i] * 2;
+                        i = i + 1;
+                    }
+                    return s;
+                }
+                public boolean less(int x) {
+                    A other;
+                    other = new A();
+                    return x < this.zero() && true;
+                }
+                public int twice(int x) { return x + x; }
+                public int zero() { return 0; }
+            }
+            """;
+
+    private static String getMethod(JmmNode expr) {
+        return expr.getAncestor(Kind.METHOD_DECL).orElseThrow().get("name");
+    }
+
+    /**
+     * @return the operands of the binary expressions, whose types InvalidBinaryOperation always asks for
+     */
+    private static List<JmmNode> getOperands(JmmNode root) {
+        return root.getDescendants(Kind.BINARY_EXPR).stream()
+                .flatMap(binaryExpr -> binaryExpr.getChildren().stream())
+                .toList();
+    }
+
+    /**
+     * The passes fill the types of the analysis, with the same types as inferring them again.
+     */
+    private static void assertInferredByTheAnalysis(JmmSemanticsResult result) {
+        TestUtils.noErrors(result);
+        assertTrue(result instanceof TypedSemanticsResult);
+        var types = ((TypedSemanticsResult) result).getExpressionTypes();
+
+        var root = result.getRootNode();
+        var table = result.getSymbolTable();
+        for (var expr : getOperands(root)) {
+            assertTrue(expr.toString(), types.find(expr).isPresent());
+        }
+        for (var expr : root.getDescendants()) {
+            var type = types.find(expr);
+            if (type.isPresent()) {
+                assertEquals(expr.toString(), ExpressionTypes.inferType(expr, table, getMethod(expr)), type.get());
+            }
+        }
+    }
+
+    @Test
+    public void analysisInfersTheTypes() {
+        assertInferredByTheAnalysis(TestUtils.analyse(PROGRAM));
+    }
+
+    @Test
+    public void parallelAnalysisInfersTheTypes() {
+        assertInferredByTheAnalysis(TestUtils.analyse(PROGRAM, Map.of("parallelAnalysis", "true")));
+    }
+
+    @Test
+    public void typeIsInferredOnce() {
+        var result = (TypedSemanticsResult) TestUtils.analyse(PROGRAM);
+        var types = result.getExpressionTypes();
+        var table = result.getSymbolTable();
+
+        int numTypes = types.size();
+        for (var expr : getOperands(result.getRootNode())) {
+            var type = types.find(expr).orElseThrow();
+            assertSame(type, types.get(expr, table, getMethod(expr)));
+        }
+        assertEquals(numTypes, types.size());
+    }
+
+    @Test
+    public void ollirGeneratorsReadTheTypesOfTheAnalysis() {
+        var result = TestUtils.analyse(PROGRAM);
+        var types = ExpressionTypes.of(result);
+        var table = result.getSymbolTable();
+
+        // getExprType(expr, table) cannot infer the type of calls, but the analysis did
+        var call = result.getRootNode().getDescendants(Kind.METHOD_CALL).get(0);
+        assertEquals(new Type("int", false), TypeUtils.getExprType(call, table, types));
+
+        var newObject = result.getRootNode().getDescendants(Kind.NEW_OBJECT).get(0);
+        assertEquals(new Type("A", false), TypeUtils.getExprType(newObject, table, types));
+    }
+
+    @Test
+    public void resultWithoutTypesInfersThem() {
+        var result = TestUtils.analyse(PROGRAM);
+        var withoutTypes = new JmmSemanticsResult(result.getRootNode(), result.getSymbolTable(), result.getReports(),
+                result.getConfig());
+
+        var types = ExpressionTypes.of(withoutTypes);
+        assertEquals(0, types.size());
+
+        var table = result.getSymbolTable();
+        for (var expr : result.getRootNode().getDescendants(Kind.VAR_REF_EXPR)) {
+            assertEquals(TypeUtils.getExprType(expr, table), TypeUtils.getExprType(expr, table, types));
+        }
+    }
+}
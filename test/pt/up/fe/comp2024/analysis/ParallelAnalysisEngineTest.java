@@ -0,0 +1,150 @@
+package pt.up.fe.comp2024.analysis;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.jfr.AnalysisPassEvent;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ParallelAnalysisEngineTest {
+
+    private static final String FOUR_METHODS = """
+            class A {
+                int field;
+                public int a() { return 1; }
+                public int b() { return 2; }
+                public int c() { return 3; }
+                public int d() { return 4; }
+            }
+            """;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Counts the class declarations it visits, and reports each method, so the reports of the groups are merged.
+     */
+    private static class ClassCounter extends AnalysisVisitor {
+
+        private final AtomicInteger numClassVisits;
+
+        ClassCounter(AtomicInteger numClassVisits) {
+            this.numClassVisits = numClassVisits;
+        }
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.CLASS_DECL, this::visitClassDecl);
+            addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+        }
+
+        private Void visitClassDecl(JmmNode classDecl, SymbolTable table) {
+            numClassVisits.incrementAndGet();
+            return null;
+        }
+
+        private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+            addReport(Report.newError(Stage.SEMANTIC, -1, -1, "method " + method.get("name"), null));
+            return null;
+        }
+    }
+
+    private static List<String> toStrings(List<Report> reports) {
+        return reports.stream().map(Report::toString).toList();
+    }
+
+    @Test
+    public void classIsVisitedOnce() {
+        var root = TestUtils.parse(FOUR_METHODS).getRootNode();
+        var numClassVisits = new AtomicInteger();
+
+        var reports = new ParallelAnalysisEngine(() -> List.of(new ClassCounter(numClassVisits)), pool)
+                .analyze(root, JmmSymbolTableBuilder.build(root));
+
+        assertEquals(1, numClassVisits.get());
+        assertEquals(List.of("method a", "method b", "method c", "method d"),
+                reports.stream().map(Report::getMessage).toList());
+    }
+
+    @Test
+    public void recordingGetsTheTotalsOfAllTasks() throws IOException {
+        var root = TestUtils.parse(FOUR_METHODS).getRootNode();
+        var numClassVisits = new AtomicInteger();
+        var engine = new ParallelAnalysisEngine(() -> List.of(new ClassCounter(numClassVisits)), pool);
+
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable(AnalysisPassEvent.class).withoutThreshold();
+            recording.start();
+            engine.analyze(root, JmmSymbolTableBuilder.build(root));
+            recording.stop();
+
+            var file = Files.createTempFile("analysis", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        assertEquals(1, events.size());
+        // the class declaration and the four methods
+        assertEquals(5, events.get(0).getInt("callCount"));
+        assertEquals(4, events.get(0).getInt("reportCount"));
+    }
+
+    @Test
+    public void sameReportsAsSequentialEngine() throws IOException {
+        List<Path> inputs;
+        try (var files = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            inputs = files.filter(file -> file.toString().endsWith(".jmm")).sorted().toList();
+        }
+
+        int numCompared = 0;
+        for (var input : inputs) {
+            var parserResult = TestUtils.parse(Files.readString(input));
+            if (parserResult.getRootNode() == null) {
+                continue;
+            }
+
+            var root = parserResult.getRootNode();
+            var expected = new AnalysisEngine(JmmAnalysisImpl.createPasses())
+                    .analyze(root, JmmSymbolTableBuilder.build(root));
+            var actual = new ParallelAnalysisEngine(JmmAnalysisImpl::createPasses, pool)
+                    .analyze(root, JmmSymbolTableBuilder.build(root));
+
+            assertEquals(input.toString(), toStrings(expected), toStrings(actual));
+            numCompared++;
+        }
+
+        assertTrue(numCompared > 100);
+    }
+}
@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InProcessRunnerTest {
+
+    /**
+     * Prints "spin" every 20 ms, 100 times, and ignores interrupts.
+     */
+    private static final String SPIN = """
+            .class public Spin
+            .super java/lang/Object
+            .method public static main([Ljava/lang/String;)V
+                .limit stack 2
+                .limit locals 1
+                bipush 100
+                istore_0
+            Loop:
+                getstatic java/lang/System/out Ljava/io/PrintStream;
+                ldc "spin"
+                invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+            Try:
+                bipush 20
+                i2l
+                invokestatic java/lang/Thread/sleep(J)V
+            EndTry:
+                goto Next
+            Handler:
+                pop
+            Next:
+                iinc 0 -1
+                iload_0
+                ifgt Loop
+                return
+            .catch java/lang/InterruptedException from Try to EndTry using Handler
+            .end method
+            """;
+
+    /**
+     * Prints "a", waits 200 ms and prints "b".
+     */
+    private static final String SLOW = """
+            .class public Slow
+            .super java/lang/Object
+            .method public static main([Ljava/lang/String;)V
+                .limit stack 2
+                .limit locals 1
+                getstatic java/lang/System/out Ljava/io/PrintStream;
+                ldc "a"
+                invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                sipush 200
+                i2l
+                invokestatic java/lang/Thread/sleep(J)V
+                getstatic java/lang/System/out Ljava/io/PrintStream;
+                ldc "b"
+                invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V
+                return
+            .end method
+            """;
+
+    /**
+     * Waits for the streams to be put back, which happens when the programs that are still running end, e.g. the
+     * spinning one, which runs for about 2 s after a timeout.
+     */
+    private static void assertRestored(PrintStream out, PrintStream err, InputStream in) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.out != out && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertSame(out, System.out);
+        assertSame(err, System.err);
+        assertSame(in, System.in);
+    }
+
+    @Test
+    public void timedOutRunDoesNotWriteIntoOtherRuns() throws InterruptedException {
+        var out = System.out;
+        var err = System.err;
+        var in = System.in;
+        var runner = new InProcessRunner(List.of(TestUtils.getLibsClasspath()), 100);
+
+        var spin = runner.run(new JasminResult("Spin", SPIN, List.of()));
+        assertTrue(spin.timedOut());
+        assertTrue(spin.output(), spin.output().startsWith("spin"));
+
+        // the spinning program keeps printing while this one runs
+        var slow = new InProcessRunner(List.of(TestUtils.getLibsClasspath())).run(
+                new JasminResult("Slow", SLOW, List.of()));
+        assertTrue(slow.isSuccess());
+        assertEquals(List.of("a", "b"), slow.output().lines().toList());
+
+        assertRestored(out, err, in);
+    }
+
+    @Test
+    public void overlappingRunsKeepTheirOutput() throws InterruptedException {
+        var runner = new InProcessRunner(List.of(TestUtils.getLibsClasspath()));
+        var results = new RunResult[2];
+
+        var other = new Thread(() -> results[1] = runner.run(new JasminResult("Slow", SLOW, List.of())));
+        other.start();
+        results[0] = runner.run(new JasminResult("Slow", SLOW, List.of()));
+        other.join();
+
+        for (var result : results) {
+            assertTrue(result.isSuccess());
+            assertEquals(List.of("a", "b"), result.output().lines().toList());
+        }
+    }
+
+    @Test
+    public void streamsAreRestoredAfterTheLastRun() throws InterruptedException {
+        var out = System.out;
+        var err = System.err;
+        var in = System.in;
+
+        var result = new InProcessRunner(List.of(TestUtils.getLibsClasspath())).run(
+                new JasminResult("Slow", SLOW, List.of()));
+
+        assertTrue(result.isSuccess());
+        assertRestored(out, err, in);
+    }
+
+    @Test
+    public void otherThreadsKeepTheCharsetOfTheReplacedStream() throws InterruptedException {
+        var out = System.out;
+        var err = System.err;
+        var in = System.in;
+        var bytes = new ByteArrayOutputStream();
+        var latin1 = new PrintStream(bytes, true, StandardCharsets.ISO_8859_1);
+
+        System.setOut(latin1);
+        try {
+            // the spinning program keeps the streams routed after its timeout
+            var spin = new InProcessRunner(List.of(TestUtils.getLibsClasspath()), 100).run(
+                    new JasminResult("Spin", SPIN, List.of()));
+            assertTrue(spin.timedOut());
+            assertNotSame(latin1, System.out);
+
+            System.out.print("\u00e9");
+            System.out.flush();
+            assertArrayEquals(new byte[]{(byte) 0xE9}, bytes.toByteArray());
+
+            assertRestored(latin1, err, in);
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
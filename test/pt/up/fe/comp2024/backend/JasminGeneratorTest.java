@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JasminGeneratorTest {
+
+    /**
+     * Stores into an array inside a loop, so a value left on the stack by the store fails verification.
+     */
+    private static final String ARRAY_STORE_LOOP = """
+            import io;
+            ArrayStoreLoop {
+
+                .construct ArrayStoreLoop().V {
+                    invokespecial(this, "<init>").V;
+                }
+
+                .method public static main(args.array.String).V {
+                    values.array.i32 :=.array.i32 new(array, 4.i32).array.i32;
+                    i.i32 :=.i32 0.i32;
+                fill:
+                    k.i32 :=.i32 i.i32 *.i32 3.i32;
+                    values[i.i32].i32 :=.i32 k.i32;
+                    i.i32 :=.i32 i.i32 +.i32 1.i32;
+                    if (i.i32 <.bool 4.i32) goto fill;
+                    k.i32 :=.i32 values[3.i32].i32;
+                    invokestatic(io, "println", k.i32).V;
+                    ret.V;
+                }
+            }
+            """;
+
+    @Test
+    public void arrayStorePushesTheValueOnce() {
+        var jasminResult = new JasminBackendImpl().toJasmin(new OllirResult(ARRAY_STORE_LOOP, Collections.emptyMap()));
+        assertTrue(jasminResult.getReports().toString(), jasminResult.getReports().isEmpty());
+
+        var result = new InProcessRunner(List.of(TestUtils.getLibsClasspath())).run(jasminResult);
+
+        assertTrue(String.valueOf(result.exception()), result.isSuccess());
+        assertEquals(List.of("9"), result.output().lines().toList());
+    }
+}
@@ -0,0 +1,135 @@
+package pt.up.fe.comp2024.backend.classfile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClassFileBackendTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private record Run(int exitCode, String stdout, String stderr) {
+    }
+
+    private static OllirResult ollir(String resource) {
+        return new OllirResult(SpecsIo.getResource(resource), Collections.emptyMap());
+    }
+
+    /**
+     * Runs the main method of the class in a new JVM that verifies every class it loads.
+     */
+    private static Run runVerified(File classDir, String className) throws IOException, InterruptedException {
+        var java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        var classpath = classDir.getPath() + File.pathSeparator + TestUtils.getLibsClasspath();
+        var process = new ProcessBuilder(List.of(java, "-Xverify:all", "-cp", classpath, className)).start();
+        process.getOutputStream().close();
+        assertTrue("Timed out running " + className, process.waitFor(30, TimeUnit.SECONDS));
+
+        var stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        var stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        return new Run(process.exitValue(), stdout, stderr);
+    }
+
+    private Run compileAndRun(JasminResult result) throws IOException, InterruptedException {
+        var classDir = temporaryFolder.newFolder();
+        var classFile = result.compile(classDir);
+        assertTrue(classFile.isFile());
+
+        return runVerified(classDir, result.getClassName());
+    }
+
+    /**
+     * @return the major version of the class file written by the backend, which follows the magic number and the
+     * minor version
+     */
+    private int getMajorVersion(JasminResult result) throws IOException {
+        var classFile = result.compile(temporaryFolder.newFolder());
+        var bytes = Files.readAllBytes(classFile.toPath());
+
+        return ((bytes[6] & 0xFF) << 8) | (bytes[7] & 0xFF);
+    }
+
+    /**
+     * The class file passes verification and prints the same as the class assembled from the Jasmin backend.
+     */
+    private void testSameOutput(String resource) throws IOException, InterruptedException {
+        var classFileResult = new ClassFileBackendImpl().toJasmin(ollir(resource));
+        assertEquals(52, getMajorVersion(classFileResult));
+        var run = compileAndRun(classFileResult);
+        assertEquals("Error while running " + resource + ": " + run.stderr(), 0, run.exitCode());
+
+        var expected = compileAndRun(new JasminBackendImpl().toJasmin(ollir(resource)));
+        assertEquals(0, expected.exitCode());
+        assertEquals(expected.stdout(), run.stdout());
+    }
+
+    @Test
+    public void controlFlow() throws IOException, InterruptedException {
+        testSameOutput("pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.ollir");
+    }
+
+    @Test
+    public void arrays() throws IOException, InterruptedException {
+        testSameOutput("pt/up/fe/comp/cpf/4_jasmin/arrays/ComplexArrayAccess.ollir");
+    }
+
+    @Test
+    public void fields() throws IOException, InterruptedException {
+        testSameOutput("pt/up/fe/comp/cp2/jasmin/OllirToJasminFields.ollir");
+    }
+
+    @Test
+    public void arithmetic() throws IOException, InterruptedException {
+        testSameOutput("pt/up/fe/comp/cpf/4_jasmin/arithmetic/Arithmetic_not.ollir");
+    }
+
+    /**
+     * Only the class file backend writes Java 8 class files with StackMapTable frames, the Jasmin backend, which is the
+     * default, writes the version of the bundled Jasmin assembler.
+     */
+    @Test
+    public void onlyClassFileBackendWritesJava8() throws IOException {
+        var resource = "pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.ollir";
+
+        var classFileResult = (ClassFileResult) new ClassFileBackendImpl().toJasmin(ollir(resource));
+        assertEquals(52, getMajorVersion(classFileResult));
+        var classBytes = new String(classFileResult.getClassBytes(), StandardCharsets.ISO_8859_1);
+        assertTrue(classBytes.contains("StackMapTable"));
+
+        assertTrue(getMajorVersion(new JasminBackendImpl().toJasmin(ollir(resource))) < 50);
+    }
+
+    @Test
+    public void jasminCodeIsDisassembly() throws IOException, InterruptedException {
+        var resource = "pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.ollir";
+        var ollirResult = ollir(resource);
+        var classFileResult = new ClassFileBackendImpl().toJasmin(ollirResult);
+
+        var jasminCode = classFileResult.getJasminCode();
+        assertNotNull(jasminCode);
+        assertTrue(jasminCode, jasminCode.startsWith(".class public " + classFileResult.getClassName() + "\n"));
+
+        // the disassembly assembles into a class that behaves the same
+        var reassembled = compileAndRun(new JasminResult(ollirResult, jasminCode, Collections.emptyList()));
+        var run = compileAndRun(classFileResult);
+        assertEquals("Error while running the disassembly: " + reassembled.stderr(), 0, reassembled.exitCode());
+        assertEquals(run.stdout(), reassembled.stdout());
+    }
+}
@@ -0,0 +1,137 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PeepholeOptimizerTest {
+
+    private static List<JasminInstruction> code(String... lines) {
+        return JasminInstruction.parse(List.of(lines));
+    }
+
+    private static List<String> lines(List<JasminInstruction> code) {
+        return code.stream().map(JasminInstruction::toString).toList();
+    }
+
+    private static void assertApplies(PeepholePattern pattern, Set<Integer> readRegisters, List<String> expected,
+                                      String... input) {
+        var code = code(input);
+        assertTrue(pattern.apply(code, 0, readRegisters));
+        assertEquals(expected, lines(code));
+    }
+
+    private static void assertDoesNotApply(PeepholePattern pattern, Set<Integer> readRegisters, String... input) {
+        var code = code(input);
+        assertFalse(pattern.apply(code, 0, readRegisters));
+        assertEquals(List.of(input), lines(code));
+    }
+
+    @Test
+    public void parseKeepsOperandsTyped() {
+        var code = code("iload_1", "istore 4", "iinc 4 -1", "bipush 10", "ldc \"a b\"", "if_icmplt loop",
+                "invokestatic io/println(I)V", "end:");
+
+        assertEquals(JasminOpcode.ILOAD, code.get(0).opcode());
+        assertEquals(1, code.get(0).getLocal());
+        assertEquals(4, code.get(1).getLocal());
+        assertEquals(List.of(new JasminOperand.Local(4), new JasminOperand.IntConstant(-1)), code.get(2).operands());
+        assertEquals(List.of(new JasminOperand.IntConstant(10)), code.get(3).operands());
+        assertEquals(List.of(new JasminOperand.Symbol("\"a b\"")), code.get(4).operands());
+        assertEquals("loop", code.get(5).getTarget());
+        assertEquals(JasminOpcode.INVOKESTATIC, code.get(6).opcode());
+        assertEquals("end", code.get(7).label());
+
+        // the short forms are kept for locals 0 to 3
+        assertEquals(List.of("iload_1", "istore 4", "iinc 4 -1", "bipush 10", "ldc \"a b\"", "if_icmplt loop",
+                "invokestatic io/println(I)V", "end:"), lines(code));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseRejectsUnknownInstructions() {
+        code("lload_1");
+    }
+
+    @Test
+    public void storeReload() {
+        assertApplies(PeepholePattern.STORE_RELOAD, Set.of(2), List.of("dup", "istore_2"),
+                "istore_2", "iload_2");
+        assertApplies(PeepholePattern.STORE_RELOAD, Set.of(7), List.of("dup", "astore 7"),
+                "astore 7", "aload 7");
+
+        assertDoesNotApply(PeepholePattern.STORE_RELOAD, Set.of(2, 3), "istore_2", "iload_3");
+        assertDoesNotApply(PeepholePattern.STORE_RELOAD, Set.of(2), "istore_2", "aload_2");
+        assertDoesNotApply(PeepholePattern.STORE_RELOAD, Set.of(2), "istore_2", "next:", "iload_2");
+    }
+
+    @Test
+    public void deadStore() {
+        assertApplies(PeepholePattern.DEAD_STORE, Set.of(), List.of("pop"), "istore 5");
+
+        assertDoesNotApply(PeepholePattern.DEAD_STORE, Set.of(5), "istore 5");
+    }
+
+    @Test
+    public void gotoNext() {
+        assertApplies(PeepholePattern.GOTO_NEXT, Set.of(), List.of("other:", "next:", "iconst_0"),
+                "goto next", "other:", "next:", "iconst_0");
+
+        assertDoesNotApply(PeepholePattern.GOTO_NEXT, Set.of(), "goto next", "iconst_1", "next:");
+    }
+
+    @Test
+    public void doubleNegation() {
+        assertApplies(PeepholePattern.DOUBLE_NEGATION, Set.of(), List.of("ireturn"),
+                "iconst_1", "ixor", "iconst_1", "ixor", "ireturn");
+
+        assertDoesNotApply(PeepholePattern.DOUBLE_NEGATION, Set.of(), "iconst_1", "ixor", "iconst_1", "iand");
+    }
+
+    @Test
+    public void pushPop() {
+        assertApplies(PeepholePattern.PUSH_POP, Set.of(), List.of("return"), "bipush 10", "pop", "return");
+        assertApplies(PeepholePattern.PUSH_POP, Set.of(1), List.of(), "iload_1", "pop");
+
+        // the call has effects, so only its result can be discarded
+        assertDoesNotApply(PeepholePattern.PUSH_POP, Set.of(), "invokestatic io/read()I", "pop");
+        assertDoesNotApply(PeepholePattern.PUSH_POP, Set.of(), "iadd", "pop");
+    }
+
+    @Test
+    public void rewritesEnableEachOther() {
+        var optimizer = new PeepholeOptimizer();
+        var code = code("iload_1", "istore 4", "iload 4", "ireturn");
+
+        assertTrue(optimizer.optimize(code));
+
+        // the reload becomes a dup, the store of 4 is then dead, and the dup and pop cancel out
+        assertEquals(List.of("iload_1", "ireturn"), lines(code));
+        assertEquals(Map.of(PeepholePattern.STORE_RELOAD, 1, PeepholePattern.DEAD_STORE, 1,
+                PeepholePattern.PUSH_POP, 1), optimizer.getHits());
+        assertEquals(3, optimizer.getTotalHits());
+    }
+
+    @Test
+    public void hitsAddUpAcrossMethods() {
+        var optimizer = new PeepholeOptimizer();
+
+        optimizer.optimize(code("goto a", "a:", "return"));
+        optimizer.optimize(code("iload_1", "iconst_1", "ixor", "iconst_1", "ixor", "goto b", "b:", "ireturn"));
+
+        assertEquals(Map.of(PeepholePattern.GOTO_NEXT, 2, PeepholePattern.DOUBLE_NEGATION, 1), optimizer.getHits());
+    }
+
+    @Test
+    public void unchangedCodeIsNotCounted() {
+        var optimizer = new PeepholeOptimizer();
+        var code = code("iload_1", "iinc 1 1", "iload_1", "ireturn");
+
+        assertFalse(optimizer.optimize(code));
+        assertEquals(List.of("iload_1", "iinc 1 1", "iload_1", "ireturn"), lines(code));
+        assertEquals(0, optimizer.getTotalHits());
+    }
+}
@@ -0,0 +1,104 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConstantPropagationTest {
+
+    private static OllirResult optimize(String filename) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/constprop/" + filename);
+        return new JmmOptimizationImpl().optimize(new OllirResult(code, config));
+    }
+
+    private static void assertHasLine(OllirResult result, String line) {
+        assertTrue("Expected '" + line + "' in:\n" + result.getOllirCode(),
+                result.getOllirCode().lines().anyMatch(codeLine -> codeLine.strip().equals(line)));
+    }
+
+    private static void assertNoLine(OllirResult result, String line) {
+        assertFalse("Did not expect '" + line + "' in:\n" + result.getOllirCode(),
+                result.getOllirCode().lines().anyMatch(codeLine -> codeLine.strip().equals(line)));
+    }
+
+    /**
+     * The code of the result is the optimized class, not the code that was given to the optimizer.
+     */
+    private static void assertCodeMatchesClass(OllirResult result) {
+        var printed = OllirPrinter.print(result.getOllirClass());
+        var reparsed = OllirPrinter.print(new OllirResult(result.getOllirCode(), result.getConfig()).getOllirClass());
+        assertEquals(printed, reparsed);
+    }
+
+    @Test
+    public void mergeOfSameValueIsConstant() {
+        var result = optimize("MergeSameValue.ollir");
+
+        assertHasLine(result, "y.i32 :=.i32 6.i32;");
+        assertHasLine(result, "ret.i32 6.i32;");
+        assertCodeMatchesClass(result);
+    }
+
+    @Test
+    public void mergeOfDifferentValuesIsNotConstant() {
+        var result = optimize("MergeDifferentValues.ollir");
+
+        assertHasLine(result, "y.i32 :=.i32 x.i32 +.i32 1.i32;");
+        assertHasLine(result, "ret.i32 y.i32;");
+        assertCodeMatchesClass(result);
+    }
+
+    @Test
+    public void loopRedefinitionIsNotPropagated() {
+        var result = optimize("LoopRedefinition.ollir");
+
+        // n is never redefined, so its value reaches the condition through the back-edge
+        assertHasLine(result, "if (i.i32 <.bool 10.i32) goto body;");
+        // i changes in the loop, so neither its initial value nor the one of the first iteration is used
+        assertHasLine(result, "i.i32 :=.i32 i.i32 +.i32 1.i32;");
+        assertHasLine(result, "ret.i32 i.i32;");
+        assertNoLine(result, "ret.i32 0.i32;");
+        assertNoLine(result, "ret.i32 1.i32;");
+        assertCodeMatchesClass(result);
+    }
+
+    @Test
+    public void nonConstantBranchIsKept() {
+        var result = optimize("NonConstantBranch.ollir");
+
+        assertHasLine(result, "if (a.i32 <.bool 3.i32) goto small;");
+        assertHasLine(result, "r.i32 :=.i32 6.i32;");
+        assertHasLine(result, "r.i32 :=.i32 a.i32;");
+        assertHasLine(result, "ret.i32 r.i32;");
+        assertCodeMatchesClass(result);
+    }
+
+    @Test
+    public void constantBranchIsRemoved() {
+        var result = optimize("ConstantBranch.ollir");
+
+        assertNoLine(result, "r.i32 :=.i32 1.i32;");
+        assertFalse(result.getOllirCode().contains("goto small"));
+        assertHasLine(result, "ret.i32 6.i32;");
+        assertCodeMatchesClass(result);
+    }
+
+    @Test
+    public void unchangedClassKeepsItsCode() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/constprop/MergeDifferentValues.ollir");
+
+        var result = new JmmOptimizationImpl().optimize(new OllirResult(code, config));
+
+        assertEquals(code, result.getOllirCode());
+    }
+}
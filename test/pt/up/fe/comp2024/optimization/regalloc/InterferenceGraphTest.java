@@ -0,0 +1,76 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InterferenceGraphTest {
+
+    private static InterferenceGraph getGraph(String filename, List<String> variables) {
+        var method = LivenessTest.getMethod(filename, "foo");
+        var cfg = new ControlFlowGraph(method);
+        return new InterferenceGraph(cfg, new Liveness(cfg, variables));
+    }
+
+    private static void assertValidColoring(InterferenceGraph graph, int[] colors, int maxColors) {
+        for (int node = 0; node < graph.getNumNodes(); node++) {
+            assertTrue(colors[node] >= 0 && colors[node] < maxColors);
+            for (int neighbour : graph.getNeighbours(node)) {
+                assertNotEquals(colors[node], colors[neighbour]);
+            }
+        }
+    }
+
+    @Test
+    public void straightLine() {
+        var graph = getGraph("Straight.ollir", List.of("x", "y", "z"));
+
+        // y is written while x is live, z is written when nothing else is
+        assertEquals(1, graph.getNumEdges());
+        assertEquals(Set.of(1), graph.getNeighbours(0));
+        assertEquals(Set.of(), graph.getNeighbours(2));
+        assertEquals(2, graph.getCliqueLowerBound());
+
+        assertTrue(graph.color(1).isEmpty());
+        var colors = graph.color(2).orElseThrow();
+        assertValidColoring(graph, colors, 2);
+    }
+
+    @Test
+    public void loopVariablesInterfere() {
+        var graph = getGraph("Loop.ollir", List.of("i", "s"));
+
+        assertEquals(1, graph.getNumEdges());
+        assertEquals(Set.of(1), graph.getNeighbours(0));
+        assertTrue(graph.color(1).isEmpty());
+        assertValidColoring(graph, graph.color(2).orElseThrow(), 2);
+    }
+
+    @Test
+    public void copyDoesNotInterfere() {
+        var graph = getGraph("Copy.ollir", List.of("x", "y", "z"));
+
+        // x and y hold the same value after 'y := x', so they can share a register
+        assertEquals(0, graph.getNumEdges());
+        var colors = graph.color(1).orElseThrow();
+        assertValidColoring(graph, colors, 1);
+    }
+
+    @Test
+    public void slidingWindowNeedsWindowColors() {
+        var variables = new java.util.ArrayList<String>();
+        for (int i = 0; i < 30; i++) {
+            variables.add("t" + i);
+        }
+        var graph = getGraph("Window.ollir", variables);
+
+        // five values are live at once
+        assertEquals(5, graph.getCliqueLowerBound());
+        assertTrue(graph.color(4).isEmpty());
+        assertValidColoring(graph, graph.color(5).orElseThrow(), 5);
+    }
+}
@@ -0,0 +1,202 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LinearScanTest {
+
+    private static final List<String> OLLIR_FIXTURES = List.of("Straight.ollir", "Copy.ollir", "Loop.ollir",
+            "Window.ollir");
+
+    private static final String JMM_FIXTURE = "pt/up/fe/comp/cpf/5_optimizations/reg_alloc/regalloc.jmm";
+
+    /**
+     * @return the methods of the register allocation fixtures, with the registers given by OLLIR, parsed again on
+     * each call so that each allocation starts from the same method
+     */
+    private static List<Method> getFixtureMethods() {
+        var methods = new ArrayList<Method>();
+        for (var fixture : OLLIR_FIXTURES) {
+            var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/regalloc/" + fixture);
+            methods.addAll(new OllirResult(code, new HashMap<>()).getOllirClass().getMethods());
+        }
+
+        var ollirResult = TestUtils.optimize(SpecsIo.getResource(JMM_FIXTURE));
+        TestUtils.noErrors(ollirResult);
+        methods.addAll(ollirResult.getOllirClass().getMethods());
+
+        return methods;
+    }
+
+    /**
+     * A method with a sliding window of temporaries, like Window.ollir, where each instruction adds the previous
+     * temporary and the one the given number of instructions before it, so that as many temporaries are live at once.
+     */
+    private static Method getWindowMethod(int numInstructions, int windowSize) {
+        var code = new StringBuilder();
+        code.append("Window {\n")
+                .append(".construct Window().V {\ninvokespecial(this, \"<init>\").V;\n}\n")
+                .append(".method public foo(a.i32).i32 {\n");
+        for (int i = 0; i < windowSize; i++) {
+            code.append("t").append(i).append(".i32 :=.i32 a.i32 +.i32 ").append(i).append(".i32;\n");
+        }
+        for (int i = windowSize; i < numInstructions; i++) {
+            code.append("t").append(i).append(".i32 :=.i32 t").append(i - 1).append(".i32 +.i32 t")
+                    .append(i - windowSize).append(".i32;\n");
+        }
+        code.append("ret.i32 t").append(numInstructions - 1).append(".i32;\n}\n}\n");
+
+        return new OllirResult(code.toString(), new HashMap<>()).getOllirClass().getMethods().stream()
+                .filter(method -> method.getMethodName().equals("foo"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static List<String> getLocals(Method method) {
+        var locals = new ArrayList<String>();
+        method.getVarTable().forEach((name, descriptor) -> {
+            if (descriptor.getScope() == VarScope.LOCAL && !name.equals("this")) {
+                locals.add(name);
+            }
+        });
+        locals.sort(String::compareTo);
+
+        return locals;
+    }
+
+    private static int getNumRegisters(Method method) {
+        return method.getVarTable().values().stream()
+                .mapToInt(descriptor -> descriptor.getVirtualReg() + 1)
+                .max()
+                .orElse(0);
+    }
+
+    private static int getNumColors(int[] colors) {
+        int numColors = 0;
+        for (int color : colors) {
+            numColors = Math.max(numColors, color + 1);
+        }
+
+        return numColors;
+    }
+
+    /**
+     * No two variables whose intervals overlap get the same register, and no more registers are used than the most
+     * intervals that overlap at one point.
+     */
+    private static void assertValidAllocation(Method method) {
+        var cfg = new ControlFlowGraph(method);
+        var liveness = new Liveness(cfg, getLocals(method));
+        var linearScan = new LinearScan(cfg, liveness);
+
+        var colors = linearScan.allocate();
+
+        int numVariables = colors.length;
+        int maxOverlapping = 0;
+        for (int var = 0; var < numVariables; var++) {
+            if (linearScan.getEnd(var) == -1) {
+                continue;
+            }
+
+            // the intervals that contain the start of this one overlap at that point
+            int overlapping = 0;
+            for (int other = 0; other < numVariables; other++) {
+                if (linearScan.getEnd(other) == -1) {
+                    continue;
+                }
+
+                boolean overlaps = linearScan.getStart(var) <= linearScan.getEnd(other)
+                        && linearScan.getStart(other) <= linearScan.getEnd(var);
+                if (other != var && overlaps) {
+                    assertNotEquals(method.getMethodName() + ": " + liveness.getVariables().get(var) + " and "
+                            + liveness.getVariables().get(other), colors[var], colors[other]);
+                }
+                if (linearScan.getStart(other) <= linearScan.getStart(var)
+                        && linearScan.getStart(var) <= linearScan.getEnd(other)) {
+                    overlapping++;
+                }
+            }
+            maxOverlapping = Math.max(maxOverlapping, overlapping);
+        }
+
+        assertEquals(method.getMethodName(), maxOverlapping, getNumColors(colors));
+    }
+
+    @Test
+    public void overlappingIntervalsGetDifferentRegisters() {
+        for (var method : getFixtureMethods()) {
+            assertValidAllocation(method);
+        }
+    }
+
+    @Test
+    public void aboutAsManyRegistersAsColoring() {
+        var linearMethods = getFixtureMethods();
+        var graphMethods = getFixtureMethods();
+
+        for (int i = 0; i < linearMethods.size(); i++) {
+            var linear = linearMethods.get(i);
+            var graph = graphMethods.get(i);
+
+            assertTrue(new RegisterAllocation(0, RegisterAllocation.Strategy.LINEAR).allocate(linear).isEmpty());
+            assertTrue(new RegisterAllocation(0, RegisterAllocation.Strategy.GRAPH).allocate(graph).isEmpty());
+
+            // intervals are conservative around loops, which can cost a register
+            int linearRegisters = getNumRegisters(linear);
+            int graphRegisters = getNumRegisters(graph);
+            assertTrue(linear.getMethodName() + ": " + linearRegisters + " registers instead of " + graphRegisters,
+                    linearRegisters <= graphRegisters + 1);
+        }
+    }
+
+    @Test
+    public void autoUsesLinearScanAboveThreshold() {
+        var auto = new RegisterAllocation(0, RegisterAllocation.Strategy.AUTO);
+
+        var small = LivenessTest.getMethod("Window.ollir", "foo");
+        var smallCfg = new ControlFlowGraph(small);
+        var smallLiveness = new Liveness(smallCfg, getLocals(small));
+        assertTrue(RegisterAllocation.estimateGraphSize(smallCfg, smallLiveness)
+                <= RegisterAllocation.GRAPH_SIZE_THRESHOLD);
+        assertFalse(auto.usesLinearScan(smallCfg, smallLiveness));
+
+        // each of the 2000 instructions after the first 20 has 20 live variables
+        var large = getWindowMethod(2_000, 20);
+        var largeCfg = new ControlFlowGraph(large);
+        var largeLiveness = new Liveness(largeCfg, getLocals(large));
+        assertTrue(RegisterAllocation.estimateGraphSize(largeCfg, largeLiveness)
+                > RegisterAllocation.GRAPH_SIZE_THRESHOLD);
+        assertTrue(auto.usesLinearScan(largeCfg, largeLiveness));
+
+        // the other strategies do not depend on the size
+        assertFalse(new RegisterAllocation(0, RegisterAllocation.Strategy.GRAPH).usesLinearScan(largeCfg,
+                largeLiveness));
+        assertTrue(new RegisterAllocation(0, RegisterAllocation.Strategy.LINEAR).usesLinearScan(smallCfg,
+                smallLiveness));
+    }
+
+    /**
+     * A method too large to color its interference graph quickly, 10000 instructions with 400 live variables.
+     */
+    @Test(timeout = 10_000)
+    public void tenThousandInstructions() {
+        var method = getWindowMethod(10_000, 400);
+
+        var report = new RegisterAllocation(0, RegisterAllocation.Strategy.AUTO).allocate(method);
+
+        // this, a, and the 400 temporaries live at once, which coloring cannot do with fewer registers either
+        assertTrue(report.isEmpty());
+        assertEquals(2 + 400, getNumRegisters(method));
+    }
+}
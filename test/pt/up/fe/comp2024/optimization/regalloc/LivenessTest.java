@@ -0,0 +1,80 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.optimization.ControlFlowGraph;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LivenessTest {
+
+    static Method getMethod(String filename, String methodName) {
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/regalloc/" + filename);
+        var ollirClass = new OllirResult(code, new HashMap<>()).getOllirClass();
+
+        return ollirClass.getMethods().stream()
+                .filter(method -> method.getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static BitSet bits(int... indexes) {
+        var bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    @Test
+    public void straightLine() {
+        var method = getMethod("Straight.ollir", "foo");
+        var liveness = new Liveness(new ControlFlowGraph(method), List.of("x", "y", "z"));
+
+        // x := a + 1; y := x * 2; z := y + x; ret z
+        assertEquals(0, liveness.getDef(0));
+        assertEquals(1, liveness.getDef(1));
+        assertEquals(2, liveness.getDef(2));
+        assertEquals(-1, liveness.getDef(3));
+
+        assertEquals(bits(), liveness.getLiveIn(0));
+        assertEquals(bits(0), liveness.getLiveOut(0));
+        assertEquals(bits(0, 1), liveness.getLiveOut(1));
+        assertEquals(bits(0, 1), liveness.getUses(2));
+        assertEquals(bits(2), liveness.getLiveOut(2));
+        assertEquals(bits(2), liveness.getLiveIn(3));
+        assertEquals(bits(), liveness.getLiveOut(3));
+    }
+
+    @Test
+    public void loopKeepsVariablesLiveAroundBackEdge() {
+        var method = getMethod("Loop.ollir", "foo");
+        var liveness = new Liveness(new ControlFlowGraph(method), List.of("i", "s"));
+
+        // 0: i := 0; 1: s := 0; 2: if (i < a) goto body; 3: goto end; 4: s := s + i; 5: i := i + 1;
+        // 6: goto cond; 7: ret s
+        assertEquals(bits(0), liveness.getLiveOut(0));
+        assertEquals(bits(0, 1), liveness.getLiveIn(2));
+        assertEquals(bits(1), liveness.getLiveIn(3));
+        assertEquals(bits(0, 1), liveness.getLiveOut(4));
+        assertEquals(bits(0, 1), liveness.getLiveIn(6));
+        assertEquals(bits(1), liveness.getLiveIn(7));
+    }
+
+    @Test
+    public void untrackedVariablesAreIgnored() {
+        var method = getMethod("Straight.ollir", "foo");
+        var liveness = new Liveness(new ControlFlowGraph(method), List.of("y"));
+
+        assertEquals(-1, liveness.getDef(0));
+        assertEquals(0, liveness.getDef(1));
+        assertEquals(bits(), liveness.getLiveIn(1));
+        assertEquals(bits(0), liveness.getLiveOut(1));
+    }
+}
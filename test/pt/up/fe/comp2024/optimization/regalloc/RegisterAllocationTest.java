@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024.optimization.regalloc;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RegisterAllocationTest {
+
+    private static int getNumRegisters(Method method) {
+        return method.getVarTable().values().stream()
+                .mapToInt(descriptor -> descriptor.getVirtualReg() + 1)
+                .max()
+                .orElse(0);
+    }
+
+    private static Map<String, Integer> getRegisters(Method method) {
+        var registers = new HashMap<String, Integer>();
+        method.getVarTable().forEach((name, descriptor) -> registers.put(name, descriptor.getVirtualReg()));
+        return registers;
+    }
+
+    @Test
+    public void minimumRegisters() {
+        for (var strategy : RegisterAllocation.Strategy.values()) {
+            var method = LivenessTest.getMethod("Straight.ollir", "foo");
+
+            var report = new RegisterAllocation(0, strategy).allocate(method);
+
+            // this, a, and two registers for x, y and z
+            assertTrue(report.isEmpty());
+            assertEquals(strategy.name(), 4, getNumRegisters(method));
+        }
+    }
+
+    @Test
+    public void minimumRegistersOfSlidingWindow() {
+        var method = LivenessTest.getMethod("Window.ollir", "foo");
+
+        new RegisterAllocation(0, RegisterAllocation.Strategy.GRAPH).allocate(method);
+
+        assertEquals(2 + 5, getNumRegisters(method));
+    }
+
+    @Test
+    public void parametersKeepTheirRegisters() {
+        var method = LivenessTest.getMethod("Loop.ollir", "foo");
+
+        new RegisterAllocation(0, RegisterAllocation.Strategy.GRAPH).allocate(method);
+
+        // register 0 is 'this'
+        assertEquals(VarScope.PARAMETER, method.getVarTable().get("a").getScope());
+        assertEquals(1, method.getVarTable().get("a").getVirtualReg());
+        assertTrue(method.getVarTable().get("i").getVirtualReg() >= 2);
+        assertTrue(method.getVarTable().get("s").getVirtualReg() >= 2);
+        assertNotEquals(method.getVarTable().get("i").getVirtualReg(), method.getVarTable().get("s").getVirtualReg());
+    }
+
+    @Test
+    public void tooFewRegisters() {
+        for (var strategy : RegisterAllocation.Strategy.values()) {
+            var method = LivenessTest.getMethod("Straight.ollir", "foo");
+            var before = getRegisters(method);
+
+            var report = new RegisterAllocation(3, strategy).allocate(method);
+
+            assertTrue(strategy.name(), report.isPresent());
+            assertEquals(ReportType.ERROR, report.get().getType());
+            assertTrue(report.get().getMessage(), report.get().getMessage().contains("needs at least 4 registers"));
+            assertTrue(report.get().getMessage(), report.get().getMessage().contains("-r=3"));
+            // the method is not changed
+            assertEquals(before, getRegisters(method));
+        }
+    }
+
+    @Test
+    public void tooFewRegistersIsReported() {
+        Map<String, String> config = new HashMap<>();
+        config.put("registerAllocation", "3");
+        var code = SpecsIo.getResource("pt/up/fe/comp2024/optimization/regalloc/Straight.ollir");
+
+        var result = new JmmOptimizationImpl().optimize(new OllirResult(code, config));
+
+        var errors = result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .toList();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage().contains("Method 'foo' needs at least 4 registers"));
+    }
+
+    @Test
+    public void enoughRegisters() {
+        var method = LivenessTest.getMethod("Straight.ollir", "foo");
+
+        var report = new RegisterAllocation(4, RegisterAllocation.Strategy.GRAPH).allocate(method);
+
+        assertTrue(report.isEmpty());
+        assertTrue(getNumRegisters(method) <= 4);
+    }
+}
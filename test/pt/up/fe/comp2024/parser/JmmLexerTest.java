@@ -0,0 +1,128 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.Test;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JmmLexerTest {
+
+    /**
+     * The tokens and errors of a lexer, as text, e.g. "ID 'a' 1:0", "EOF 1:1" and
+     * "1:2 token recognition error at: '&x'".
+     */
+    private record Result(List<String> tokens, List<String> errors) {
+    }
+
+    private static String describe(int type, String text, int line, int column) {
+        if (type == Token.EOF) {
+            return "EOF " + line + ":" + column;
+        }
+
+        return JavammLexer.VOCABULARY.getSymbolicName(type) + " '" + text + "' " + line + ":" + column;
+    }
+
+    private static Result lex(String code) {
+        var tokens = JmmLexer.tokenize(code);
+
+        var descriptions = new ArrayList<String>();
+        for (int i = 0; i < tokens.size(); i++) {
+            descriptions.add(describe(tokens.type(i), tokens.text(i), tokens.line(i), tokens.column(i)));
+        }
+
+        var errors = new ArrayList<String>();
+        for (var report : tokens.getReports()) {
+            errors.add(report.getLine() + ":" + report.getColumn() + " " + report.getMessage());
+        }
+
+        return new Result(descriptions, errors);
+    }
+
+    private static Result lexWithAntlr(String code) {
+        var lexer = new JavammLexer(new ANTLRInputStream(code));
+        var errors = new ArrayList<String>();
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                errors.add(line + ":" + charPositionInLine + " " + msg);
+            }
+        });
+
+        var descriptions = new ArrayList<String>();
+        for (var token : lexer.getAllTokens()) {
+            descriptions.add(describe(token.getType(), token.getText(), token.getLine(),
+                    token.getCharPositionInLine()));
+        }
+        // getAllTokens stops before the end of the file
+        descriptions.add(describe(Token.EOF, null, lexer.getLine(), lexer.getCharPositionInLine()));
+
+        return new Result(descriptions, errors);
+    }
+
+    /**
+     * The lexer gives the expected tokens and errors, and so does the lexer generated from the grammar.
+     */
+    private static void assertLexes(String code, List<String> tokens, List<String> errors) {
+        var expected = new Result(tokens, errors);
+        assertEquals(expected, lexWithAntlr(code));
+        assertEquals(expected, lex(code));
+    }
+
+    @Test
+    public void tablesHaveEveryLiteralOfTheGrammar() {
+        var vocabulary = JavammLexer.VOCABULARY;
+        for (int type = 1; type <= vocabulary.getMaxTokenType(); type++) {
+            var literal = vocabulary.getLiteralName(type);
+            if (literal == null) {
+                continue;
+            }
+
+            // the literal names are quoted, e.g. 'int'
+            var text = literal.substring(1, literal.length() - 1);
+            var tokens = JmmLexer.tokenize(text);
+            assertEquals(text, 2, tokens.size());
+            assertEquals(text, type, tokens.type(0));
+        }
+    }
+
+    @Test
+    public void ampersandOrPipeAloneSkipsTheNextCharacter() {
+        assertLexes("a &x b", List.of("ID 'a' 1:0", "ID 'b' 1:5", "EOF 1:6"),
+                List.of("1:2 token recognition error at: '&x'"));
+        assertLexes("a |x b", List.of("ID 'a' 1:0", "ID 'b' 1:5", "EOF 1:6"),
+                List.of("1:2 token recognition error at: '|x'"));
+    }
+
+    @Test
+    public void unclosedSingleLineCommentAtTheEnd() {
+        assertLexes("a // b", List.of("ID 'a' 1:0", "DIV '/' 1:2", "DIV '/' 1:3", "ID 'b' 1:5", "EOF 1:6"),
+                List.of());
+        assertLexes("a //", List.of("ID 'a' 1:0", "DIV '/' 1:2", "DIV '/' 1:3", "EOF 1:4"), List.of());
+    }
+
+    @Test
+    public void unclosedMultiLineCommentAtTheEnd() {
+        assertLexes("a /* b", List.of("ID 'a' 1:0", "DIV '/' 1:2", "MUL '*' 1:3", "ID 'b' 1:5", "EOF 1:6"),
+                List.of());
+    }
+
+    @Test
+    public void dollarAfterADigitStartsAnotherIdentifier() {
+        assertLexes("a1$ $b", List.of("ID 'a1' 1:0", "ID '$' 1:2", "ID '$b' 1:4", "EOF 1:6"), List.of());
+    }
+
+    @Test
+    public void leadingZeroIsItsOwnInteger() {
+        assertLexes("0123", List.of("INTEGER '0' 1:0", "INTEGER '123' 1:1", "EOF 1:4"), List.of());
+    }
+}
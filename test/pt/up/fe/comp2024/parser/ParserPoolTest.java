@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ParserPoolTest {
+
+    private static final List<String> RESOURCES = List.of(
+            "pt/up/fe/comp/cp1/symboltable/MethodsAndFields.jmm",
+            "pt/up/fe/comp/cp1/symboltable/Imports.jmm",
+            "pt/up/fe/comp/cp2/apps/ComplexImports.jmm",
+            "pt/up/fe/comp/cp2/apps/HelloWorldWhileLT5.jmm",
+            "pt/up/fe/comp/cpf/3_ollir/control_flow/IfElseInMain.jmm",
+            "pt/up/fe/comp/cpf/5_optimizations/reg_alloc/regalloc.jmm");
+
+    /**
+     * @return programs that parse, and programs with errors, whose SLL parse fails and is parsed again with full LL
+     */
+    private static List<String> getPrograms() {
+        var programs = new ArrayList<String>();
+        for (var resource : RESOURCES) {
+            programs.add(SpecsIo.getResource(resource));
+        }
+        programs.add("class A { public int foo( { return 0; } }");
+        programs.add("class A { int a; public int foo() { a = 1 +; return a; } }");
+        programs.add("class A { public int foo() { return 1 # 2; } }");
+        programs.add("");
+
+        return programs;
+    }
+
+    /**
+     * @return the AST and the reports of the result, as text
+     */
+    private static String describe(JmmParserResult result) {
+        var root = result.getRootNode();
+        return (root == null ? "no root" : root.toTree()) + result.getReports();
+    }
+
+    private static List<String> parseAll(List<String> programs) {
+        var parser = new JmmParserImpl();
+        var results = new ArrayList<String>();
+        for (var program : programs) {
+            results.add(describe(parser.parse(program, new HashMap<>())));
+        }
+
+        return results;
+    }
+
+    @Test
+    public void releasedParserIsReused() {
+        var programs = getPrograms();
+        var expected = parseAll(programs);
+
+        var pool = new ParserPool(1);
+        var first = pool.acquire(JmmLexer.tokenize(programs.get(0)));
+        var second = pool.acquire(JmmLexer.tokenize(programs.get(1)));
+        assertNotSame(first, second);
+
+        pool.release(first);
+        pool.release(second);
+        // only one is kept
+        assertEquals(1, pool.getNumIdle());
+
+        var tokens = JmmLexer.tokenize(programs.get(2));
+        var reused = pool.acquire(tokens);
+        assertSame(first, reused);
+        assertEquals(0, pool.getNumIdle());
+
+        var result = reused.parse("program", new HashMap<>());
+        assertEquals(expected.get(2), describe(result));
+
+        // parsing the same tokens again, like the full LL parse after the SLL one
+        reused.reset(tokens);
+        result = reused.parse("program", new HashMap<>());
+        assertEquals(expected.get(2), describe(result));
+
+        pool.release(reused);
+    }
+
+    /**
+     * A parse can start at any rule, like the expressions of GrammarTest, and the parser then recovers from the errors
+     * of the next program like a new parser.
+     */
+    @Test
+    public void parserIsResetAfterAnyRule() {
+        var programs = getPrograms();
+        var expected = parseAll(programs);
+
+        var pool = new ParserPool(1);
+        for (int i = RESOURCES.size(); i < programs.size(); i++) {
+            var pooled = pool.acquire(JmmLexer.tokenize("a + b * c"));
+            var result = pooled.parse("expr", new HashMap<>());
+            assertNotNull(result.getRootNode());
+
+            pooled.reset(JmmLexer.tokenize(programs.get(i)));
+            result = pooled.parse("program", new HashMap<>());
+            assertEquals(programs.get(i), expected.get(i), describe(result));
+            pool.release(pooled);
+        }
+    }
+
+    @Test
+    public void concurrentParsesMatchSequentialParses() throws InterruptedException, ExecutionException {
+        var programs = getPrograms();
+        var expected = parseAll(programs);
+
+        int numThreads = 8;
+        int parsesPerThread = 100;
+        // one parser for all the threads, whose parses all share the same pool
+        var parser = new JmmParserImpl();
+        var executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < numThreads; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < parsesPerThread; i++) {
+                        int index = (offset + i) % programs.size();
+                        var result = describe(parser.parse(programs.get(index), new HashMap<>()));
+                        assertEquals(RESOURCES.size() > index ? RESOURCES.get(index) : programs.get(index),
+                                expected.get(index), result);
+                    }
+                }));
+            }
+
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * What the parsers learned is kept for the whole process, so parsing the same programs again, with any parser,
+     * learns nothing new.
+     */
+    @Test
+    public void parsingAgainAddsNoDFAStates() {
+        var programs = getPrograms();
+        parseAll(programs);
+
+        int numStates = ParserPool.getNumDFAStates();
+        assertTrue(numStates > 0);
+
+        parseAll(programs);
+        assertEquals(numStates, ParserPool.getNumDFAStates());
+    }
+}
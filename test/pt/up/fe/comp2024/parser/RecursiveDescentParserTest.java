@@ -0,0 +1,168 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * The recursive descent parser builds the same trees as the ANTLR parser, and rejects the same inputs.
+ */
+public class RecursiveDescentParserTest {
+
+    private static final List<Path> GRAMMAR_TESTS = List.of(
+            Path.of("test/pt/up/fe/comp/cp1/GrammarTest.java"),
+            Path.of("test/pt/up/fe/comp/initial/GrammarTest.java"));
+
+    // a rule name kept in a constant, e.g. EXPRESSION = "expr"
+    private static final Pattern RULE_CONSTANT = Pattern.compile("static final String (\\w+) = \"(\\w+)\"");
+
+    // a call of parse, parseVerbose or parseFail with a code literal, maybe split with +, and maybe a rule
+    private static final Pattern PARSE_CALL = Pattern.compile(
+            "parse(?:Verbose|Fail)?\\(((?:\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\+?\\s*)+)(?:,\\s*\"?(\\w+)\"?)?\\)");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private record Input(String name, String code, String rule) {
+    }
+
+    /**
+     * @return the code given to the parser by each test of the grammar test class, with its starting rule
+     */
+    private static List<Input> readGrammarTest(Path grammarTest) throws IOException {
+        var source = Files.readString(grammarTest);
+
+        Map<String, String> rules = new HashMap<>();
+        var constants = RULE_CONSTANT.matcher(source);
+        while (constants.find()) {
+            rules.put(constants.group(1), constants.group(2));
+        }
+
+        var inputs = new ArrayList<Input>();
+        var calls = PARSE_CALL.matcher(source);
+        while (calls.find()) {
+            var code = new StringBuilder();
+            var literals = STRING_LITERAL.matcher(calls.group(1));
+            while (literals.find()) {
+                code.append(unescape(literals.group(1)));
+            }
+
+            var rule = calls.group(2) == null ? "program" : rules.getOrDefault(calls.group(2), calls.group(2));
+            inputs.add(new Input(grammarTest + ": " + code, code.toString(), rule));
+        }
+
+        return inputs;
+    }
+
+    private static String unescape(String literal) {
+        return literal.replace("\\n", "\n")
+                .replace("\\t", "\t")
+                .replace("\\\"", "\"")
+                .replace("\\\\", "\\");
+    }
+
+    /**
+     * @return where the trees first differ, or null if they have the same kinds, hierarchies, attributes (which
+     * include the positions) and children
+     */
+    private static String compare(JmmNode expected, JmmNode actual, String path) {
+        var nodePath = path + "/" + expected.getKind();
+        if (!expected.getKind().equals(actual.getKind())) {
+            return nodePath + ": kind " + actual.getKind();
+        }
+        if (!new ArrayList<>(expected.getHierarchy()).equals(new ArrayList<>(actual.getHierarchy()))) {
+            return nodePath + ": hierarchy " + expected.getHierarchy() + " vs " + actual.getHierarchy();
+        }
+
+        var expectedAttributes = new TreeMap<String, Object>();
+        for (var attribute : expected.getAttributes()) {
+            expectedAttributes.put(attribute, expected.getObject(attribute));
+        }
+        var actualAttributes = new TreeMap<String, Object>();
+        for (var attribute : actual.getAttributes()) {
+            actualAttributes.put(attribute, actual.getObject(attribute));
+        }
+        if (!expectedAttributes.equals(actualAttributes)) {
+            return nodePath + ": attributes " + expectedAttributes + " vs " + actualAttributes;
+        }
+
+        if (expected.getNumChildren() != actual.getNumChildren()) {
+            return nodePath + ": " + expected.getNumChildren() + " children vs " + actual.getNumChildren();
+        }
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            var difference = compare(expected.getJmmChild(i), actual.getJmmChild(i), nodePath);
+            if (difference != null) {
+                return difference;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return how the parsers differ on the input, or null if they build the same tree or both reject it
+     */
+    private static String compare(Input input) {
+        var expected = new JmmParserImpl().parse(input.code(), input.rule(), new HashMap<>());
+        var actual = new RecursiveDescentParser().parse(input.code(), input.rule(), new HashMap<>());
+
+        var expectedRoot = expected.getRootNode();
+        var actualRoot = actual.getRootNode();
+        if (expectedRoot == null || actualRoot == null) {
+            return expectedRoot == actualRoot ? null
+                    : "ANTLR " + (expectedRoot == null ? expected.getReports() : "accepts")
+                    + ", recursive descent " + (actualRoot == null ? actual.getReports() : "accepts");
+        }
+
+        return compare(expectedRoot, actualRoot, "");
+    }
+
+    private static void assertSameResults(List<Input> inputs) {
+        var differences = new ArrayList<String>();
+        for (var input : inputs) {
+            var difference = compare(input);
+            if (difference != null) {
+                differences.add(input.name() + " (" + input.rule() + "): " + difference);
+            }
+        }
+
+        assertEquals(List.of(), differences);
+    }
+
+    @Test
+    public void grammarTests() throws IOException {
+        var inputs = new ArrayList<Input>();
+        for (var grammarTest : GRAMMAR_TESTS) {
+            inputs.addAll(readGrammarTest(grammarTest));
+        }
+
+        assertTrue(inputs.size() > 50);
+        assertSameResults(inputs);
+    }
+
+    @Test
+    public void jmmFiles() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test"))) {
+            files = paths.filter(file -> file.toString().endsWith(".jmm")).sorted().toList();
+        }
+
+        var inputs = new ArrayList<Input>();
+        for (var file : files) {
+            inputs.add(new Input(file.toString(), Files.readString(file), "program"));
+        }
+
+        assertTrue(inputs.size() > 100);
+        assertSameResults(inputs);
+    }
+}
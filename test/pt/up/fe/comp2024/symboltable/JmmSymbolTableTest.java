@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JmmSymbolTableTest {
+
+    private static final String SHADOWING = """
+            class A {
+                int x;
+                boolean y;
+                int[] z;
+
+                public int foo(boolean x, int w) {
+                    int y;
+                    int v;
+                    return 0;
+                }
+
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    /**
+     * A symbol table that is not a {@link JmmSymbolTable}, with the same symbols as the given one.
+     */
+    private static SymbolTable copyOf(SymbolTable table) {
+        return new SymbolTable() {
+            @Override
+            public List<String> getImports() {
+                return table.getImports();
+            }
+
+            @Override
+            public String getClassName() {
+                return table.getClassName();
+            }
+
+            @Override
+            public String getSuper() {
+                return table.getSuper();
+            }
+
+            @Override
+            public List<Symbol> getFields() {
+                return table.getFields();
+            }
+
+            @Override
+            public List<String> getMethods() {
+                return table.getMethods();
+            }
+
+            @Override
+            public Type getReturnType(String methodSignature) {
+                return table.getReturnType(methodSignature);
+            }
+
+            @Override
+            public List<Symbol> getParameters(String methodSignature) {
+                return table.getParameters(methodSignature);
+            }
+
+            @Override
+            public List<Symbol> getLocalVariables(String methodSignature) {
+                return table.getLocalVariables(methodSignature);
+            }
+        };
+    }
+
+    @Test
+    public void otherTablesResolveLikeTheIndex() {
+        var table = JmmSymbolTableBuilder.build(TestUtils.parse(SHADOWING).getRootNode());
+        var other = copyOf(table);
+
+        for (var method : Arrays.asList("foo", "main", "bar", null)) {
+            for (var name : List.of("x", "y", "z", "w", "v", "args", "undeclared")) {
+                assertEquals(method + " " + name, table.resolve(name, method),
+                        JmmSymbolTable.resolve(other, name, method));
+            }
+        }
+
+        // parameters shadow fields, and so do locals
+        assertEquals(SymbolScope.PARAMETER, JmmSymbolTable.resolve(other, "x", "foo").orElseThrow().scope());
+        assertEquals(SymbolScope.LOCAL, JmmSymbolTable.resolve(other, "y", "foo").orElseThrow().scope());
+        assertEquals(SymbolScope.FIELD, JmmSymbolTable.resolve(other, "y", "main").orElseThrow().scope());
+    }
+}